@@ -0,0 +1,145 @@
+package main.pathfinding;
+
+import main.pathfinding.impl.SearchContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs many {@link PathQuery queries} against the same {@link GridMap} across several threads.
+ * <p>
+ * The map is only ever read while a batch runs, and every thread searches with its own {@link Pathfinder} created by the
+ * factory, so no search state is shared between threads. Threads take small chunks of queries from a shared counter so
+ * that a few long queries do not leave the other threads idle, and each result is written to the index of its query so
+ * the results come back in the same order as the queries. Threads release their search state once they run out of
+ * queries, so the pool does not keep it alive between batches.
+ *
+ * @author Matthew Lillie
+ */
+public class BatchPathfinder implements AutoCloseable {
+
+    /**
+     * The amount of queries a thread takes at a time.
+     */
+    private static final int CHUNK_SIZE = 16;
+
+    /**
+     * The threads running the queries.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The amount of threads.
+     */
+    private final int threads;
+
+    /**
+     * The algorithm used by each thread, created the first time a thread runs a query.
+     */
+    private final ThreadLocal<Pathfinder> pathfinders;
+
+    /**
+     * Constructs a new batch pathfinder using a thread for every available processor.
+     *
+     * @param factory Creates the algorithm used by each thread.
+     */
+    public BatchPathfinder(Supplier<Pathfinder> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new batch pathfinder.
+     *
+     * @param factory Creates the algorithm used by each thread.
+     * @param threads The amount of threads to search with.
+     */
+    public BatchPathfinder(Supplier<Pathfinder> factory, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid thread count: " + threads);
+        }
+
+        this.threads = threads;
+        this.pathfinders = ThreadLocal.withInitial(factory);
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-pathfinder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches every query, blocking until all of them have finished. The map must not be modified until this returns.
+     *
+     * @param map     The map to search.
+     * @param queries The queries to search.
+     * @return The result of each query, in the same order as the queries.
+     * @throws InterruptedException Exception may be thrown if the calling thread is interrupted while waiting.
+     */
+    public List<SearchResult> findPaths(GridMap map, List<PathQuery> queries) throws InterruptedException {
+        SearchResult[] results = new SearchResult[queries.size()];
+        AtomicInteger next = new AtomicInteger();
+
+        Callable<Void> worker = () -> {
+            Pathfinder pathfinder = pathfinders.get();
+
+            try {
+                int from;
+                while ((from = next.getAndAdd(CHUNK_SIZE)) < results.length) {
+                    int to = Math.min(from + CHUNK_SIZE, results.length);
+
+                    for (int i = from; i < to; i++) {
+                        PathQuery query = queries.get(i);
+                        results[i] = pathfinder.findPath(map, query.getStart(), query.getGoal());
+                    }
+                }
+            } finally {
+                SearchContext.release();
+            }
+            return null;
+        };
+
+        int workers = Math.min(threads, (results.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        List<Future<Void>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(executor.submit(worker));
+        }
+
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            // Stop the remaining workers from taking any more queries
+            next.set(results.length);
+
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            next.set(results.length);
+            throw e;
+        }
+
+        // Waiting on the futures makes the writes of every worker visible here
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Stops the threads once any running batch has finished.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,36 @@
+package main.pathfinding;
+
+/**
+ * Represents the different types of cells within a {@link GridMap}.
+ *
+ * @author Matthew Lillie
+ */
+public enum CellType {
+    START('s'),
+    GOAL('g'),
+    BLOCKED('x'),
+    NORMAL('o');
+
+    /**
+     * The save code used for loading/saving
+     */
+    private final char saveCode;
+
+    /**
+     * Creates a new type with a given save code.
+     *
+     * @param saveCode The save code.
+     */
+    CellType(char saveCode) {
+        this.saveCode = saveCode;
+    }
+
+    /**
+     * Gets the save code for the type.
+     *
+     * @return The save code.
+     */
+    public char getSaveCode() {
+        return saveCode;
+    }
+}
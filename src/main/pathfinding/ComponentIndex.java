@@ -0,0 +1,488 @@
+package main.pathfinding;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Labels the connected components of the open cells of a {@link GridMap}, so that a goal that cannot be reached from
+ * the start is known before searching.
+ * <p>
+ * Every open cell has a label and labels are joined with a union find, so opening cells only joins the labels around
+ * them. Blocking cells can split a component, which is checked by searching the area around the edit. Only a component
+ * whose cells around the edit no longer meet nearby is labeled again, by flood filling it. The labels are rebuilt when
+ * the edits since the last update are not known or cover a large part of the map. Diagonal neighbors are connected
+ * only if the index is built for diagonal movement.
+ * <p>
+ * Every pathfinder searching a map shares one index through {@link #get(GridMap, boolean)}, found by the edit history
+ * of the map so copies of the map use it as well. Indexes are kept for the few maps searched most recently.
+ * <p>
+ * Searches on different threads share the indexes without waiting for each other. Once a version of the map has been
+ * looked up a few times the root label of each cell is published as an immutable array, and later lookups on that
+ * version only read the array. Only lookups on a version without one take the lock of the index, which updates the
+ * labels, so a map edited between every search never pays for flattening every cell. Finding an index other than the
+ * most recently used one takes the lock of the cache.
+ *
+ * @author Matthew Lillie
+ */
+public class ComponentIndex {
+
+    /**
+     * The label of blocked cells, and of opened cells that have not been given a label yet.
+     */
+    private static final int BLOCKED = -1;
+    private static final int PENDING = -2;
+
+    /**
+     * Edits covering more than this fraction of the map rebuild the labels instead of repairing them.
+     */
+    private static final int REBUILD_FRACTION = 8;
+
+    /**
+     * How far around an edit is searched to see if the cells next to blocked cells are still connected.
+     */
+    private static final int LOCAL_MARGIN = 3;
+
+    /**
+     * The amount of lookups on a version of the map answered under the lock before the labels are flattened for
+     * lookups without locking.
+     */
+    private static final int SNAPSHOT_LOOKUPS = 64;
+
+    /**
+     * The amount of indexes kept.
+     */
+    private static final int CACHE_SIZE = 4;
+
+    /**
+     * The indexes kept, the most recently used first. Replaced rather than changed, so it can be read without locking.
+     */
+    private static volatile ComponentIndex[] cache = new ComponentIndex[CACHE_SIZE];
+
+    /**
+     * Whether or not diagonal neighbors are connected.
+     */
+    private final boolean diagonal;
+
+    /**
+     * The history of the map the index was created for by {@link #get(GridMap, boolean)}, or null.
+     */
+    private final EditHistory owner;
+
+    /**
+     * The history, version and size of the map the labels are for.
+     */
+    private EditHistory history;
+    private int version;
+    private int width, height;
+
+    /**
+     * The label of each cell, and the parent of each label in the union find.
+     */
+    private int[] labels;
+    private int[] parents = new int[64];
+    private int labelCount;
+
+    /**
+     * Cells waiting to be flood filled.
+     */
+    private int[] stack = new int[64];
+
+    private final int[] neighbors = new int[8];
+
+    /**
+     * The labels flattened to their roots, read by lookups without locking, or null if they have not been flattened
+     * since the last update. Along with the amount of lookups answered under the lock since the last update.
+     */
+    private volatile Snapshot snapshot;
+    private int lockedLookups;
+
+    /**
+     * Constructs a new index, the labels are built by the first lookup.
+     *
+     * @param diagonal Whether or not diagonal neighbors are connected.
+     */
+    public ComponentIndex(boolean diagonal) {
+        this(diagonal, null);
+    }
+
+    private ComponentIndex(boolean diagonal, EditHistory owner) {
+        this.diagonal = diagonal;
+        this.owner = owner;
+    }
+
+    /**
+     * Gets the shared index of a map, creating it if the map has not been searched recently.
+     *
+     * @param map      The map.
+     * @param diagonal Whether or not diagonal neighbors are connected.
+     * @return The index, which may not be up to date with the map yet.
+     */
+    public static ComponentIndex get(GridMap map, boolean diagonal) {
+        ComponentIndex first = cache[0];
+        if (first != null && first.isOwnedBy(map, diagonal)) {
+            return first;
+        }
+
+        synchronized (ComponentIndex.class) {
+            // Move the index to the front, or replace the least recently used one with a new index
+            ComponentIndex[] indexes = cache.clone();
+            int i = 0;
+            while (i < CACHE_SIZE - 1 && (indexes[i] == null || !indexes[i].isOwnedBy(map, diagonal))) {
+                i++;
+            }
+
+            ComponentIndex index = indexes[i] != null && indexes[i].isOwnedBy(map, diagonal)
+                    ? indexes[i] : new ComponentIndex(diagonal, map.getHistory());
+
+            System.arraycopy(indexes, 0, indexes, 1, i);
+            indexes[0] = index;
+            cache = indexes;
+            return index;
+        }
+    }
+
+    /**
+     * Checks if there can be a path between two cells, updating the labels to the current version of the map first.
+     *
+     * @param map   The map.
+     * @param start The start cell.
+     * @param goal  The goal cell.
+     * @return True if the goal is in the same component as the start.
+     */
+    public boolean isReachable(GridMap map, int start, int goal) {
+        Snapshot current = snapshot;
+        if (current == null || !current.isFor(map)) {
+            return isReachableLocked(map, start, goal);
+        }
+
+        if (start == goal) {
+            return true;
+        }
+
+        int root = current.roots[start];
+        return root != BLOCKED && root == current.roots[goal];
+    }
+
+    /**
+     * Checks if there can be a path between two cells with the labels of the index, flattening them once the version
+     * of the map has been looked up often enough.
+     */
+    private synchronized boolean isReachableLocked(GridMap map, int start, int goal) {
+        update(map);
+
+        if (snapshot == null && ++lockedLookups >= SNAPSHOT_LOOKUPS) {
+            int[] roots = new int[labels.length];
+            for (int cell = 0; cell < roots.length; cell++) {
+                roots[cell] = labels[cell] < 0 ? BLOCKED : find(labels[cell]);
+            }
+            snapshot = new Snapshot(history, version, width, height, roots);
+        }
+
+        if (start == goal) {
+            return true;
+        }
+
+        int startLabel = labels[start];
+        int goalLabel = labels[goal];
+        return startLabel != BLOCKED && goalLabel != BLOCKED && find(startLabel) == find(goalLabel);
+    }
+
+    /**
+     * Brings the labels up to date with the map, repairing them if only a few cells were edited.
+     *
+     * @param map The map.
+     */
+    public synchronized void update(GridMap map) {
+        boolean sameMap = labels != null && map.getHistory() == history
+                && map.getWidth() == width && map.getHeight() == height;
+
+        if (sameMap && map.getVersion() == version) {
+            return;
+        }
+
+        int[] edits = sameMap ? history.getEditsBetween(version, map.getVersion()) : null;
+
+        long area = 0;
+        if (edits != null) {
+            for (int i = 0; i < edits.length; i += 4) {
+                area += (long) (edits[i + 2] - edits[i] + 1) * (edits[i + 3] - edits[i + 1] + 1);
+            }
+        }
+
+        // Every edited cell and its neighbors may need a new label, keep the labels from growing without bound
+        if (edits == null || area > map.getCellCount() / REBUILD_FRACTION
+                || labelCount + area * 9 > 2L * map.getCellCount() + 64) {
+            rebuild(map);
+        } else {
+            repair(map, edits);
+        }
+
+        history = map.getHistory();
+        version = map.getVersion();
+        snapshot = null;
+        lockedLookups = 0;
+    }
+
+    /**
+     * Checks if the index is the one shared by {@link #get(GridMap, boolean)} for a map and movement type.
+     */
+    private boolean isOwnedBy(GridMap map, boolean diagonal) {
+        return owner == map.getHistory() && this.diagonal == diagonal;
+    }
+
+    /**
+     * Labels every component from scratch.
+     */
+    private void rebuild(GridMap map) {
+        if (labels == null || labels.length != map.getCellCount()) {
+            labels = new int[map.getCellCount()];
+        }
+        Arrays.fill(labels, BLOCKED);
+
+        width = map.getWidth();
+        height = map.getHeight();
+        labelCount = 0;
+
+        for (int cell = 0; cell < labels.length; cell++) {
+            if (labels[cell] == BLOCKED && !map.isBlocked(cell)) {
+                fill(map, cell, newLabel(), 0);
+            }
+        }
+    }
+
+    /**
+     * Repairs the labels after a few areas have been edited.
+     */
+    private void repair(GridMap map, int[] edits) {
+        int[] opened = new int[16];
+        int openedCount = 0;
+
+        // The cells next to blocked cells, and the component they were in
+        int[] bordering = new int[16];
+        int[] borderingRoots = new int[16];
+        int borderingCount = 0;
+
+        // The area and local group of the bordering cells of each component, components whose bordering cells are in
+        // different groups may have been split
+        Map<Integer, Long> groups = new HashMap<>();
+        Map<Integer, Boolean> split = new HashMap<>();
+
+        for (int i = 0; i < edits.length; i += 4) {
+            int minX = edits[i], minY = edits[i + 1], maxX = edits[i + 2], maxY = edits[i + 3];
+            int[] localGroups = null;
+            int windowMinX = Math.max(0, minX - LOCAL_MARGIN), windowMinY = Math.max(0, minY - LOCAL_MARGIN);
+            int windowMaxX = Math.min(width - 1, maxX + LOCAL_MARGIN);
+            int windowMaxY = Math.min(height - 1, maxY + LOCAL_MARGIN);
+
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    int cell = map.cellOf(x, y);
+                    int label = labels[cell];
+
+                    if (map.isBlocked(cell)) {
+                        if (label < 0) {
+                            continue;
+                        }
+                        labels[cell] = BLOCKED;
+
+                        if (localGroups == null) {
+                            localGroups = groupWindow(map, windowMinX, windowMinY, windowMaxX, windowMaxY);
+                        }
+
+                        // Blocked cells keep the neighbor bits of their open neighbors
+                        int count = map.getNeighbors(cell, diagonal, neighbors);
+                        for (int j = 0; j < count; j++) {
+                            int neighbor = neighbors[j];
+                            if (labels[neighbor] < 0) {
+                                continue;
+                            }
+
+                            int root = find(labels[neighbor]);
+                            long group = (long) i << 32 | localGroups[(map.getY(neighbor) - windowMinY)
+                                    * (windowMaxX - windowMinX + 1) + map.getX(neighbor) - windowMinX];
+                            Long previous = groups.put(root, group);
+                            if (previous != null && previous != group) {
+                                split.put(root, Boolean.TRUE);
+                            }
+
+                            if (borderingCount == bordering.length) {
+                                bordering = Arrays.copyOf(bordering, borderingCount * 2);
+                                borderingRoots = Arrays.copyOf(borderingRoots, borderingCount * 2);
+                            }
+                            bordering[borderingCount] = neighbor;
+                            borderingRoots[borderingCount++] = root;
+                        }
+                    } else if (label == BLOCKED) {
+                        labels[cell] = PENDING;
+
+                        if (openedCount == opened.length) {
+                            opened = Arrays.copyOf(opened, openedCount * 2);
+                        }
+                        opened[openedCount++] = cell;
+                    }
+                }
+            }
+        }
+
+        // Label the components that may have been split again, one fill for each part
+        int firstFillLabel = labelCount;
+        for (int i = 0; i < borderingCount; i++) {
+            if (split.containsKey(borderingRoots[i]) && labels[bordering[i]] < firstFillLabel) {
+                fill(map, bordering[i], newLabel(), firstFillLabel);
+            }
+        }
+
+        // Opened cells join the components around them
+        for (int i = 0; i < openedCount; i++) {
+            if (labels[opened[i]] == PENDING) {
+                labels[opened[i]] = newLabel();
+            }
+        }
+
+        for (int i = 0; i < openedCount; i++) {
+            int count = map.getNeighbors(opened[i], diagonal, neighbors);
+            for (int j = 0; j < count; j++) {
+                if (labels[neighbors[j]] >= 0) {
+                    union(labels[opened[i]], labels[neighbors[j]]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Groups the open cells of an area by which of them are connected within the area.
+     *
+     * @return The group of each cell of the area, row by row.
+     */
+    private int[] groupWindow(GridMap map, int minX, int minY, int maxX, int maxY) {
+        int windowWidth = maxX - minX + 1;
+        int[] groups = new int[windowWidth * (maxY - minY + 1)];
+        int groupCount = 0;
+
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int index = (y - minY) * windowWidth + x - minX;
+                int cell = map.cellOf(x, y);
+
+                if (groups[index] != 0 || map.isBlocked(cell)) {
+                    continue;
+                }
+
+                groups[index] = ++groupCount;
+                int size = push(0, cell);
+
+                while (size > 0) {
+                    int current = stack[--size];
+                    int count = map.getNeighbors(current, diagonal, neighbors);
+
+                    for (int i = 0; i < count; i++) {
+                        int neighborX = map.getX(neighbors[i]);
+                        int neighborY = map.getY(neighbors[i]);
+                        if (neighborX < minX || neighborX > maxX || neighborY < minY || neighborY > maxY) {
+                            continue;
+                        }
+
+                        int neighborIndex = (neighborY - minY) * windowWidth + neighborX - minX;
+                        if (groups[neighborIndex] == 0) {
+                            groups[neighborIndex] = groupCount;
+                            size = push(size, neighbors[i]);
+                        }
+                    }
+                }
+            }
+        }
+
+        return groups;
+    }
+
+    /**
+     * Gives a label to every open cell connected to a cell.
+     *
+     * @param map           The map.
+     * @param cell          The cell to start from.
+     * @param label         The label to give.
+     * @param firstNewLabel Cells with a label of at least this have already been filled.
+     */
+    private void fill(GridMap map, int cell, int label, int firstNewLabel) {
+        labels[cell] = label;
+        int size = push(0, cell);
+
+        while (size > 0) {
+            int current = stack[--size];
+            int count = map.getNeighbors(current, diagonal, neighbors);
+
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+                if (labels[neighbor] < firstNewLabel) {
+                    labels[neighbor] = label;
+                    size = push(size, neighbor);
+                }
+            }
+        }
+    }
+
+    private int push(int size, int cell) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size] = cell;
+        return size + 1;
+    }
+
+    private int newLabel() {
+        if (labelCount == parents.length) {
+            parents = Arrays.copyOf(parents, labelCount * 2);
+        }
+        parents[labelCount] = labelCount;
+        return labelCount++;
+    }
+
+    private int find(int label) {
+        while (parents[label] != label) {
+            parents[label] = parents[parents[label]];
+            label = parents[label];
+        }
+        return label;
+    }
+
+    private void union(int one, int two) {
+        one = find(one);
+        two = find(two);
+        if (one != two) {
+            parents[Math.max(one, two)] = Math.min(one, two);
+        }
+    }
+
+    /**
+     * The root label of every cell for one version of a map, never changed once published.
+     */
+    private static final class Snapshot {
+
+        private final EditHistory history;
+        private final int version;
+        private final int width, height;
+
+        /**
+         * The root label of each cell, {@link #BLOCKED} for blocked cells.
+         */
+        private final int[] roots;
+
+        private Snapshot(EditHistory history, int version, int width, int height, int[] roots) {
+            this.history = history;
+            this.version = version;
+            this.width = width;
+            this.height = height;
+            this.roots = roots;
+        }
+
+        /**
+         * Checks if the labels are for the current version of a map.
+         */
+        private boolean isFor(GridMap map) {
+            return map.getHistory() == history && map.getVersion() == version
+                    && map.getWidth() == width && map.getHeight() == height;
+        }
+    }
+
+}
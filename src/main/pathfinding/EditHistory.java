@@ -0,0 +1,121 @@
+package main.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * The areas edited between recent versions of a {@link GridMap}, letting data derived from the map be repaired instead
+ * of rebuilt after small edits.
+ * <p>
+ * A map shares its history with its copies until one of them is edited, the first map edited keeps the history and
+ * every other map starts a new one, so a history and a version always describe the same cells. Edits next to the last
+ * recorded area are merged into it, so dragging out a wall only takes a single entry. Only the most recent entries are
+ * kept, asking about versions older than that tells the caller to rebuild everything.
+ *
+ * @author Matthew Lillie
+ */
+public class EditHistory {
+
+    /**
+     * The most entries kept.
+     */
+    private static final int CAPACITY = 256;
+
+    /**
+     * Each entry covers the versions after its from version up to and including its to version, and the area edited.
+     */
+    private final int[] fromVersions = new int[CAPACITY];
+    private final int[] toVersions = new int[CAPACITY];
+    private final int[] areas = new int[CAPACITY * 4];
+
+    /**
+     * The index of the oldest entry and the amount of entries.
+     */
+    private int first, count;
+
+    /**
+     * The oldest version the edits are known from, and the version of the last edit.
+     */
+    private int oldestVersion, latestVersion;
+
+    EditHistory(int version) {
+        this.oldestVersion = version;
+        this.latestVersion = version;
+    }
+
+    /**
+     * Records an edit of a map, unless another map sharing this history has already been edited from the same version.
+     *
+     * @param version The version of the map before the edit, the edit creates the next version.
+     * @param minX    The smallest x position edited.
+     * @param minY    The smallest y position edited.
+     * @param maxX    The largest x position edited.
+     * @param maxY    The largest y position edited.
+     * @return False if the map has to start a new history.
+     */
+    synchronized boolean record(int version, int minX, int minY, int maxX, int maxY) {
+        if (version != latestVersion) {
+            return false;
+        }
+        latestVersion = version + 1;
+
+        if (count > 0) {
+            int last = (first + count - 1) % CAPACITY;
+            int area = last * 4;
+
+            // Touching or overlapping the last area, grow it instead of adding an entry
+            if (minX <= areas[area + 2] + 1 && maxX >= areas[area] - 1
+                    && minY <= areas[area + 3] + 1 && maxY >= areas[area + 1] - 1) {
+                areas[area] = Math.min(areas[area], minX);
+                areas[area + 1] = Math.min(areas[area + 1], minY);
+                areas[area + 2] = Math.max(areas[area + 2], maxX);
+                areas[area + 3] = Math.max(areas[area + 3], maxY);
+                toVersions[last] = latestVersion;
+                return true;
+            }
+        }
+
+        if (count == CAPACITY) {
+            // Forget the oldest entry
+            oldestVersion = toVersions[first];
+            first = (first + 1) % CAPACITY;
+            count--;
+        }
+
+        int index = (first + count++) % CAPACITY;
+        fromVersions[index] = version;
+        toVersions[index] = latestVersion;
+        areas[index * 4] = minX;
+        areas[index * 4 + 1] = minY;
+        areas[index * 4 + 2] = maxX;
+        areas[index * 4 + 3] = maxY;
+        return true;
+    }
+
+    /**
+     * Gets the areas edited between two versions of maps sharing this history.
+     *
+     * @param fromVersion The older version.
+     * @param toVersion   The newer version.
+     * @return The smallest x, smallest y, largest x and largest y of each area, or null if the edits are not known.
+     */
+    public synchronized int[] getEditsBetween(int fromVersion, int toVersion) {
+        if (fromVersion < oldestVersion || toVersion > latestVersion || fromVersion > toVersion) {
+            return null;
+        }
+
+        int[] edits = new int[count * 4];
+        int size = 0;
+
+        for (int i = 0; i < count; i++) {
+            int index = (first + i) % CAPACITY;
+
+            if (toVersions[index] > fromVersion && fromVersions[index] < toVersion) {
+                System.arraycopy(areas, index * 4, edits, size, 4);
+                size += 4;
+            }
+        }
+
+        return Arrays.copyOf(edits, size);
+    }
+
+}
@@ -5,27 +5,80 @@ import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
-import java.util.List;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * A grid being painted onto a JPanel. The grid consists of nodes where we can specify the size of the node.
+ * A grid being painted onto a JPanel, meant to be shown inside a {@link JScrollPane}. The size of the map does not
+ * depend on the size of the panel: the panel is as large as the map at the current zoom and the scroll pane pans
+ * around it.
+ * <p>
+ * The cells themselves are stored within a {@link GridMap}, this panel only adds the visit counts used for drawing.
+ * <p>
+ * Cells are drawn into square tiles that are kept between frames, and only the tiles that are visible are ever drawn.
+ * Cells that changed since the last frame are drawn again in the tiles that have been kept: cells visited by the
+ * search, cells edited on the map and the old and new start and goal. Painting a frame is then mostly copying the
+ * visible tiles. At a zoom below one pixel per cell the tiles are overviews, each pixel showing how much of a block of
+ * cells is blocked and how often it was visited, so a map of millions of cells can be shown whole.
  * <p>
  * This canvas handles all the clicking and dragging associated with changes the start node, end node, and blocked nodes.
+ * Holding shift paints terrain costs instead of blocking cells, and cells are shaded darker the more they cost. Scrolling
+ * pans the map and scrolling while holding control zooms around the mouse.
  *
  * @author Matthew Lillie
  */
-public class Grid extends JPanel implements MouseListener, MouseMotionListener {
+public class Grid extends JPanel implements MouseListener, MouseMotionListener, MouseWheelListener {
+
+    /**
+     * The lowest and highest zoom. A positive zoom is the size (width and height) of the individual nodes in pixels,
+     * a zoom of zero or less shows 2^(1 - zoom) by 2^(1 - zoom) cells in each pixel.
+     */
+    public static final int MIN_ZOOM = -5;
+    public static final int MAX_ZOOM = 50;
+
+    /**
+     * The size of the map shown before any other is created or loaded.
+     */
+    private static final int DEFAULT_WIDTH = 44;
+    private static final int DEFAULT_HEIGHT = 24;
+
+    /**
+     * The most pixels along a side of a tile, and the amount of tiles kept between frames.
+     */
+    private static final int TILE_SIZE = 256;
+    private static final int MAX_TILES = 128;
+
+    /**
+     * The smallest nodes still outlined, and the size of the start and goal markers drawn over overview tiles.
+     */
+    private static final int MIN_OUTLINED_SIZE = 4;
+    private static final int MARKER_SIZE = 5;
+
+    /**
+     * The current zoom, see {@link #MIN_ZOOM}.
+     */
+    private int zoom = 20;
 
     /**
-     * The size (width and height) of the individual nodes
+     * The map storing the cells as well as the start and end point
      */
-    private int nodeSize = 20;
+    private GridMap map;
 
     /**
-     * The data used for storing the nodes as well as the start and end point
+     * The amount of times each cell has been visited by the running algorithm, indexed by cell id.
      */
-    private Node[][] nodes;
-    private Node startNode, goalNode;
+    private int[] timesVisited;
+
+    /**
+     * The cells visited at least once since the visit counts were last cleared, so clearing them only touches those.
+     */
+    private int[] visitedCells = new int[64];
+    private int visitedCount;
 
     /**
      * Represents the date necessary for dragging
@@ -34,9 +87,72 @@ public class Grid extends JPanel implements MouseListener, MouseMotionListener {
     private int dragStartX = -1, dragStartY = -1, draggedButton = -1;
 
     /**
-     * The list of nodes that represent the path that has been found.
+     * The cells that represent the path that has been found.
      */
-    private List<Node> pathFound;
+    private int[] pathFound;
+
+    /**
+     * The amount of visits after which a cell is drawn in the strongest color.
+     */
+    private static final int MAX_HEAT = 20;
+
+    /**
+     * The tiles drawn at the current zoom keyed by their position, least recently painted first. Along with the version
+     * of the map and the start and goal they show.
+     */
+    private final Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+    private EditHistory bufferedHistory;
+    private int bufferedVersion;
+    private int bufferedStart = -1, bufferedGoal = -1;
+    private boolean redrawAll = true;
+
+    /**
+     * How often the events of a running search are checked for, in milliseconds.
+     */
+    private static final int FRAME_DELAY = 16;
+
+    /**
+     * The events of the search being shown, drained by the frame timer, or null if there is none.
+     */
+    private SearchEventBuffer events;
+
+    /**
+     * The cells visited since the last frame, and a bit for each cell telling if it is already in the list. Only used
+     * on the event dispatch thread, like the visit counts.
+     */
+    private int[] dirtyCells = new int[64];
+    private int dirtyCount;
+    private long[] dirtyFlags = new long[0];
+
+    /**
+     * The RGB color of a cell by its amount of visits, blended with the background.
+     */
+    private int[] heatColors;
+
+    /**
+     * The RGB color of an unvisited cell by its terrain cost, blended with the background.
+     */
+    private int[] terrainColors;
+
+    /**
+     * The terrain cost painted by dragging with shift held.
+     */
+    private int terrainBrush = 5;
+
+    /**
+     * Called after the map has been edited with the mouse, may be null.
+     */
+    private Runnable editListener;
+
+    /**
+     * Called after the zoom has changed, may be null.
+     */
+    private Runnable zoomListener;
 
     /**
      * Constructor for this class, where we attach the mouse listeners
@@ -44,119 +160,113 @@ public class Grid extends JPanel implements MouseListener, MouseMotionListener {
     Grid() {
         this.addMouseListener(this);
         this.addMouseMotionListener(this);
+        this.addMouseWheelListener(this);
+
+        setMap(new GridMap(DEFAULT_WIDTH, DEFAULT_HEIGHT));
+
+        // Take the events of a running search at a steady rate even while nothing is painted, so the search never waits
+        // for painting, and repaint only the area of the cells they visited
+        new Timer(FRAME_DELAY, actionEvent -> {
+            if (events != null && events.drain(this::visit) > 0) {
+                repaintDirty();
+            }
+        }).start();
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        // Create the nodes, must be done here because width and height of this component are not set until after initialization
-        if (nodes == null) {
-            nodes = new Node[getWidth() / nodeSize][getHeight() / nodeSize];
-
-            for (int x = 0; x < getWidth() / nodeSize; x++) {
-                for (int y = 0; y < getHeight() / nodeSize; y++) {
-                    nodes[x][y] = new Node(x, y);
-                }
-            }
-
-            startNode = nodes[0][0];
-            startNode.setType(Node.NodeType.START);
-            goalNode = nodes[nodes.length - 1][nodes[0].length - 1];
-            goalNode.setType(Node.NodeType.GOAL);
-        }
 
         Graphics2D graphics = (Graphics2D) g;
         // Enable anti aliasing and prefer quality rendering
         //graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
 
-        // Draw all the nodes
-        for (int x = 0; x < nodes.length; x++) {
-            for (int y = 0; y < nodes[x].length; y++) {
-                Node node = nodes[x][y];
-
-                int realX = (x * nodeSize) % getWidth();
-                int realY = (y * nodeSize) % getHeight();
-
-                if (node.getTimesVisited() > 0) {
-                    float maxBound = 20f;
-
-                    // Fail safe
-                    if(node.getTimesVisited() > maxBound) {
-                        maxBound = (float)node.getTimesVisited();
-                    }
+        Rectangle clip = graphics.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
 
-                    float t = ((float)node.getTimesVisited() / maxBound);
+        // Bring the kept tiles up to date, then copy the visible ones drawing those that are missing
+        updateTiles();
 
-                    // Lerp between 10f and  255f based on times visited and the max bound
-                    float alpha = (1f - t) * 10f + t * 255f;
-                    Color color = new Color(Color.MAGENTA.getRed(), Color.MAGENTA.getGreen(), Color.MAGENTA.getBlue(), (int)alpha);
+        int tileCells = getTileCells();
+        int tilePixels = toPixel(tileCells);
+        int lastTileX = Math.min((map.getWidth() - 1) / tileCells, (clip.x + clip.width - 1) / tilePixels);
+        int lastTileY = Math.min((map.getHeight() - 1) / tileCells, (clip.y + clip.height - 1) / tilePixels);
 
-                    // Make it darker if we have exceeded the bounds
-                    if(node.getTimesVisited() > maxBound) {
-                        for(int i = (int) maxBound; i < node.getTimesVisited(); i ++) {
-                            color = color.darker();
-                        }
-                    }
+        for (int tileY = Math.max(0, clip.y / tilePixels); tileY <= lastTileY; tileY++) {
+            for (int tileX = Math.max(0, clip.x / tilePixels); tileX <= lastTileX; tileX++) {
+                long key = (long) tileX << 32 | tileY;
+                BufferedImage tile = tiles.get(key);
 
-                    graphics.setColor(color);
-                    graphics.fillRect(realX, realY, nodeSize, nodeSize);
+                if (tile == null) {
+                    tile = drawTile(tileX, tileY);
+                    tiles.put(key, tile);
                 }
-                switch (node.getType()) {
-                    case START:
-                        graphics.setColor(Color.GREEN);
-                        graphics.fillRect(realX, realY, nodeSize, nodeSize);
-                        break;
-                    case GOAL:
-                        graphics.setColor(Color.RED);
-                        graphics.fillRect(realX, realY, nodeSize, nodeSize);
-                        break;
-                    case BLOCKED:
-                        graphics.setColor(Color.GRAY);
-                        graphics.fillRect(realX, realY, nodeSize, nodeSize);
-                        break;
-                    case NORMAL:
-                        graphics.setColor(Color.LIGHT_GRAY);
-                        graphics.drawRect(realX, realY, nodeSize, nodeSize);
-                        break;
-                }
-
+                graphics.drawImage(tile, tileX * tilePixels, tileY * tilePixels, null);
             }
         }
 
+        int half = Math.max(1, zoom) / 2;
 
         //Draw the path if the path has been found
         if (pathFound != null) {
-            for (int i = 0; i < pathFound.size() - 1; i++) {
-                if (pathFound.get(i) == null || pathFound.get(i + 1) == null) {
-                    break;
-                }
+            graphics.setColor(Color.BLACK);
 
-                Node current = pathFound.get(i);
-                Node next = pathFound.get(i + 1);
+            for (int i = 0; i < pathFound.length - 1; i++) {
+                int current = pathFound[i];
+                int next = pathFound[i + 1];
 
-                int realX = (current.getX() * nodeSize) % getWidth();
-                int realY = (current.getY() * nodeSize) % getHeight();
+                int realX = toPixel(map.getX(current)) + half;
+                int realY = toPixel(map.getY(current)) + half;
 
-                int realNextX = (next.getX() * nodeSize) % getWidth();
-                int realNextY = (next.getY() * nodeSize) % getHeight();
+                int realNextX = toPixel(map.getX(next)) + half;
+                int realNextY = toPixel(map.getY(next)) + half;
 
-                graphics.setColor(Color.BLACK);
+                // Paths can be long, only draw the parts that are visible
+                if (Math.max(realX, realNextX) + half < clip.x || Math.min(realX, realNextX) > clip.x + clip.width
+                        || Math.max(realY, realNextY) + half < clip.y
+                        || Math.min(realY, realNextY) > clip.y + clip.height) {
+                    continue;
+                }
 
-                graphics.fillOval(realX + nodeSize / 2, realY + nodeSize / 2, nodeSize / 3, nodeSize / 3);
-                graphics.fillOval(realNextX + nodeSize / 2, realNextY + nodeSize / 2, nodeSize / 3, nodeSize / 3);
+                if (zoom >= MIN_OUTLINED_SIZE) {
+                    graphics.fillOval(realX, realY, zoom / 3, zoom / 3);
+                    graphics.fillOval(realNextX, realNextY, zoom / 3, zoom / 3);
+                }
 
-                graphics.drawLine(realX + nodeSize / 2, realY + nodeSize / 2, realNextX + nodeSize / 2, realNextY + nodeSize / 2);
+                graphics.drawLine(realX, realY, realNextX, realNextY);
             }
         }
+
+        // Overview pixels do not show the start and goal, mark them on top
+        if (zoom < 1) {
+            drawMarker(graphics, map.getStart(), Color.GREEN);
+            drawMarker(graphics, map.getGoal(), Color.RED);
+        }
+    }
+
+    private void drawMarker(Graphics2D graphics, int cell, Color color) {
+        graphics.setColor(color);
+        graphics.fillRect(toPixel(map.getX(cell)) - MARKER_SIZE / 2, toPixel(map.getY(cell)) - MARKER_SIZE / 2,
+                MARKER_SIZE, MARKER_SIZE);
+        graphics.setColor(Color.BLACK);
+        graphics.drawRect(toPixel(map.getX(cell)) - MARKER_SIZE / 2, toPixel(map.getY(cell)) - MARKER_SIZE / 2,
+                MARKER_SIZE - 1, MARKER_SIZE - 1);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(toPixelSize(map.getWidth()), toPixelSize(map.getHeight()));
     }
 
     /**
      * Sets the path found.
      *
-     * @param pathFound The found path to display.
+     * @param pathFound The found path to display as cell ids.
      */
-    public void setPathFound(List<Node> pathFound) {
+    public void setPathFound(int[] pathFound) {
         this.pathFound = pathFound;
         repaint();
     }
@@ -165,144 +275,588 @@ public class Grid extends JPanel implements MouseListener, MouseMotionListener {
      * Resets all the nodes within the grid
      */
     public void reset() {
-        for (Node[] node : nodes) {
-            for (Node value : node) {
-                value.reset();
+        map.fill(false);
+        map.setAllCosts(null);
+        map.setStart(0);
+        map.setGoal(map.getCellCount() - 1);
+
+        clearTimesVisited();
+        pathFound = null;
+        events = null;
+
+        repaint();
+    }
+
+    /**
+     * Clears the visit counts left behind by the last algorithm ran, only drawing the cells it visited again.
+     */
+    public void clearTimesVisited() {
+        // Drawing every tile again is cheaper once the search went through a large part of the map
+        boolean redrawVisited = visitedCount <= timesVisited.length / 8;
+
+        for (int i = 0; i < visitedCount; i++) {
+            timesVisited[visitedCells[i]] = 0;
+            if (redrawVisited) {
+                markDirty(visitedCells[i]);
             }
         }
 
-        startNode = nodes[0][0];
-        startNode.setType(Node.NodeType.START);
-        goalNode = nodes[nodes.length - 1][nodes[0].length - 1];
-        goalNode.setType(Node.NodeType.GOAL);
+        visitedCount = 0;
+        redrawAll |= !redrawVisited;
+    }
 
-        pathFound = null;
+    /**
+     * Sets the events to show, replacing those of the previous search. Must be called on the event dispatch thread.
+     *
+     * @param events The events written by the search, or null to stop showing a search.
+     */
+    public void setEvents(SearchEventBuffer events) {
+        this.events = events;
+    }
 
-        repaint();
+    /**
+     * Shows recorded events straight away. Must be called on the event dispatch thread.
+     *
+     * @param events The events.
+     * @param from   The index of the first event to show.
+     * @param to     The index after the last event to show.
+     */
+    public void showEvents(int[] events, int from, int to) {
+        for (int i = from; i < to; i++) {
+            visit(events[i]);
+        }
+        repaintDirty();
     }
 
     /**
-     * Gets the size of nodes on the grid.
+     * Increments the amount of times a cell has been visited, ignoring step markers and cells of a previous map.
      *
-     * @return the size of the nodes.
+     * @param cell The cell id.
      */
-    public int getNodeSize() {
-        return nodeSize;
+    private void visit(int cell) {
+        if (cell < 0 || cell >= timesVisited.length) {
+            return;
+        }
+
+        if (timesVisited[cell]++ == 0) {
+            if (visitedCount == visitedCells.length) {
+                visitedCells = Arrays.copyOf(visitedCells, visitedCount * 2);
+            }
+            visitedCells[visitedCount++] = cell;
+        }
+
+        markDirty(cell);
     }
 
     /**
-     * Sets the size of the nodes and updates the grid.
+     * Adds a cell to the cells drawn again in the next frame, unless it is already in there.
      *
-     * @param nodeSize The new size of the nodes.
+     * @param cell The cell id.
      */
-    public void setNodeSize(int nodeSize) {
-        this.nodeSize = nodeSize;
-        this.pathFound = null;
+    private void markDirty(int cell) {
+        if ((dirtyFlags[cell >>> 6] & 1L << cell) == 0) {
+            dirtyFlags[cell >>> 6] |= 1L << cell;
 
-        nodes = new Node[getWidth() / nodeSize][getHeight() / nodeSize];
+            if (dirtyCount == dirtyCells.length) {
+                dirtyCells = Arrays.copyOf(dirtyCells, dirtyCount * 2);
+            }
+            dirtyCells[dirtyCount++] = cell;
+        }
+    }
+
+    /**
+     * Draws the cells that changed since the last frame into the tiles that are kept, or forgets every tile if the
+     * changes are not known.
+     */
+    private void updateTiles() {
+        if (heatColors == null) {
+            heatColors = createHeatColors(getBackground());
+            terrainColors = createTerrainColors(getBackground());
+        }
 
-        for (int x = 0; x < getWidth() / nodeSize; x++) {
-            for (int y = 0; y < getHeight() / nodeSize; y++) {
-                nodes[x][y] = new Node(x, y);
+        int[] edits = null;
+        if (!redrawAll && map.getHistory() == bufferedHistory) {
+            edits = bufferedHistory.getEditsBetween(bufferedVersion, map.getVersion());
+        }
+
+        if (edits == null) {
+            tiles.clear();
+        } else if (!tiles.isEmpty()) {
+            for (int i = 0; i < edits.length; i += 4) {
+                redrawCells(edits[i], edits[i + 1], edits[i + 2], edits[i + 3]);
+            }
+
+            if (zoom >= 1) {
+                for (int i = 0; i < dirtyCount; i++) {
+                    int x = map.getX(dirtyCells[i]), y = map.getY(dirtyCells[i]);
+                    redrawCells(x, y, x, y);
+                }
+            } else {
+                redrawPixels();
+            }
+
+            // The old start and goal are normal cells again
+            for (int cell : new int[]{bufferedStart, bufferedGoal, map.getStart(), map.getGoal()}) {
+                if (cell >= 0 && cell < map.getCellCount()) {
+                    redrawCells(map.getX(cell), map.getY(cell), map.getX(cell), map.getY(cell));
+                }
             }
         }
 
-        startNode = nodes[0][0];
-        startNode.setType(Node.NodeType.START);
-        goalNode = nodes[getWidth() / nodeSize - 1][getHeight() / nodeSize - 1];
-        goalNode.setType(Node.NodeType.GOAL);
+        for (int i = 0; i < dirtyCount; i++) {
+            dirtyFlags[dirtyCells[i] >>> 6] &= ~(1L << dirtyCells[i]);
+        }
+        dirtyCount = 0;
+
+        redrawAll = false;
+        bufferedHistory = map.getHistory();
+        bufferedVersion = map.getVersion();
+        bufferedStart = map.getStart();
+        bufferedGoal = map.getGoal();
+    }
+
+    /**
+     * Draws the overview pixels holding the visited cells again, once for each pixel however many of its cells were
+     * visited.
+     */
+    private void redrawPixels() {
+        int shift = 1 - zoom;
+        int pixelsWide = toPixelSize(map.getWidth());
+        int[] pixels = new int[dirtyCount];
+
+        for (int i = 0; i < dirtyCount; i++) {
+            pixels[i] = (map.getY(dirtyCells[i]) >> shift) * pixelsWide + (map.getX(dirtyCells[i]) >> shift);
+        }
+        Arrays.sort(pixels);
+
+        for (int i = 0; i < pixels.length; i++) {
+            if (i == 0 || pixels[i] != pixels[i - 1]) {
+                int x = pixels[i] % pixelsWide << shift, y = pixels[i] / pixelsWide << shift;
+                redrawCells(x, y, x, y);
+            }
+        }
     }
 
     /**
-     * Sets the nodes for this grid.
+     * Draws an area of cells again in the tiles that are kept.
+     */
+    private void redrawCells(int minX, int minY, int maxX, int maxY) {
+        int tileCells = getTileCells();
+
+        for (int tileY = minY / tileCells; tileY <= maxY / tileCells; tileY++) {
+            for (int tileX = minX / tileCells; tileX <= maxX / tileCells; tileX++) {
+                BufferedImage tile = tiles.get((long) tileX << 32 | tileY);
+                if (tile == null) {
+                    continue;
+                }
+
+                int originX = tileX * tileCells, originY = tileY * tileCells;
+                drawCells(tile, originX, originY, Math.max(minX, originX), Math.max(minY, originY),
+                        Math.min(maxX, originX + tileCells - 1), Math.min(maxY, originY + tileCells - 1));
+            }
+        }
+    }
+
+    /**
+     * Draws a new tile.
      *
-     * @param nodes The new nodes for this grid.
+     * @param tileX The x position of the tile.
+     * @param tileY The y position of the tile.
+     * @return The tile, smaller than a full tile at the right and bottom edges of the map.
+     */
+    private BufferedImage drawTile(int tileX, int tileY) {
+        int tileCells = getTileCells();
+        int originX = tileX * tileCells, originY = tileY * tileCells;
+        int maxX = Math.min(map.getWidth(), originX + tileCells) - 1;
+        int maxY = Math.min(map.getHeight(), originY + tileCells) - 1;
+
+        BufferedImage tile = new BufferedImage(toPixelSize(maxX - originX + 1), toPixelSize(maxY - originY + 1),
+                BufferedImage.TYPE_INT_RGB);
+        drawCells(tile, originX, originY, originX, originY, maxX, maxY);
+        return tile;
+    }
+
+    /**
+     * Draws an area of cells into a tile, writing the pixels directly.
+     */
+    private void drawCells(BufferedImage tile, int originX, int originY, int minX, int minY, int maxX, int maxY) {
+        int[] pixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+        int stride = tile.getWidth();
+
+        if (zoom >= 1) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    drawCell(pixels, stride, (x - originX) * zoom, (y - originY) * zoom, map.cellOf(x, y));
+                }
+            }
+            return;
+        }
+
+        int shift = 1 - zoom;
+        for (int y = minY >> shift; y <= maxY >> shift; y++) {
+            for (int x = minX >> shift; x <= maxX >> shift; x++) {
+                pixels[(y - (originY >> shift)) * stride + x - (originX >> shift)] = getBlockColor(x << shift,
+                        y << shift, shift);
+            }
+        }
+    }
+
+    /**
+     * Draws a single cell into the pixels of a tile.
      */
-    public void setNodes(Node[][] nodes) {
-        this.nodes = nodes;
+    private void drawCell(int[] pixels, int stride, int realX, int realY, int cell) {
+        CellType type = map.getType(cell);
+        int color;
+
+        switch (type) {
+            case START:
+                color = Color.GREEN.getRGB();
+                break;
+            case GOAL:
+                color = Color.RED.getRGB();
+                break;
+            case BLOCKED:
+                color = Color.GRAY.getRGB();
+                break;
+            default:
+                color = timesVisited[cell] == 0 ? terrainColors[map.getCost(cell)]
+                        : heatColors[Math.min(timesVisited[cell], MAX_HEAT)];
+                break;
+        }
+
+        for (int y = realY; y < realY + zoom; y++) {
+            Arrays.fill(pixels, y * stride + realX, y * stride + realX + zoom, color);
+        }
+
+        // Normal cells are outlined, the lines to the right and below are drawn by the neighboring cells
+        if (type == CellType.NORMAL && zoom >= MIN_OUTLINED_SIZE) {
+            int line = Color.LIGHT_GRAY.getRGB();
+            Arrays.fill(pixels, realY * stride + realX, realY * stride + realX + zoom, line);
+
+            for (int y = realY + 1; y < realY + zoom; y++) {
+                pixels[y * stride + realX] = line;
+            }
+        }
     }
 
     /**
-     * Gets all the nodes within this Grid.
+     * Gets the color of an overview pixel, the most visited cell of the block, or its most costly cell if none were
+     * visited, blended with gray by how much of the block is blocked.
+     */
+    private int getBlockColor(int minX, int minY, int shift) {
+        int maxX = Math.min(map.getWidth(), minX + (1 << shift));
+        int maxY = Math.min(map.getHeight(), minY + (1 << shift));
+        int blocked = 0, heat = 0, cost = GridMap.MIN_COST;
+
+        for (int y = minY; y < maxY; y++) {
+            for (int cell = map.cellOf(minX, y), end = cell + maxX - minX; cell < end; cell++) {
+                if (map.isBlocked(cell)) {
+                    blocked++;
+                } else {
+                    heat = Math.max(heat, timesVisited[cell]);
+                    cost = Math.max(cost, map.getCost(cell));
+                }
+            }
+        }
+
+        int open = heat == 0 ? terrainColors[cost] : heatColors[Math.min(heat, MAX_HEAT)];
+        int gray = Color.GRAY.getRGB();
+        int count = (maxX - minX) * (maxY - minY);
+
+        int color = 0;
+        for (int channel = 0; channel < 24; channel += 8) {
+            int mixed = ((open >> channel & 0xFF) * (count - blocked) + (gray >> channel & 0xFF) * blocked) / count;
+            color |= mixed << channel;
+        }
+        return color;
+    }
+
+    /**
+     * Creates the color of every amount of visits up to {@link #MAX_HEAT}, fading from nearly transparent to solid
+     * magenta over the background.
      *
-     * @return The nodes within the Grid.
+     * @param background The background the colors are drawn over.
+     * @return The RGB colors, the first being the background itself.
      */
-    public Node[][] getNodes() {
-        return nodes;
+    private static int[] createHeatColors(Color background) {
+        int[] colors = new int[MAX_HEAT + 1];
+        colors[0] = background.getRGB();
+
+        for (int visits = 1; visits <= MAX_HEAT; visits++) {
+            float t = (float) visits / MAX_HEAT;
+            // Lerp between 10f and 255f based on times visited
+            float alpha = ((1f - t) * 10f + t * 255f) / 255f;
+
+            colors[visits] = new Color(
+                    Math.round(Color.MAGENTA.getRed() * alpha + background.getRed() * (1f - alpha)),
+                    Math.round(Color.MAGENTA.getGreen() * alpha + background.getGreen() * (1f - alpha)),
+                    Math.round(Color.MAGENTA.getBlue() * alpha + background.getBlue() * (1f - alpha))).getRGB();
+        }
+
+        return colors;
     }
 
     /**
-     * Gets the start node for this Grid.
+     * Creates the color of every terrain cost, fading from a light to a dark brown over the background.
      *
-     * @return The start node for this Grid.
+     * @param background The background the colors are drawn over.
+     * @return The RGB colors indexed by cost, the minimum cost being the background itself.
      */
-    public Node getStartNode() {
-        return startNode;
+    private static int[] createTerrainColors(Color background) {
+        Color terrain = new Color(110, 70, 30);
+        int[] colors = new int[GridMap.MAX_COST + 1];
+
+        for (int cost = GridMap.MIN_COST; cost <= GridMap.MAX_COST; cost++) {
+            float t = (float) (cost - GridMap.MIN_COST) / (GridMap.MAX_COST - GridMap.MIN_COST);
+            // Even the cheapest terrain above the minimum has to stand out from the background
+            float alpha = cost == GridMap.MIN_COST ? 0f : 0.2f + 0.8f * t;
+
+            colors[cost] = new Color(
+                    Math.round(terrain.getRed() * alpha + background.getRed() * (1f - alpha)),
+                    Math.round(terrain.getGreen() * alpha + background.getGreen() * (1f - alpha)),
+                    Math.round(terrain.getBlue() * alpha + background.getBlue() * (1f - alpha))).getRGB();
+        }
+
+        return colors;
     }
 
     /**
-     * Gets the end node for this Grid.
+     * Gets the amount of cells along a side of a tile at the current zoom.
+     */
+    private int getTileCells() {
+        return zoom >= 1 ? Math.max(1, TILE_SIZE / zoom) : TILE_SIZE << 1 - zoom;
+    }
+
+    /**
+     * Gets the position of the pixel a cell position starts at.
+     */
+    private int toPixel(int position) {
+        return zoom >= 1 ? position * zoom : position >> 1 - zoom;
+    }
+
+    /**
+     * Gets the amount of pixels needed to show a row of cells starting on a tile boundary.
+     */
+    private int toPixelSize(int cells) {
+        long pixels = zoom >= 1 ? (long) cells * zoom : (cells + (1L << 1 - zoom) - 1) >> 1 - zoom;
+        return (int) Math.min(pixels, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the cell position a pixel position is within.
+     */
+    private int toCell(int pixel) {
+        return zoom >= 1 ? Math.floorDiv(pixel, zoom) : pixel << 1 - zoom;
+    }
+
+    /**
+     * Gets the zoom of the grid, see {@link #MIN_ZOOM}.
      *
-     * @return The end node for this Grid.
+     * @return The zoom.
      */
-    public Node getGoalNode() {
-        return goalNode;
+    public int getZoom() {
+        return zoom;
     }
 
     /**
-     * Sets the new start node.
+     * Sets the zoom of the grid, keeping the center of the visible area in place.
      *
-     * @param startNode The new start node.
+     * @param zoom The new zoom, limited to {@link #MIN_ZOOM} and {@link #MAX_ZOOM}.
      */
-    public void setStartNode(Node startNode) {
-        this.startNode = startNode;
+    public void setZoom(int zoom) {
+        Rectangle visible = getVisibleRect();
+        setZoom(zoom, new Point(visible.x + visible.width / 2, visible.y + visible.height / 2));
     }
 
     /**
-     * Sets the new end node.
+     * Sets the zoom of the grid, keeping the cell under a point of the panel under the same point of the scroll pane.
      *
-     * @param goalNode The new end node.
+     * @param zoom   The new zoom, limited to {@link #MIN_ZOOM} and {@link #MAX_ZOOM}.
+     * @param anchor The point of the panel to zoom around.
      */
-    public void setGoalNode(Node goalNode) {
-        this.goalNode = goalNode;
+    public void setZoom(int zoom, Point anchor) {
+        zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+        if (zoom == this.zoom) {
+            return;
+        }
+
+        double scale = getScale(zoom) / getScale(this.zoom);
+        this.zoom = zoom;
+        tiles.clear();
+
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null) {
+            Point position = viewport.getViewPosition();
+            Dimension extent = viewport.getExtentSize();
+            Dimension size = getPreferredSize();
+            setSize(size);
+
+            int x = (int) Math.round(anchor.x * scale) - (anchor.x - position.x);
+            int y = (int) Math.round(anchor.y * scale) - (anchor.y - position.y);
+            viewport.setViewPosition(new Point(Math.max(0, Math.min(x, size.width - extent.width)),
+                    Math.max(0, Math.min(y, size.height - extent.height))));
+        }
+
+        revalidate();
+        repaint();
+
+        if (zoomListener != null) {
+            zoomListener.run();
+        }
+    }
+
+    /**
+     * Gets the pixels per cell at a zoom.
+     */
+    private static double getScale(int zoom) {
+        return zoom >= 1 ? zoom : 1.0 / (1 << 1 - zoom);
+    }
+
+    /**
+     * Sets the map for this grid.
+     *
+     * @param map The new map for this grid.
+     */
+    public void setMap(GridMap map) {
+        this.map = map;
+        this.timesVisited = new int[map.getCellCount()];
+        this.visitedCount = 0;
+        this.pathFound = null;
+        this.events = null;
+
+        this.dirtyFlags = new long[GridMap.getWordCount(map.getWidth(), map.getHeight())];
+        this.dirtyCount = 0;
+        this.redrawAll = true;
+
+        revalidate();
+    }
+
+    /**
+     * Sets what to call after the map has been edited with the mouse.
+     *
+     * @param editListener The listener, or null for none.
+     */
+    public void setEditListener(Runnable editListener) {
+        this.editListener = editListener;
+    }
+
+    /**
+     * Sets the terrain cost painted by dragging with shift held.
+     *
+     * @param terrainBrush The cost, from {@link GridMap#MIN_COST} to {@link GridMap#MAX_COST}.
+     */
+    public void setTerrainBrush(int terrainBrush) {
+        this.terrainBrush = terrainBrush;
+    }
+
+    /**
+     * Sets what to call after the zoom has changed.
+     *
+     * @param zoomListener The listener, or null for none.
+     */
+    public void setZoomListener(Runnable zoomListener) {
+        this.zoomListener = zoomListener;
+    }
+
+    /**
+     * Repaints the edited cells and tells the listener about the edit.
+     *
+     * @param minX The smallest x position edited.
+     * @param minY The smallest y position edited.
+     * @param maxX The largest x position edited.
+     * @param maxY The largest y position edited.
+     */
+    private void edited(int minX, int minY, int maxX, int maxY) {
+        repaintCells(minX, minY, maxX, maxY);
+
+        if (editListener != null) {
+            editListener.run();
+        }
+    }
+
+    /**
+     * Repaints the area holding the cells visited since the last frame.
+     */
+    private void repaintDirty() {
+        if (dirtyCount == 0) {
+            return;
+        }
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = 0, maxY = 0;
+        for (int i = 0; i < dirtyCount; i++) {
+            int x = map.getX(dirtyCells[i]), y = map.getY(dirtyCells[i]);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        repaintCells(minX, minY, maxX, maxY);
+    }
+
+    private void repaintCells(int minX, int minY, int maxX, int maxY) {
+        // The start and goal markers of overviews stick out of their pixel
+        int margin = zoom < 1 ? MARKER_SIZE : 0;
+        int realX = toPixel(minX) - margin, realY = toPixel(minY) - margin;
+
+        repaint(realX, realY, toPixel(maxX) + Math.max(1, zoom) + margin - realX,
+                toPixel(maxY) + Math.max(1, zoom) + margin - realY);
+    }
+
+    /**
+     * Gets the map storing the cells within this Grid.
+     *
+     * @return The map within the Grid.
+     */
+    public GridMap getMap() {
+        return map;
     }
 
     @Override
     public void mouseClicked(MouseEvent mouseEvent) {
-        // Convert the position to fit the 2d array
-        int x = mouseEvent.getX() / nodeSize;
-        int y = mouseEvent.getY() / nodeSize;
+        // Convert the position to fit the map
+        int x = toCell(mouseEvent.getX());
+        int y = toCell(mouseEvent.getY());
 
         // Ensure it fits
-        if (x >= nodes.length || y >= nodes[x].length) {
+        if (!map.inBounds(x, y)) {
+            return;
+        }
+
+        int cell = map.cellOf(x, y);
+
+        // Shift clicks paint the terrain cost with the left button and clear it with the right
+        if (mouseEvent.isShiftDown()) {
+            if (mouseEvent.getButton() == MouseEvent.BUTTON1 || mouseEvent.getButton() == MouseEvent.BUTTON3) {
+                map.setCost(cell, mouseEvent.getButton() == MouseEvent.BUTTON1 ? terrainBrush : GridMap.MIN_COST);
+                edited(x, y, x, y);
+            }
             return;
         }
 
         // Left click changes start node
         if (mouseEvent.getButton() == MouseEvent.BUTTON1) {
-            if (nodes[x][y] != startNode && nodes[x][y] != goalNode) {
-                startNode.setType(Node.NodeType.NORMAL);
-                startNode = nodes[x][y];
-                startNode.setType(Node.NodeType.START);
-                repaint();
+            if (cell != map.getStart() && cell != map.getGoal()) {
+                int previous = map.getStart();
+                map.setBlocked(cell, false);
+                map.setStart(cell);
+                repaintCells(map.getX(previous), map.getY(previous), map.getX(previous), map.getY(previous));
+                edited(x, y, x, y);
             }
             // Middle click changes whether or not the hovered node is blocked
         } else if (mouseEvent.getButton() == MouseEvent.BUTTON2) {
-            if (nodes[x][y] != startNode && nodes[x][y] != goalNode) {
-                if (nodes[x][y].getType() == Node.NodeType.BLOCKED) {
-                    nodes[x][y].setType(Node.NodeType.NORMAL);
-                } else {
-                    nodes[x][y].setType(Node.NodeType.BLOCKED);
-                }
-                repaint();
+            if (cell != map.getStart() && cell != map.getGoal()) {
+                map.setBlocked(cell, !map.isBlocked(cell));
+                edited(x, y, x, y);
             }
             // Right click changes the end node
         } else if (mouseEvent.getButton() == MouseEvent.BUTTON3) {
-            if (nodes[x][y] != goalNode && nodes[x][y] != startNode) {
-                goalNode.setType(Node.NodeType.NORMAL);
-                goalNode = nodes[x][y];
-                goalNode.setType(Node.NodeType.GOAL);
-                repaint();
+            if (cell != map.getGoal() && cell != map.getStart()) {
+                int previous = map.getGoal();
+                map.setBlocked(cell, false);
+                map.setGoal(cell);
+                repaintCells(map.getX(previous), map.getY(previous), map.getX(previous), map.getY(previous));
+                edited(x, y, x, y);
             }
         }
     }
@@ -313,32 +867,34 @@ public class Grid extends JPanel implements MouseListener, MouseMotionListener {
             int currentX = event.getX();
             int currentY = event.getY();
 
-            int startX = Math.min(currentX, dragStartX) / nodeSize;
-            int startY = Math.min(currentY, dragStartY) / nodeSize;
+            int startX = Math.max(0, toCell(Math.min(currentX, dragStartX)));
+            int startY = Math.max(0, toCell(Math.min(currentY, dragStartY)));
+
+            int endX = Math.min(map.getWidth() - 1, toCell(Math.max(currentX, dragStartX)));
+            int endY = Math.min(map.getHeight() - 1, toCell(Math.max(currentY, dragStartY)));
 
-            int endX = Math.max(currentX, dragStartX) / nodeSize;
-            int endY = Math.max(currentY, dragStartY) / nodeSize;
+            if (startX > endX || startY > endY) {
+                return;
+            }
 
             for (int x = startX; x <= endX; x++) {
                 for (int y = startY; y <= endY; y++) {
+                    int cell = map.cellOf(x, y);
 
-                    if (x < 0 || y < 0 || x >= nodes.length || y >= nodes[x].length) {
-                        break;
+                    if (event.isShiftDown()) {
+                        map.setCost(cell, draggedButton == MouseEvent.BUTTON1 ? terrainBrush : GridMap.MIN_COST);
+                        continue;
                     }
 
-                    if (nodes[x][y] == startNode || nodes[x][y] == goalNode) {
+                    if (cell == map.getStart() || cell == map.getGoal()) {
                         continue;
                     }
 
-                    if (draggedButton == MouseEvent.BUTTON1) {
-                        nodes[x][y].setType(Node.NodeType.BLOCKED);
-                    } else {
-                        nodes[x][y].setType(Node.NodeType.NORMAL);
-                    }
+                    map.setBlocked(cell, draggedButton == MouseEvent.BUTTON1);
                 }
             }
 
-            repaint();
+            edited(startX, startY, endX, endY);
         }
 
     }
@@ -372,5 +928,17 @@ public class Grid extends JPanel implements MouseListener, MouseMotionListener {
 
     }
 
-}
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent event) {
+        if (!event.isControlDown()) {
+            // Let the scroll pane scroll
+            getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, event, getParent()));
+            return;
+        }
+
+        // Larger nodes zoom in larger steps so zooming takes about as long at any zoom
+        int step = zoom > 1 ? Math.max(1, zoom / 8) : 1;
+        setZoom(zoom - event.getWheelRotation() * step, event.getPoint());
+    }
 
+}
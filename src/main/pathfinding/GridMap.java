@@ -0,0 +1,640 @@
+package main.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A headless model of a grid that the path finding algorithms are ran against.
+ * <p>
+ * Cells are addressed either by their x and y position or by a single cell id, where {@code id = y * width + x}.
+ * Blocked cells are stored as a bit set, one bit per cell, so that even very large maps only take a few bytes per cell
+ * once the search state is included. The map holds no Swing state so that it can be searched without a visible
+ * {@link Grid}.
+ * <p>
+ * Each cell also keeps an 8-bit successor mask, one bit per direction that leads to an open cell on the map, so that
+ * neighbors can be expanded without any bounds checks or allocations. The masks are updated incrementally whenever a
+ * cell is blocked or unblocked.
+ * <p>
+ * Open cells can also have a terrain cost from {@link #MIN_COST} to {@link #MAX_COST}, stored as a byte per cell. Maps
+ * only store the costs once a cell is given a cost other than the minimum, so maps without terrain cost nothing extra.
+ * <p>
+ * Copies share the cells of the map they were copied from until either of them is edited, the map edited first copies
+ * the cells then. Taking a snapshot of a map before searching it therefore costs nothing unless the map is edited while
+ * the snapshot is still around.
+ *
+ * @author Matthew Lillie
+ */
+public class GridMap {
+
+    /**
+     * The successor mask bits of the straight directions, the directions are ordered clockwise starting from north so
+     * that even bits are straight moves and odd bits are diagonal moves.
+     */
+    public static final int STRAIGHT_DIRECTIONS = 0x55;
+
+    /**
+     * The successor mask bits of every direction.
+     */
+    public static final int ALL_DIRECTIONS = 0xFF;
+
+    /**
+     * The lowest and highest terrain cost of a cell.
+     */
+    public static final int MIN_COST = 1;
+    public static final int MAX_COST = 255;
+
+    /**
+     * The x and y offsets of each direction.
+     */
+    private static final int[] DIRECTION_X = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DIRECTION_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    /**
+     * The dimensions of the map in cells.
+     */
+    private final int width, height;
+
+    /**
+     * Whether or not each cell is blocked, one bit per cell id.
+     */
+    private long[] blocked;
+
+    /**
+     * The successor mask of each cell, indexed by cell id.
+     */
+    private byte[] successors;
+
+    /**
+     * The unsigned terrain cost of each cell, indexed by cell id, or null while every cell has the minimum cost.
+     */
+    private byte[] costs;
+
+    /**
+     * Whether or not the arrays of the cells may be shared with a copy of the map, they are copied before being edited
+     * if so.
+     */
+    private boolean shared;
+
+    /**
+     * The cell id offset of each direction.
+     */
+    private final int[] directionOffsets;
+
+    /**
+     * The start and goal cells.
+     */
+    private int start, goal;
+
+    /**
+     * Incremented every time the blocked cells or terrain costs change, used to tell if data derived from the map is out of date.
+     */
+    private int version;
+
+    /**
+     * The areas edited between recent versions, shared with copies of the map until either is edited.
+     */
+    private EditHistory history;
+
+    /**
+     * Constructs a new map where every cell is open, with the start in the top left and the goal in the bottom right.
+     *
+     * @param width  The width of the map.
+     * @param height The height of the map.
+     */
+    public GridMap(int width, int height) {
+        this(width, height, new long[getWordCount(width, height)]);
+    }
+
+    /**
+     * Constructs a new map from its blocked cells, with the start in the top left and the goal in the bottom right.
+     *
+     * @param width   The width of the map.
+     * @param height  The height of the map.
+     * @param blocked Whether or not each cell is blocked, one bit per cell id in the same layout as
+     *                {@link #isBlocked(int)}. The array is used by the map directly.
+     */
+    public GridMap(int width, int height, long[] blocked) {
+        if (blocked.length != getWordCount(width, height)) {
+            throw new IllegalArgumentException("Expected " + getWordCount(width, height) + " words but got "
+                    + blocked.length);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.blocked = blocked;
+        this.successors = new byte[width * height];
+        this.directionOffsets = new int[8];
+        this.start = 0;
+        this.goal = width * height - 1;
+        this.history = new EditHistory(0);
+
+        for (int direction = 0; direction < 8; direction++) {
+            directionOffsets[direction] = DIRECTION_Y[direction] * width + DIRECTION_X[direction];
+        }
+
+        rebuildSuccessors();
+    }
+
+    /**
+     * Gets the amount of longs needed to hold one bit for every cell of a map.
+     *
+     * @param width  The width of the map.
+     * @param height The height of the map.
+     * @return The amount of longs.
+     */
+    public static int getWordCount(int width, int height) {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 63) {
+            throw new IllegalArgumentException("Invalid map size: " + width + "x" + height);
+        }
+
+        return (width * height + 63) >>> 6;
+    }
+
+    /**
+     * Constructs a copy of another map, sharing its cells until either map is edited. Must not be called while the other
+     * map is being edited on another thread.
+     *
+     * @param other The map to copy.
+     */
+    public GridMap(GridMap other) {
+        other.shared = true;
+
+        this.width = other.width;
+        this.height = other.height;
+        this.blocked = other.blocked;
+        this.successors = other.successors;
+        this.costs = other.costs;
+        this.shared = true;
+        this.directionOffsets = other.directionOffsets;
+        this.start = other.start;
+        this.goal = other.goal;
+        this.version = other.version;
+        this.history = other.history;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the total amount of cells within the map.
+     *
+     * @return The amount of cells.
+     */
+    public int getCellCount() {
+        return width * height;
+    }
+
+    /**
+     * Converts a position into a cell id.
+     *
+     * @param x The x position.
+     * @param y The y position.
+     * @return The cell id.
+     */
+    public int cellOf(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Gets the x position of a cell.
+     *
+     * @param cell The cell id.
+     * @return The x position.
+     */
+    public int getX(int cell) {
+        return cell % width;
+    }
+
+    /**
+     * Gets the y position of a cell.
+     *
+     * @param cell The cell id.
+     * @return The y position.
+     */
+    public int getY(int cell) {
+        return cell / width;
+    }
+
+    /**
+     * Checks if a position lies within the map.
+     *
+     * @param x The x position.
+     * @param y The y position.
+     * @return True if the position is on the map.
+     */
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * Checks if a cell is blocked.
+     *
+     * @param cell The cell id.
+     * @return True if the cell is blocked.
+     */
+    public boolean isBlocked(int cell) {
+        return (blocked[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Checks if a position is blocked.
+     *
+     * @param x The x position.
+     * @param y The y position.
+     * @return True if the position is blocked.
+     */
+    public boolean isBlocked(int x, int y) {
+        return isBlocked(cellOf(x, y));
+    }
+
+    /**
+     * Sets whether or not a cell is blocked.
+     *
+     * @param cell    The cell id.
+     * @param blocked True if the cell should be blocked.
+     */
+    public void setBlocked(int cell, boolean blocked) {
+        if (isBlocked(cell) == blocked) {
+            return;
+        }
+
+        unshare();
+        if (blocked) {
+            this.blocked[cell >>> 6] |= 1L << cell;
+        } else {
+            this.blocked[cell >>> 6] &= ~(1L << cell);
+        }
+
+        int x = getX(cell);
+        int y = getY(cell);
+        edited(x, y, x, y);
+
+        // Only the neighbors pointing back at this cell need their masks updated
+        for (int direction = 0; direction < 8; direction++) {
+            if (!inBounds(x + DIRECTION_X[direction], y + DIRECTION_Y[direction])) {
+                continue;
+            }
+
+            int neighbor = cell + directionOffsets[direction];
+            int backBit = 1 << ((direction + 4) & 7);
+
+            if (blocked) {
+                successors[neighbor] &= ~backBit;
+            } else {
+                successors[neighbor] |= backBit;
+            }
+        }
+    }
+
+    /**
+     * Sets whether or not a position is blocked.
+     *
+     * @param x       The x position.
+     * @param y       The y position.
+     * @param blocked True if the position should be blocked.
+     */
+    public void setBlocked(int x, int y, boolean blocked) {
+        setBlocked(cellOf(x, y), blocked);
+    }
+
+    /**
+     * Sets whether or not every cell is blocked.
+     *
+     * @param blocked True if every cell should be blocked.
+     */
+    public void fill(boolean blocked) {
+        unshare();
+        Arrays.fill(this.blocked, blocked ? -1L : 0L);
+        rebuildSuccessors();
+        edited(0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Gets the terrain cost of a cell.
+     *
+     * @param cell The cell id.
+     * @return The cost, from {@link #MIN_COST} to {@link #MAX_COST}.
+     */
+    public int getCost(int cell) {
+        return costs == null ? MIN_COST : costs[cell] & 0xFF;
+    }
+
+    /**
+     * Sets the terrain cost of a cell.
+     *
+     * @param cell The cell id.
+     * @param cost The cost, from {@link #MIN_COST} to {@link #MAX_COST}.
+     */
+    public void setCost(int cell, int cost) {
+        if (cost < MIN_COST || cost > MAX_COST) {
+            throw new IllegalArgumentException("Invalid terrain cost: " + cost);
+        }
+
+        if (getCost(cell) == cost) {
+            return;
+        }
+
+        unshare();
+        if (costs == null) {
+            costs = new byte[width * height];
+            Arrays.fill(costs, (byte) MIN_COST);
+        }
+
+        costs[cell] = (byte) cost;
+        edited(getX(cell), getY(cell), getX(cell), getY(cell));
+    }
+
+    /**
+     * Checks if the map stores terrain costs, which it does from the first time a cell is given a cost other than the
+     * minimum until the costs are cleared.
+     *
+     * @return True if cells can have different costs.
+     */
+    public boolean isWeighted() {
+        return costs != null;
+    }
+
+    /**
+     * Gets a copy of every terrain cost at once.
+     *
+     * @return The unsigned cost of each cell indexed by cell id, or null if the map is not weighted.
+     */
+    public byte[] getAllCosts() {
+        return costs == null ? null : costs.clone();
+    }
+
+    /**
+     * Replaces every terrain cost at once.
+     *
+     * @param costs The unsigned cost of each cell indexed by cell id, used by the map directly, or null to give every
+     *              cell the minimum cost.
+     */
+    public void setAllCosts(byte[] costs) {
+        if (costs != null) {
+            if (costs.length != width * height) {
+                throw new IllegalArgumentException("Expected " + width * height + " costs but got " + costs.length);
+            }
+
+            for (byte cost : costs) {
+                if ((cost & 0xFF) < MIN_COST) {
+                    throw new IllegalArgumentException("Invalid terrain cost: " + (cost & 0xFF));
+                }
+            }
+        } else if (this.costs == null) {
+            return;
+        }
+
+        this.costs = costs;
+        edited(0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Gets a copy of every blocked cell at once.
+     *
+     * @return Whether or not each cell is blocked, one bit per cell id in the same layout as {@link #isBlocked(int)}.
+     */
+    public long[] getAllBlocked() {
+        return blocked.clone();
+    }
+
+    /**
+     * Replaces every blocked cell at once, which is much faster than blocking cells one at a time on large maps.
+     *
+     * @param blocked Whether or not each cell is blocked, one bit per cell id in the same layout as
+     *                {@link #isBlocked(int)}.
+     */
+    public void setAllBlocked(long[] blocked) {
+        if (blocked.length != this.blocked.length) {
+            throw new IllegalArgumentException("Expected " + this.blocked.length + " words but got " + blocked.length);
+        }
+
+        unshare();
+        System.arraycopy(blocked, 0, this.blocked, 0, blocked.length);
+        rebuildSuccessors();
+        edited(0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Copies the arrays of the cells if they may be shared with a copy, so that editing the map leaves the copy alone.
+     */
+    private void unshare() {
+        if (!shared) {
+            return;
+        }
+
+        blocked = blocked.clone();
+        successors = successors.clone();
+        if (costs != null) {
+            costs = costs.clone();
+        }
+        shared = false;
+    }
+
+    /**
+     * Moves the map to its next version after an area has been edited.
+     *
+     * @param minX The smallest x position edited.
+     * @param minY The smallest y position edited.
+     * @param maxX The largest x position edited.
+     * @param maxY The largest y position edited.
+     */
+    private void edited(int minX, int minY, int maxX, int maxY) {
+        if (!history.record(version, minX, minY, maxX, maxY)) {
+            // A copy sharing the history was edited first
+            history = new EditHistory(version);
+            history.record(version, minX, minY, maxX, maxY);
+        }
+        version++;
+    }
+
+    /**
+     * Recalculates the successor mask of every cell.
+     */
+    private void rebuildSuccessors() {
+        for (int y = 0; y < height; y++) {
+            boolean innerRow = y > 0 && y < height - 1;
+
+            for (int x = 0; x < width; x++) {
+                int cell = cellOf(x, y);
+                int mask = 0;
+
+                if (innerRow && x > 0 && x < width - 1) {
+                    // Every neighbor is on the map, no bounds checks needed
+                    for (int direction = 0; direction < 8; direction++) {
+                        if (!isBlocked(cell + directionOffsets[direction])) {
+                            mask |= 1 << direction;
+                        }
+                    }
+                } else {
+                    for (int direction = 0; direction < 8; direction++) {
+                        int nextX = x + DIRECTION_X[direction];
+                        int nextY = y + DIRECTION_Y[direction];
+
+                        if (inBounds(nextX, nextY) && !isBlocked(nextX, nextY)) {
+                            mask |= 1 << direction;
+                        }
+                    }
+                }
+
+                successors[cell] = (byte) mask;
+            }
+        }
+    }
+
+    /**
+     * Gets the successor mask of a cell, bit {@code d} is set if moving in direction {@code d} leads to an open cell.
+     *
+     * @param cell The cell id.
+     * @return The successor mask.
+     */
+    public int getSuccessors(int cell) {
+        return successors[cell] & ALL_DIRECTIONS;
+    }
+
+    /**
+     * Gets the cell id offset of moving in a direction.
+     *
+     * @param direction The direction, between 0 and 7.
+     * @return The amount to add to a cell id to move in that direction.
+     */
+    public int getDirectionOffset(int direction) {
+        return directionOffsets[direction];
+    }
+
+    /**
+     * Writes the open neighbors of a cell into an array.
+     *
+     * @param cell      The cell id.
+     * @param diagonal  Whether or not diagonal neighbors are included.
+     * @param neighbors The array to write the neighbors into, must have room for 8 cells.
+     * @return The amount of neighbors written.
+     */
+    public int getNeighbors(int cell, boolean diagonal, int[] neighbors) {
+        return diagonal ? getNeighbors8(cell, neighbors) : getNeighbors4(cell, neighbors);
+    }
+
+    /**
+     * Writes the open straight neighbors of a cell into an array.
+     *
+     * @param cell      The cell id.
+     * @param neighbors The array to write the neighbors into.
+     * @return The amount of neighbors written.
+     */
+    private int getNeighbors4(int cell, int[] neighbors) {
+        int mask = successors[cell];
+        int count = 0;
+
+        if ((mask & 0x01) != 0) {
+            neighbors[count++] = cell - width;
+        }
+        if ((mask & 0x04) != 0) {
+            neighbors[count++] = cell + 1;
+        }
+        if ((mask & 0x10) != 0) {
+            neighbors[count++] = cell + width;
+        }
+        if ((mask & 0x40) != 0) {
+            neighbors[count++] = cell - 1;
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes the open straight and diagonal neighbors of a cell into an array.
+     *
+     * @param cell      The cell id.
+     * @param neighbors The array to write the neighbors into.
+     * @return The amount of neighbors written.
+     */
+    private int getNeighbors8(int cell, int[] neighbors) {
+        int mask = successors[cell] & ALL_DIRECTIONS;
+        int count = 0;
+
+        while (mask != 0) {
+            neighbors[count++] = cell + directionOffsets[Integer.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+        }
+
+        return count;
+    }
+
+    /**
+     * Checks if moving between two neighboring cells is a diagonal move.
+     *
+     * @param one The first cell.
+     * @param two The second cell.
+     * @return True if the move is diagonal.
+     */
+    public boolean isDiagonal(int one, int two) {
+        int delta = Math.abs(two - one);
+        // A delta of one is a diagonal on maps two cells wide, so fall back to comparing rows
+        return delta != width && (delta != 1 || getY(one) != getY(two));
+    }
+
+    /**
+     * Gets the version of the cells, which changes whenever a cell is blocked, unblocked or given a new terrain cost.
+     *
+     * @return The version of the map.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the history of recent edits, which together with {@link #getVersion()} tells which areas changed since data
+     * was derived from the map.
+     *
+     * @return The edit history.
+     */
+    public EditHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Checks if a position is on the map and not blocked.
+     *
+     * @param x The x position.
+     * @param y The y position.
+     * @return True if the position can be walked on.
+     */
+    public boolean isWalkable(int x, int y) {
+        return inBounds(x, y) && !isBlocked(cellOf(x, y));
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    public void setGoal(int goal) {
+        this.goal = goal;
+    }
+
+    /**
+     * Gets the type of a cell, used for drawing and saving the map.
+     *
+     * @param cell The cell id.
+     * @return The type of the cell.
+     */
+    public CellType getType(int cell) {
+        if (cell == start) {
+            return CellType.START;
+        } else if (cell == goal) {
+            return CellType.GOAL;
+        }
+        return isBlocked(cell) ? CellType.BLOCKED : CellType.NORMAL;
+    }
+
+}
@@ -13,6 +13,11 @@ import java.io.IOException;
  */
 public class Main {
 
+    /**
+     * How many pixels the grid scrolls for each step of the scroll bars or the mouse wheel.
+     */
+    private static final int SCROLL_INCREMENT = 16;
+
     private static final String HELP_MESSAGE =
             "Move the starting location (green) to a point by left clicking. \n " +
                     "Move the goal location (red) to a point by right clicking. \n " +
@@ -20,6 +25,9 @@ public class Main {
                     "Blocked locations can be removed by pressing middle mouse or right click dragging. \n" +
                     "Blue colored rects will form once the algorithm runs which displays the amount a node has been visited.\n" +
                     "The more a node gets visited (though not necessarily processed), the darker and more filled it will be.\n" +
+                    "Hold shift while left dragging to paint the terrain cost chosen in the settings, or while right dragging\n" +
+                    "to clear it. Moves cost more the more the cells they are between cost, shown in darker brown.\n" +
+                    "Scroll to move around the grid, hold control while scrolling to zoom.\n" +
                     "If using IDA*, you may find better results with diagonals NOT allowed.";
 
     public static void main(String[] args) throws ClassNotFoundException, UnsupportedLookAndFeelException, InstantiationException, IllegalAccessException {
@@ -29,7 +37,7 @@ public class Main {
             JFrame frame = new JFrame("Pathfinding Visualizer");
             // Basic layout and options
             frame.setSize(900, 600);
-            frame.setResizable(false);
+            frame.setResizable(true);
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
             frame.setLayout(new BorderLayout());
 
@@ -37,7 +45,12 @@ public class Main {
             Grid grid = new Grid();
             Settings settings = new Settings(grid);
 
-            frame.add(grid, BorderLayout.CENTER);
+            // The grid can be far larger than the window, scroll around it
+            JScrollPane gridPane = new JScrollPane(grid);
+            gridPane.getHorizontalScrollBar().setUnitIncrement(SCROLL_INCREMENT);
+            gridPane.getVerticalScrollBar().setUnitIncrement(SCROLL_INCREMENT);
+
+            frame.add(gridPane, BorderLayout.CENTER);
             frame.add(settings, BorderLayout.SOUTH);
 
             // Create menu bar.
@@ -46,6 +59,28 @@ public class Main {
             menuBar.add(fileMenu);
 
             // Buttons
+            JButton newButton = new JButton("New");
+            newButton.addActionListener(actionEvent -> {
+                GridMap current = grid.getMap();
+                String size = JOptionPane.showInputDialog(null, "Width and height of the new grid:",
+                        current.getWidth() + "x" + current.getHeight());
+                if (size == null) {
+                    return;
+                }
+
+                String[] parts = size.trim().split("[xX,\\s]+");
+                try {
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("Expected a width and height: " + size);
+                    }
+
+                    grid.setMap(new GridMap(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])));
+                    grid.repaint();
+                } catch (IllegalArgumentException e) {
+                    JOptionPane.showMessageDialog(null, "Invalid grid size!", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+
             JButton saveButton = new JButton("Save");
             saveButton.addActionListener(actionEvent -> {
                 try {
@@ -59,12 +94,13 @@ public class Main {
 
             loadButton.addActionListener(actionEvent -> {
                 try {
-                    LoadingSaving.loadGrid(grid, settings);
+                    LoadingSaving.loadGrid(grid);
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
             });
 
+            fileMenu.add(newButton);
             fileMenu.add(saveButton);
             fileMenu.add(loadButton);
 
@@ -1,45 +1,35 @@
 package main.pathfinding;
 
-import java.util.Random;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
- * Generates a random maze using recursive backtracking.
+ * Generates a random maze using iterative backtracking.
+ * <p>
+ * Maze cells sit on odd positions with the walls between them on even positions. Instead of recursing, each maze cell
+ * remembers the direction it was entered from so the generator can walk back along the path once it reaches a dead end.
+ * The maze is built in a bit set and written into the {@link GridMap} in one go, so the generation only needs a bit and
+ * a byte per maze cell and a 10000x10000 map takes a few seconds.
  *
  * @author Matthew Lillie
  */
 public class Maze {
 
     /**
-     * The possible directions that we can do in.
+     * The x and y offsets between maze cells in each direction: north, east, south and west.
      */
-    private enum Directions {
-        NORTH(0, 2), SOUTH(0, -2), EAST(2, 0), WEST(-2, 0);
-
-        private final int dx, dy;
-
-        Directions(int dx, int dy) {
-            this.dx = dx;
-            this.dy = dy;
-        }
-
-        public int getDx() {
-            return dx;
-        }
-
-        public int getDy() {
-            return dy;
-        }
-    }
+    private static final int[] DIRECTION_X = {0, 2, 0, -2};
+    private static final int[] DIRECTION_Y = {-2, 0, 2, 0};
 
     /**
-     * The random generator
+     * Marks a maze cell that has not been visited, any other value is the direction it was entered in plus one.
      */
-    private static final Random RANDOM = new Random();
+    private static final byte UNVISITED = 0;
 
     /**
-     * Node used to set the end point for the randomly generated maze/
+     * Marks the first maze cell, which was not entered from anywhere.
      */
-    private static Node lastVisitedNode;
+    private static final byte ROOT = 5;
 
     /**
      * Generates a random maze using the given grid.
@@ -47,122 +37,107 @@ public class Maze {
      * @param grid The grid to generate the maze on.
      */
     public static void generateMaze(Grid grid) {
-        // Initialize the nodes and have them all be blocked
-        int width = grid.getWidth() / grid.getNodeSize();
-        int height = grid.getHeight() / grid.getNodeSize();
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                grid.getNodes()[x][y].setType(Node.NodeType.BLOCKED);
-            }
-        }
-
-        int startX = 1;
-        int startY = 1;
-
-        // Generate the maze
-        generateHelper(grid, startX, startY, width, height);
-
-        // Reset visited and update the start, goal, etc
-        for (Node[] nodes1 : grid.getNodes()) {
-            for (Node node : nodes1) {
-                node.setTimesVisited(0);
-            }
-        }
-
-        grid.getNodes()[startX][startY].setType(Node.NodeType.START);
-        lastVisitedNode.setType(Node.NodeType.GOAL);
-
-        grid.setStartNode(grid.getNodes()[startX][startY]);
-        grid.setGoalNode(lastVisitedNode);
+        generateMaze(grid.getMap());
 
         // Repaint
         grid.repaint();
     }
 
     /**
-     * Recursive helper for generating the random maze.
+     * Generates a random maze on the given map, moving the start and goal onto the maze.
      *
-     * @param grid     The grid
-     * @param currentX The current x
-     * @param currentY The current y
-     * @param width    The width of the nodes
-     * @param height   The height of the nodes
+     * @param map The map to generate the maze on.
      */
-    private static void generateHelper(Grid grid, int currentX, int currentY, int width, int height) {
-        if (currentX >= 1 && currentY >= 1 && currentX < width - 1 && currentY < height - 1) {
-            Node[][] nodes = grid.getNodes();
-            Node current = nodes[currentX][currentY];
-
-            // Update last visited
-            lastVisitedNode = current;
-
-            // Set visited
-            current.incrementTimesVisited();
-
-            while (hasUnvisitedNeighbors(nodes, current, width, height)) {
-                while (true) {
-                    Directions direction = Directions.values()[RANDOM.nextInt(Directions.values().length)];
-
-                    int nextX = currentX + direction.getDx();
-                    int nextY = currentY + direction.getDy();
-                    if (nextX >= 1 && nextY >= 1 && nextX < width - 1 && nextY < height - 1) {
-                        if (nodes[nextX][nextY].getTimesVisited() == 0) {
-                            // Connect the current node to the node between
-                            nodes[currentX][currentY].setType(Node.NodeType.NORMAL);
-                            int betweenX = (nextX - currentX) / 2;
-                            int betweenY = (nextY - currentY) / 2;
-                            nodes[currentX + betweenX][currentY + betweenY].setType(Node.NodeType.NORMAL);
-                            // Recursively go to the next
-                            generateHelper(grid, nextX, nextY, width, height);
-                            break;
-                        }
-                    }
-                }
-            }
-        }
+    public static void generateMaze(GridMap map) {
+        generateMaze(map, System.nanoTime());
     }
 
     /**
-     * Checks to see if any neighbors have not been visited
+     * Generates a maze on the given map, moving the start and goal onto the maze. The same seed always creates the same
+     * maze on a map of the same size.
      *
-     * @param nodes   The nodes on the grid
-     * @param current The current node
-     * @param width   The width of the grid
-     * @param height  He height of the grid
-     * @return True if any neighbors have not been visited
+     * @param map  The map to generate the maze on.
+     * @param seed The seed of the random generator.
      */
-    private static boolean hasUnvisitedNeighbors(Node[][] nodes, Node current, int width, int height) {
-        int currentX = current.getX();
-        int currentY = current.getY();
-
-        //Check north
-        if (currentY + 2 < height - 1) {
-            if (nodes[currentX][currentY + 2].getTimesVisited() == 0) {
-                return true;
-            }
+    public static void generateMaze(GridMap map, long seed) {
+        int width = map.getWidth();
+        int height = map.getHeight();
+
+        // The amount of maze cells along each axis
+        int mazeWidth = (width - 1) / 2;
+        int mazeHeight = (height - 1) / 2;
+
+        if (mazeWidth == 0 || mazeHeight == 0) {
+            // Too small to fit a maze, leave the map open
+            map.fill(false);
+            map.setStart(0);
+            map.setGoal(map.getCellCount() - 1);
+            return;
         }
 
-        //Check south
-        if (currentY - 2 >= 1) {
-            if (nodes[currentX][currentY - 2].getTimesVisited() == 0) {
-                return true;
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // Have all the cells be blocked
+        long[] blocked = new long[GridMap.getWordCount(width, height)];
+        Arrays.fill(blocked, -1L);
+
+        byte[] enteredFrom = new byte[mazeWidth * mazeHeight];
+        int[] candidates = new int[4];
+
+        int x = 1;
+        int y = 1;
+        int lastVisited = map.cellOf(x, y);
+        enteredFrom[0] = ROOT;
+        open(blocked, lastVisited);
+
+        while (true) {
+            int mazeCell = (y / 2) * mazeWidth + x / 2;
+
+            // Pick a random direction out of the ones leading to unvisited maze cells
+            int count = 0;
+            for (int direction = 0; direction < 4; direction++) {
+                int nextX = x + DIRECTION_X[direction];
+                int nextY = y + DIRECTION_Y[direction];
+
+                if (nextX >= 1 && nextY >= 1 && nextX < width - 1 && nextY < height - 1
+                        && enteredFrom[(nextY / 2) * mazeWidth + nextX / 2] == UNVISITED) {
+                    candidates[count++] = direction;
+                }
             }
-        }
 
-        //Check east
-        if (currentX + 2 < width - 1) {
-            if (nodes[currentX + 2][currentY].getTimesVisited() == 0) {
-                return true;
+            if (count == 0) {
+                // Dead end, walk back the way we came until there is somewhere new to go
+                byte direction = enteredFrom[mazeCell];
+                if (direction == ROOT) {
+                    break;
+                }
+
+                x -= DIRECTION_X[direction - 1];
+                y -= DIRECTION_Y[direction - 1];
+                continue;
             }
-        }
 
-        //Check west
-        if (currentX - 2 >= 1) {
-            return nodes[currentX - 2][currentY].getTimesVisited() == 0;
+            int direction = candidates[random.nextInt(count)];
+
+            // Connect the current cell to the next through the wall between them
+            open(blocked, map.cellOf(x + DIRECTION_X[direction] / 2, y + DIRECTION_Y[direction] / 2));
+            x += DIRECTION_X[direction];
+            y += DIRECTION_Y[direction];
+
+            enteredFrom[(y / 2) * mazeWidth + x / 2] = (byte) (direction + 1);
+            lastVisited = map.cellOf(x, y);
+            open(blocked, lastVisited);
         }
 
-        return false;
+        map.setAllBlocked(blocked);
+
+        // Update the start, goal, etc
+        map.setStart(map.cellOf(1, 1));
+        map.setGoal(lastVisited);
+    }
+
+    private static void open(long[] blocked, int cell) {
+        blocked[cell >>> 6] &= ~(1L << cell);
     }
 
 }
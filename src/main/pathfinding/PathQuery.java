@@ -0,0 +1,32 @@
+package main.pathfinding;
+
+/**
+ * A single start and goal pair to be searched as part of a batch by a {@link BatchPathfinder}.
+ *
+ * @author Matthew Lillie
+ */
+public class PathQuery {
+
+    /**
+     * The start and goal cells.
+     */
+    private final int start, goal;
+
+    public PathQuery(int start, int goal) {
+        this.start = start;
+        this.goal = goal;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    @Override
+    public String toString() {
+        return start + " -> " + goal;
+    }
+}
@@ -1,26 +1,21 @@
 package main.pathfinding;
 
-import javax.swing.*;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.ExecutionException;
+import main.pathfinding.impl.Heuristics;
 
 /**
  * Abstract class to represent a way to find a path.
  * <p>
- * Extends the SwingWorker class so that the path finding algorithm being ran can be executed on a separate thread.
+ * Path finders are headless, they search a {@link GridMap} and report back through a {@link SearchResult}. The visualizer
+ * runs them through a {@link SearchWorker} and listens for progress with a {@link SearchListener}.
  *
  * @author Matthew Lillie
  */
-public abstract class Pathfinder extends SwingWorker<List<Node>, Object> {
+public abstract class Pathfinder {
 
     /**
-     * The Grid being used for the algorithm.
+     * The result returned when no path could be found.
      */
-    protected final Grid grid;
+    protected static final int[] NO_PATH = new int[0];
 
     /**
      * Whether or not we can move diagonally.
@@ -30,93 +25,126 @@ public abstract class Pathfinder extends SwingWorker<List<Node>, Object> {
     /**
      * Constructs a new Pathfinder
      *
-     * @param grid             The Grid used for the algorithm.
      * @param diagonalMovement If the neighbors found are allowed to be diagonal
      */
-    public Pathfinder(Grid grid, boolean diagonalMovement) {
-        this.grid = grid;
+    public Pathfinder(boolean diagonalMovement) {
         this.diagonalMovement = diagonalMovement;
     }
 
     /**
-     * Constructs a path that back traces from the goal Node to the start node.
+     * Finds a path at full speed without reporting any progress.
      *
-     * @return A path from the start Node to the goal Node.
+     * @param map   The map to search.
+     * @param start The start cell.
+     * @param goal  The goal cell.
+     * @return The result of the search.
      */
-    protected List<Node> constructPath() {
-        List<Node> path = new ArrayList<>();
+    public SearchResult findPath(GridMap map, int start, int goal) {
+        return findPath(map, start, goal, SearchListener.NONE);
+    }
 
-        Node current = grid.getGoalNode();
+    /**
+     * Finds a path from the start cell to the goal cell.
+     *
+     * @param map      The map to search.
+     * @param start    The start cell.
+     * @param goal     The goal cell.
+     * @param listener The listener notified of the search progress.
+     * @return The result of the search.
+     */
+    public SearchResult findPath(GridMap map, int start, int goal, SearchListener listener) {
+        SearchStatistics statistics = new SearchStatistics();
+        statistics.start();
 
-        while (current != null) {
-            path.add(0, current);
+        // Goals in another component of the map are rejected without searching
+        int[] path = ComponentIndex.get(map, diagonalMovement).isReachable(map, start, goal)
+                ? search(map, start, goal, listener, statistics) : NO_PATH;
 
-            if (current == grid.getStartNode()) {
-                break;
-            }
+        float cost = 0f;
+        for (int i = 1; i < path.length; i++) {
+            cost += getMovementCost(map, path[i - 1], path[i]);
+        }
+
+        statistics.finish(path.length, cost);
+        return new SearchResult(path, cost, statistics);
+    }
 
-            current = current.getParent();
+    /**
+     * Runs the algorithm.
+     *
+     * @param map        The map to search.
+     * @param start      The start cell.
+     * @param goal       The goal cell.
+     * @param listener   The listener notified of the search progress.
+     * @param statistics The statistics to record the work done into.
+     * @return The path found from the start cell to the goal cell, or {@link #NO_PATH} if there is none.
+     */
+    protected abstract int[] search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics);
+
+    /**
+     * Constructs a path that back traces from the goal cell to the start cell.
+     *
+     * @param parents The parent of each cell, indexed by cell id.
+     * @param start   The start cell.
+     * @param goal    The goal cell.
+     * @return A path from the start cell to the goal cell.
+     */
+    protected int[] constructPath(int[] parents, int start, int goal) {
+        int length = 1;
+        for (int current = goal; current != start; current = parents[current]) {
+            length++;
+        }
+
+        int[] path = new int[length];
+        int current = goal;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = current;
+            current = parents[current];
         }
 
         return path;
     }
 
     /**
-     * Calculates the neighbors of the current node in 8 directions. Will exclude blocked nodes.
+     * Calculates the neighbors of the current cell using the precomputed successor masks of the map. Will exclude blocked
+     * cells, and only includes diagonals if diagonal movement is allowed.
      *
-     * @param current The current node looked at.
-     * @return A HashSet of all the valid neighbors.
+     * @param map       The map being searched.
+     * @param current   The current cell looked at.
+     * @param neighbors The array to write the neighbors into, must have room for 8 cells.
+     * @return The amount of valid neighbors written.
      */
-    protected Set<Node> getNeighbors(Node current) {
-        Set<Node> neighbors = new HashSet<>();
-        for (int dx = -1; dx <= 1; dx++) {
-            for (int dy = -1; dy <= 1; dy++) {
-                // Skip the current node
-                if (dx == 0 && dy == 0) {
-                    continue;
-                }
-
-                // Skip diagonals if needed
-                if (!diagonalMovement && dx != 0 && dy != 0) {
-                    continue;
-                }
-
-                int x = current.getX() + dx;
-                int y = current.getY() + dy;
-
-                // Skip nodes off the grid
-                if (x < 0 || y < 0 || grid.getNodes().length <= x || grid.getNodes()[x].length <= y) {
-                    continue;
-                }
-
-                // Skip blocked nodes
-                if (grid.getNodes()[x][y].getType() == Node.NodeType.BLOCKED) {
-                    continue;
-                }
-
-                neighbors.add(grid.getNodes()[x][y]);
-            }
-        }
+    protected int getNeighbors(GridMap map, int current, int[] neighbors) {
+        return map.getNeighbors(current, diagonalMovement, neighbors);
+    }
 
-        return neighbors;
+    /**
+     * Calculates the cost of going from one cell to a neighboring cell. Moves cost the average terrain cost of the two
+     * cells, so a move costs the same both ways and searches from the goal see the same costs as searches from the
+     * start. The cluster searches of hierarchical A* price their moves with this as well.
+     *
+     * @param map The map being searched.
+     * @param one The first cell.
+     * @param two The second cell.
+     * @return The cost of moving diagonally or straight, scaled by the terrain cost.
+     */
+    public static float getMovementCost(GridMap map, int one, int two) {
+        float cost = map.isDiagonal(one, two) ? Heuristics.DIAGONAL_COST : Heuristics.STRAIGHT_COST;
+        return map.isWeighted() ? cost * (map.getCost(one) + map.getCost(two)) * 0.5f : cost;
     }
 
-    @Override
-    protected void done() {
-        try {
-            List<Node> path = get();
-            if (path == null || path.isEmpty()) {
-                JOptionPane.showMessageDialog(null, "Failed to find path.", "Error",
-                        JOptionPane.ERROR_MESSAGE);
-            } else {
-                // Once the path has been finished, we can immediately draw it on the main GUI
-                grid.setPathFound(path);
-            }
-            // May have allocated a lot memory, have gc attempt to clean it up if possible
-            System.gc();
-        } catch (InterruptedException | ExecutionException | CancellationException e) {
-            //e.printStackTrace();
-        }
+    /**
+     * Calculates the cost of going from one cell to a neighboring cell in fixed point, see
+     * {@link Heuristics#FIXED_POINT_SCALE}.
+     *
+     * @param map The map being searched.
+     * @param one The first cell.
+     * @param two The second cell.
+     * @return The cost in fixed point.
+     */
+    protected static int getFixedMovementCost(GridMap map, int one, int two) {
+        return (map.isDiagonal(one, two) ? Heuristics.FIXED_DIAGONAL_COST : Heuristics.FIXED_STRAIGHT_COST)
+                * (map.getCost(one) + map.getCost(two));
     }
 
 }
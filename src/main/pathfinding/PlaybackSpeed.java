@@ -0,0 +1,46 @@
+package main.pathfinding;
+
+/**
+ * How fast a search is shown on the {@link Grid}.
+ *
+ * @author Matthew Lillie
+ */
+public enum PlaybackSpeed {
+
+    /**
+     * The search waits for the user before every step.
+     */
+    SINGLE_STEP("Single step", 0),
+    SLOW("Slow", 50),
+    NORMAL("Normal", 15),
+    FAST("Fast", 1),
+
+    /**
+     * The search runs at full speed while its visits are recorded, and the recording is played back afterwards.
+     */
+    INSTANT("Instant", 0);
+
+    /**
+     * The name shown to the user.
+     */
+    private final String displayName;
+
+    /**
+     * The delay after each step of the search in milliseconds.
+     */
+    private final long stepDelay;
+
+    PlaybackSpeed(String displayName, long stepDelay) {
+        this.displayName = displayName;
+        this.stepDelay = stepDelay;
+    }
+
+    public long getStepDelay() {
+        return stepDelay;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
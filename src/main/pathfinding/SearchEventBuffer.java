@@ -0,0 +1,187 @@
+package main.pathfinding;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * A bounded ring of search events, written by the thread running the search and read by the event dispatch thread.
+ * <p>
+ * Each event is a single int, the id of a visited cell or {@link #STEP_FINISHED}. There is exactly one writer and one
+ * reader, so the ring needs no locks: each side owns one of the two counters and publishes it with an ordered write
+ * after touching the slots. The reader takes every event written so far in one go, once per frame.
+ * <p>
+ * A writer that finds the ring full never waits for the reader, which may not read at all while the window is hidden.
+ * The visit is added to a count per cell instead, created the first time the ring fills up, and the reader passes the
+ * counts on as repeated visits of their cells. Step markers written while the ring is full are dropped, so once the
+ * reader falls a whole ring behind the order of the visits is lost, but none of the visits are.
+ *
+ * @author Matthew Lillie
+ */
+public class SearchEventBuffer implements SearchListener {
+
+    /**
+     * The event marking the end of a step of the search.
+     */
+    public static final int STEP_FINISHED = -1;
+
+    /**
+     * The amount of events the ring holds unless told otherwise.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final int[] events;
+    private final int mask;
+
+    /**
+     * The amount of cells of the map searched, visits of other cells are dropped when the ring is full.
+     */
+    private final int cellCount;
+
+    /**
+     * The amount of events ever read and written, only the reader moves the head and only the writer the tail.
+     */
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The visits of each cell that did not fit in the ring, or null if the ring has never been full. Only the writer
+     * changes the counts, it counts the visits added to them as well so the reader can skip them while nothing changed.
+     */
+    private volatile AtomicIntegerArray overflow;
+    private final AtomicLong overflowed = new AtomicLong();
+
+    /**
+     * The counts and the amount of visits added to them the reader has already passed on.
+     */
+    private int[] overflowRead;
+    private long overflowedRead;
+
+    /**
+     * Constructs a new buffer holding the default amount of events.
+     *
+     * @param cellCount The amount of cells of the map searched.
+     */
+    public SearchEventBuffer(int cellCount) {
+        this(DEFAULT_CAPACITY, cellCount);
+    }
+
+    /**
+     * Constructs a new buffer.
+     *
+     * @param capacity  The amount of events the ring holds, rounded up to a power of two.
+     * @param cellCount The amount of cells of the map searched.
+     */
+    public SearchEventBuffer(int capacity, int cellCount) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        if (cellCount < 0) {
+            throw new IllegalArgumentException("Invalid cell count: " + cellCount);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.events = new int[size];
+        this.mask = size - 1;
+        this.cellCount = cellCount;
+    }
+
+    @Override
+    public void cellVisited(int cell) {
+        publish(cell);
+    }
+
+    @Override
+    public void stepFinished() {
+        publish(STEP_FINISHED);
+    }
+
+    /**
+     * Adds an event, counting visits in the overflow counts while the ring is full. Never waits, and must only be
+     * called by the writing thread.
+     *
+     * @param event The event.
+     */
+    public void publish(int event) {
+        long position = tail.get();
+
+        if (position - head.get() == events.length) {
+            if (event >= 0 && event < cellCount) {
+                AtomicIntegerArray counts = overflow;
+                if (counts == null) {
+                    counts = new AtomicIntegerArray(cellCount);
+                    overflow = counts;
+                }
+
+                // The count before the total, a reader that sees the new total also sees the new count
+                counts.lazySet(event, counts.get(event) + 1);
+                overflowed.lazySet(overflowed.get() + 1);
+            }
+            return;
+        }
+
+        events[(int) position & mask] = event;
+        tail.lazySet(position + 1);
+    }
+
+    /**
+     * Passes every event written so far to a consumer, oldest first. Must only be called by the reading thread.
+     *
+     * @param consumer The consumer of the events.
+     * @return The amount of events read.
+     */
+    public int drain(IntConsumer consumer) {
+        long position = head.get();
+        long end = tail.get();
+
+        for (long i = position; i < end; i++) {
+            consumer.accept(events[(int) i & mask]);
+        }
+
+        head.lazySet(end);
+        return (int) (end - position) + drainOverflow(consumer);
+    }
+
+    /**
+     * Passes the visits added to the overflow counts since the last time on to a consumer, one event per visit.
+     */
+    private int drainOverflow(IntConsumer consumer) {
+        long total = overflowed.get();
+        if (total == overflowedRead) {
+            return 0;
+        }
+
+        AtomicIntegerArray counts = overflow;
+        if (overflowRead == null) {
+            overflowRead = new int[cellCount];
+        }
+
+        int read = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = counts.get(cell);
+
+            for (int i = overflowRead[cell]; i < count; i++) {
+                consumer.accept(cell);
+            }
+            read += count - overflowRead[cell];
+            overflowRead[cell] = count;
+        }
+
+        overflowedRead += read;
+        return read;
+    }
+
+    /**
+     * Checks if there are events that have not been read yet.
+     *
+     * @return True if the ring is empty and every overflowed visit has been read.
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get() && overflowed.get() == overflowedRead;
+    }
+
+}
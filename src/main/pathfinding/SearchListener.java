@@ -0,0 +1,32 @@
+package main.pathfinding;
+
+/**
+ * Receives progress updates from a {@link Pathfinder} while it is searching.
+ * <p>
+ * Headless searches use {@link #NONE}, while the visualizer uses a listener to record visits and repaint the {@link Grid}.
+ *
+ * @author Matthew Lillie
+ */
+public interface SearchListener {
+
+    /**
+     * A listener that ignores every update.
+     */
+    SearchListener NONE = new SearchListener() {
+    };
+
+    /**
+     * Called every time the algorithm visits a cell, whether or not the cell ends up being processed.
+     *
+     * @param cell The id of the visited cell.
+     */
+    default void cellVisited(int cell) {
+    }
+
+    /**
+     * Called once the algorithm has finished a single step (typically one expansion).
+     */
+    default void stepFinished() {
+    }
+
+}
@@ -0,0 +1,68 @@
+package main.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Records the events of a search so they can be played back once it has finished, using the same events as a
+ * {@link SearchEventBuffer}. Recording only appends to an array, so it barely slows the search down.
+ *
+ * @author Matthew Lillie
+ */
+public class SearchRecording implements SearchListener {
+
+    private int[] events = new int[1024];
+    private int size;
+    private int stepCount;
+
+    @Override
+    public void cellVisited(int cell) {
+        add(cell);
+    }
+
+    @Override
+    public void stepFinished() {
+        add(SearchEventBuffer.STEP_FINISHED);
+        stepCount++;
+    }
+
+    private void add(int event) {
+        if (size == events.length) {
+            events = Arrays.copyOf(events, size * 2);
+        }
+        events[size++] = event;
+    }
+
+    /**
+     * Finds where playing a few steps from a position ends.
+     *
+     * @param position The index of the first event to play.
+     * @param steps    The amount of steps to play.
+     * @return The index after the last event of the steps, at most {@link #size()}.
+     */
+    public int skip(int position, int steps) {
+        while (position < size && steps > 0) {
+            if (events[position++] == SearchEventBuffer.STEP_FINISHED) {
+                steps--;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Gets the recorded events, only the first {@link #size()} of which are valid.
+     *
+     * @return The events.
+     */
+    public int[] getEvents() {
+        return events;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getStepCount() {
+        return stepCount;
+    }
+
+}
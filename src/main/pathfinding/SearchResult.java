@@ -0,0 +1,51 @@
+package main.pathfinding;
+
+/**
+ * The outcome of running a {@link Pathfinder} against a {@link GridMap}.
+ *
+ * @author Matthew Lillie
+ */
+public class SearchResult {
+
+    /**
+     * The path found as cell ids from the start to the goal, empty if no path was found.
+     */
+    private final int[] path;
+
+    /**
+     * The total movement cost of the path.
+     */
+    private final float cost;
+
+    /**
+     * The statistics of the search.
+     */
+    private final SearchStatistics statistics;
+
+    public SearchResult(int[] path, float cost, SearchStatistics statistics) {
+        this.path = path;
+        this.cost = cost;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Checks if a path was found.
+     *
+     * @return True if a path was found.
+     */
+    public boolean isFound() {
+        return path.length > 0;
+    }
+
+    public int[] getPath() {
+        return path;
+    }
+
+    public float getCost() {
+        return cost;
+    }
+
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,155 @@
+package main.pathfinding;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Counters describing the work done by a single search, filled in by the {@link Pathfinder} as it runs.
+ *
+ * @author Matthew Lillie
+ */
+public class SearchStatistics {
+
+    /**
+     * Used to measure the CPU time of the searching thread.
+     */
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The amount of cells removed from the open set and expanded.
+     */
+    private long nodesExpanded;
+
+    /**
+     * The amount of cells added to the open set, or given a better cost while in it.
+     */
+    private long nodesGenerated;
+
+    /**
+     * The largest the open set grew to.
+     */
+    private int peakOpenSize;
+
+    /**
+     * The amount of closed cells that were opened again after a cheaper path to them was found.
+     */
+    private long reopenings;
+
+    /**
+     * The amount of times the heuristic was calculated.
+     */
+    private long heuristicCalls;
+
+    /**
+     * The amount of cells within the path found and its cost.
+     */
+    private int pathLength;
+    private float pathCost;
+
+    /**
+     * The time taken by the search in nanoseconds.
+     */
+    private long wallTimeNanos, cpuTimeNanos;
+
+    /**
+     * The value of the timers when the search started.
+     */
+    private long wallStart, cpuStart;
+
+    public void nodeExpanded() {
+        nodesExpanded++;
+    }
+
+    public void nodeGenerated() {
+        nodesGenerated++;
+    }
+
+    public void nodeReopened() {
+        reopenings++;
+    }
+
+    public void heuristicCalculated() {
+        heuristicCalls++;
+    }
+
+    /**
+     * Records the current size of the open set, keeping track of the largest size seen.
+     *
+     * @param size The size of the open set.
+     */
+    public void openSize(int size) {
+        if (size > peakOpenSize) {
+            peakOpenSize = size;
+        }
+    }
+
+    /**
+     * Starts the timers, called by the {@link Pathfinder} before searching.
+     */
+    void start() {
+        wallStart = System.nanoTime();
+        cpuStart = cpuTime();
+    }
+
+    /**
+     * Stops the timers and records the path found, called by the {@link Pathfinder} after searching.
+     *
+     * @param pathLength The amount of cells within the path.
+     * @param pathCost   The cost of the path.
+     */
+    void finish(int pathLength, float pathCost) {
+        this.wallTimeNanos = System.nanoTime() - wallStart;
+        this.cpuTimeNanos = cpuTime() - cpuStart;
+        this.pathLength = pathLength;
+        this.pathCost = pathCost;
+    }
+
+    private static long cpuTime() {
+        return THREAD_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime() : 0L;
+    }
+
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    public long getNodesGenerated() {
+        return nodesGenerated;
+    }
+
+    public int getPeakOpenSize() {
+        return peakOpenSize;
+    }
+
+    public long getReopenings() {
+        return reopenings;
+    }
+
+    public long getHeuristicCalls() {
+        return heuristicCalls;
+    }
+
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    public float getPathCost() {
+        return pathCost;
+    }
+
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "expanded=%d, generated=%d, peak open=%d, reopened=%d, heuristic calls=%d, "
+                        + "path length=%d, path cost=%.3f, wall=%.3f ms, cpu=%.3f ms",
+                nodesExpanded, nodesGenerated, peakOpenSize, reopenings, heuristicCalls, pathLength, pathCost,
+                wallTimeNanos / 1e6, cpuTimeNanos / 1e6);
+    }
+}
@@ -0,0 +1,235 @@
+package main.pathfinding;
+
+import main.pathfinding.impl.SearchContext;
+
+import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@link Pathfinder} against a {@link Grid} on a separate thread, slowing the search down so that it can be
+ * visualized.
+ * <p>
+ * The search only writes its visits into a {@link SearchEventBuffer} of its own, which the grid reads on the event
+ * dispatch thread once per frame. A cancelled search that is still finishing its step therefore never touches the grid
+ * or the events of the search that replaced it.
+ * <p>
+ * At {@link PlaybackSpeed#INSTANT} the search is not slowed down at all, so its statistics show its real timings. Its
+ * visits are recorded instead and played back once it has finished, a few steps per frame so the playback takes about
+ * the same time however large the search was.
+ *
+ * @author Matthew Lillie
+ */
+public class SearchWorker extends SwingWorker<SearchResult, Object> {
+
+    /**
+     * About how long playing back a recorded search takes in seconds.
+     */
+    private static final int PLAYBACK_SECONDS = 5;
+
+    /**
+     * The Grid being visualized.
+     */
+    private final Grid grid;
+
+    /**
+     * The algorithm being ran.
+     */
+    private final Pathfinder pathfinder;
+
+    /**
+     * A snapshot of the grid taken when the worker was created, sharing its cells until the grid is edited, along with
+     * the start and goal cells.
+     */
+    private final GridMap map;
+    private final int start, goal;
+
+    /**
+     * How fast the search is shown, and the frame rate of the playback when it is shown afterwards.
+     */
+    private final PlaybackSpeed speed;
+    private final int playbackFps;
+
+    /**
+     * Called with the result once the search has finished.
+     */
+    private final Consumer<SearchResult> onFinished;
+
+    /**
+     * The events of this search, read by the grid.
+     */
+    private final SearchEventBuffer events;
+
+    /**
+     * The events of this search when it is played back afterwards.
+     */
+    private final SearchRecording recording = new SearchRecording();
+
+    /**
+     * The steps the user has allowed the search to take when stepping through it.
+     */
+    private final Semaphore steps = new Semaphore(0);
+
+    /**
+     * Plays back the recording, null when not playing.
+     */
+    private Timer playback;
+
+    /**
+     * Whether or not the search or its playback is still going, only used on the event dispatch thread.
+     */
+    private boolean running = true;
+
+    /**
+     * Constructs a new worker, must be called on the event dispatch thread.
+     *
+     * @param grid        The Grid to search and visualize.
+     * @param pathfinder  The algorithm to run.
+     * @param speed       How fast the search is shown.
+     * @param playbackFps The frames per second of the playback at {@link PlaybackSpeed#INSTANT}.
+     * @param onFinished  Called on the event dispatch thread with the result once the search has finished.
+     */
+    public SearchWorker(Grid grid, Pathfinder pathfinder, PlaybackSpeed speed, int playbackFps,
+                        Consumer<SearchResult> onFinished) {
+        if (playbackFps < 1) {
+            throw new IllegalArgumentException("Invalid frame rate: " + playbackFps);
+        }
+
+        this.grid = grid;
+        this.pathfinder = pathfinder;
+        this.speed = speed;
+        this.playbackFps = playbackFps;
+        this.onFinished = onFinished;
+        this.map = new GridMap(grid.getMap());
+        this.start = map.getStart();
+        this.goal = map.getGoal();
+        this.events = new SearchEventBuffer(map.getCellCount());
+
+        grid.setEvents(speed == PlaybackSpeed.INSTANT ? null : events);
+    }
+
+    @Override
+    protected SearchResult doInBackground() {
+        try {
+            return search();
+        } finally {
+            // The pool threads of Swing workers are shared and may idle for a long time
+            SearchContext.release();
+        }
+    }
+
+    private SearchResult search() {
+        if (speed == PlaybackSpeed.INSTANT) {
+            return pathfinder.findPath(map, start, goal, recording);
+        }
+
+        return pathfinder.findPath(map, start, goal, new SearchListener() {
+            @Override
+            public void cellVisited(int cell) {
+                events.cellVisited(cell);
+            }
+
+            @Override
+            public void stepFinished() {
+                events.stepFinished();
+
+                try {
+                    if (speed == PlaybackSpeed.SINGLE_STEP) {
+                        steps.acquire();
+                    } else {
+                        Thread.sleep(speed.getStepDelay());
+                    }
+                } catch (InterruptedException e) {
+                    // The worker was cancelled, stop the algorithm
+                    throw new CancellationException();
+                }
+            }
+        });
+    }
+
+    /**
+     * Lets the search take another step when stepping through it.
+     */
+    public void step() {
+        steps.release();
+    }
+
+    /**
+     * Stops the search, or its playback if it has already finished. Must be called on the event dispatch thread.
+     */
+    public void stop() {
+        cancel(true);
+        running = false;
+
+        if (playback != null) {
+            playback.stop();
+            playback = null;
+        }
+    }
+
+    /**
+     * Checks if the search or its playback is still going. Must be called on the event dispatch thread.
+     *
+     * @return True if the search or its playback has not finished.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    protected void done() {
+        if (speed != PlaybackSpeed.INSTANT) {
+            running = false;
+        }
+
+        try {
+            SearchResult result = get();
+            onFinished.accept(result);
+
+            if (speed == PlaybackSpeed.INSTANT && running) {
+                play(result);
+            } else {
+                show(result);
+            }
+            // May have allocated a lot memory, have gc attempt to clean it up if possible
+            System.gc();
+        } catch (InterruptedException | ExecutionException | CancellationException e) {
+            running = false;
+            //e.printStackTrace();
+        }
+    }
+
+    /**
+     * Plays back the recorded search, showing the result once it is over.
+     */
+    private void play(SearchResult result) {
+        int stepsPerFrame = Math.max(1, (int) Math.ceil(recording.getStepCount()
+                / (double) (playbackFps * PLAYBACK_SECONDS)));
+        int[] position = {0};
+
+        playback = new Timer(1000 / playbackFps, actionEvent -> {
+            int end = recording.skip(position[0], stepsPerFrame);
+            grid.showEvents(recording.getEvents(), position[0], end);
+            position[0] = end;
+
+            if (end == recording.size()) {
+                stop();
+                show(result);
+            }
+        });
+        playback.start();
+    }
+
+    private void show(SearchResult result) {
+        if (!result.isFound()) {
+            JOptionPane.showMessageDialog(null, "Failed to find path.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        } else {
+            // Once the path has been finished, we can immediately draw it on the main GUI
+            grid.setPathFound(result.getPath());
+        }
+    }
+
+}
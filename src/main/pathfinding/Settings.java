@@ -4,6 +4,7 @@ import main.pathfinding.impl.*;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.Hashtable;
 
 /**
  * This class is a JPanel that holds all the different settings used for the application.
@@ -15,16 +16,12 @@ public class Settings extends JPanel {
     /**
      * Data used for the combo boxes
      */
-    private static final String[] ALGORITHM_NAMES = {
-            "Depth First Search", "Breadth First Search",
-            "Dijkstra's", "Astar", "Beam Search", "IDAStar"};
-
-    private static final String[] HEURISTICS = {"Manhattan", "Euclidean", "Octile", "Chebyshev"};
+    private static final String[] HEURISTICS = {"Manhattan", "Euclidean", "Octile", "Chebyshev", "Landmarks (ALT)"};
 
     /**
      * The combo boxes.
      */
-    private final JComboBox optionsBox;
+    private final JComboBox<Algorithm> optionsBox;
     private final JComboBox heuristicsBox;
 
     /**
@@ -33,19 +30,43 @@ public class Settings extends JPanel {
     private final JTextField beamWidthField;
 
     /**
-     * The slider representing the size of the nodes.
+     * The slider representing the zoom of the grid.
      */
-    private final JSlider nodeSizeSlider;
+    private final JSlider zoomSlider;
 
     /**
      * The check box determining if we can move diagonally.
      */
     private final JCheckBox checkDiagonal;
 
+    /**
+     * How fast searches are shown, and the frame rate of the playback after an instant search.
+     */
+    private final JComboBox<PlaybackSpeed> speedBox;
+    private final JSpinner playbackFps;
+
+    /**
+     * Shows the statistics of the last search.
+     */
+    private final JLabel statisticsLabel;
+
+    /**
+     * The results of previous searches, cleared whenever the grid is edited or loaded.
+     */
+    private final PathCache pathCache = new PathCache(256, 1 << 20);
+
     /**
      * The swing worker thread currently being ran.
      */
-    private SwingWorker currentlyRunningFinder;
+    private SearchWorker currentlyRunningFinder;
+
+    /**
+     * The settings of the last search if it can repair its path after the grid is edited, the algorithm is null
+     * otherwise.
+     */
+    private Algorithm replanAlgorithm;
+    private Heuristics replanHeuristic;
+    private boolean replanDiagonal;
 
     /**
      * Insets used for the Grid Bag Constraints
@@ -59,6 +80,8 @@ public class Settings extends JPanel {
                 BorderFactory.createTitledBorder("Settings: "),
                 BorderFactory.createEmptyBorder(3, 3, 1, 3)));
 
+        statisticsLabel = new JLabel(" ", JLabel.LEFT);
+
         // Beam width
         beamWidthField = new JTextField("4");
         this.add(beamWidthField, createGbc(0,2));
@@ -72,14 +95,14 @@ public class Settings extends JPanel {
         this.add(checkDiagonal, createGbc(3, 0));
 
         // Combo boxes
-        optionsBox = new JComboBox<>(ALGORITHM_NAMES);
+        optionsBox = new JComboBox<>(Algorithm.values());
         heuristicsBox = new JComboBox<>(HEURISTICS);
         heuristicsBox.setVisible(false);
 
         optionsBox.addActionListener(actionEvent -> {
-            if (optionsBox.getSelectedIndex() == 3 || optionsBox.getSelectedIndex() == 4 || optionsBox.getSelectedIndex() == 5) {
+            if (((Algorithm) optionsBox.getSelectedItem()).usesHeuristic()) {
                 heuristicsBox.setVisible(true);
-                //beamWidthField.setVisible(optionsBox.getSelectedIndex() == 4);
+                //beamWidthField.setVisible(optionsBox.getSelectedItem() == Algorithm.BEAM_SEARCH);
             } else {
                 heuristicsBox.setVisible(false);
                 beamWidthField.setVisible(false);
@@ -90,85 +113,125 @@ public class Settings extends JPanel {
 
         this.add(optionsBox, createGbc(0, 0));
 
+        speedBox = new JComboBox<>(PlaybackSpeed.values());
+        speedBox.setSelectedItem(PlaybackSpeed.NORMAL);
+        speedBox.setToolTipText("How fast the search is shown. Instant searches at full speed and plays it back after.");
+        playbackFps = new JSpinner(new SpinnerNumberModel(30, 1, 120, 1));
+        playbackFps.setToolTipText("Frames per second of the playback.");
+
         // Buttons
         JButton searchButton = new JButton("Search");
         searchButton.addActionListener(actionEvent -> {
 
             if (currentlyRunningFinder != null) {
-                currentlyRunningFinder.cancel(true);
+                currentlyRunningFinder.stop();
                 currentlyRunningFinder = null;
             }
 
-            for (Node[] nodes : grid.getNodes()) {
-                for (Node node : nodes) {
-                    node.setTimesVisited(0);
-                    node.setParent(null);
-                }
-            }
+            grid.clearTimesVisited();
+            replanAlgorithm = null;
 
             grid.setPathFound(null);
+            statisticsLabel.setText(" ");
+            statisticsLabel.setToolTipText(null);
 
-            switch (optionsBox.getSelectedIndex()) {
+            Heuristics heuristic;
+            switch (heuristicsBox.getSelectedIndex()) {
                 case 0:
-                    currentlyRunningFinder = new DepthFirstSearch(grid, checkDiagonal.isSelected());
+                    heuristic = Heuristics.MANHATTAN;
                     break;
-
                 case 1:
-                    currentlyRunningFinder = new BreadthFirstSearch(grid, checkDiagonal.isSelected());
+                    heuristic = Heuristics.EUCLIDEAN;
                     break;
-
                 case 2:
-                    currentlyRunningFinder = new Dijkstra(grid, checkDiagonal.isSelected());
+                    heuristic = Heuristics.OCTILE;
                     break;
-
                 case 3:
+                    heuristic = Heuristics.CHEBYSHEV;
+                    break;
                 case 4:
-                case 5:
-                    Heuristics heuristic;
-                    switch (heuristicsBox.getSelectedIndex()) {
-                        case 0:
-                            heuristic = Heuristics.MANHATTAN;
-                            break;
-                        case 1:
-                            heuristic = Heuristics.EUCLIDEAN;
-                            break;
-                        case 2:
-                            heuristic = Heuristics.OCTILE;
-                            break;
-                        case 3:
-                            heuristic = Heuristics.CHEBYSHEV;
-                            break;
-                        default:
-                            heuristic = Heuristics.MANHATTAN;
-                            break;
-                    }
-                    currentlyRunningFinder =
-                            optionsBox.getSelectedIndex() == 3 ? new Astar(grid, checkDiagonal.isSelected(), heuristic) :
-                                    optionsBox.getSelectedIndex() == 4 ? new BeamSearch(grid, checkDiagonal.isSelected(), heuristic)
-                                            : new IDAStarSearch(grid, checkDiagonal.isSelected(), heuristic);
+                    heuristic = Heuristics.LANDMARKS;
                     break;
-
                 default:
+                    heuristic = Heuristics.MANHATTAN;
                     break;
+            }
 
+            Algorithm algorithm = (Algorithm) optionsBox.getSelectedItem();
+            if (algorithm == null) {
+                return;
             }
 
-            // Start the algorithm
-            if(currentlyRunningFinder != null) {
-                currentlyRunningFinder.execute();
+            boolean diagonal = checkDiagonal.isSelected();
+            GridMap map = grid.getMap();
+
+            // The path would look like a result but could be far from the cheapest one
+            if (map.isWeighted() && !algorithm.usesTerrainCosts() && JOptionPane.showConfirmDialog(null,
+                    algorithm + " ignores terrain costs, so its path may cost more than the cheapest one.\n"
+                            + "Search anyway?", "Terrain Costs Ignored", JOptionPane.YES_NO_OPTION,
+                    JOptionPane.WARNING_MESSAGE) != JOptionPane.YES_OPTION) {
+                return;
+            }
+            int start = map.getStart();
+            int goal = map.getGoal();
+            int version = map.getVersion();
+
+            // The same search has already been ran on this version of the grid, show its path straight away
+            SearchResult cached = pathCache.get(map, start, goal, algorithm, heuristic, diagonal);
+            if (cached != null) {
+                if (cached.isFound()) {
+                    grid.setPathFound(cached.getPath());
+                } else {
+                    JOptionPane.showMessageDialog(null, "Failed to find path.", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+                showStatistics(cached, true);
+                return;
             }
+
+            // Start the algorithm
+            Pathfinder pathfinder = pathCache.getPathfinder(algorithm, heuristic, diagonal);
+            PlaybackSpeed speed = (PlaybackSpeed) speedBox.getSelectedItem();
+            currentlyRunningFinder = new SearchWorker(grid, pathfinder, speed, (Integer) playbackFps.getValue(),
+                    result -> {
+                        pathCache.put(map, version, start, goal, algorithm, heuristic, diagonal, result);
+                        showStatistics(result, false);
+
+                        if (algorithm == Algorithm.D_STAR_LITE) {
+                            replanAlgorithm = algorithm;
+                            replanHeuristic = heuristic;
+                            replanDiagonal = diagonal;
+                        }
+                    });
+            currentlyRunningFinder.execute();
         });
 
         this.add(searchButton, createGbc(1, 0));
 
+        // D* Lite only repairs the part of its search the edit changed, fast enough to replan while dragging walls
+        grid.setEditListener(() -> {
+            if (replanAlgorithm == null || (currentlyRunningFinder != null && currentlyRunningFinder.isRunning())) {
+                return;
+            }
+
+            GridMap map = grid.getMap();
+            SearchResult result = pathCache.findPath(map, map.getStart(), map.getGoal(), replanAlgorithm,
+                    replanHeuristic, replanDiagonal);
+
+            grid.clearTimesVisited();
+            grid.setPathFound(result.isFound() ? result.getPath() : null);
+            showStatistics(result, false);
+        });
+
         JButton resetButton = new JButton("Reset");
 
         resetButton.addActionListener(actionEvent -> {
             if (currentlyRunningFinder != null) {
-                currentlyRunningFinder.cancel(true);
+                currentlyRunningFinder.stop();
                 currentlyRunningFinder = null;
             }
 
+            replanAlgorithm = null;
             grid.reset();
         });
 
@@ -179,11 +242,12 @@ public class Settings extends JPanel {
         maze.addActionListener(actionEvent -> {
             // Stop any algorithm running
             if (currentlyRunningFinder != null) {
-                currentlyRunningFinder.cancel(true);
+                currentlyRunningFinder.stop();
                 currentlyRunningFinder = null;
             }
 
             // Reset the grid
+            replanAlgorithm = null;
             grid.reset();
             grid.setPathFound(null);
 
@@ -193,31 +257,83 @@ public class Settings extends JPanel {
 
         this.add(maze, createGbc(1, 2));
 
-        // Slider for the node size
-        this.add(new JLabel("Node Size:", JLabel.LEFT), createGbc(2, 0));
+        // Slider for the zoom, labeled in pixels per cell
+        this.add(new JLabel("Zoom:", JLabel.LEFT), createGbc(2, 0));
+
+        zoomSlider = new JSlider(JSlider.HORIZONTAL, Grid.MIN_ZOOM, Grid.MAX_ZOOM, grid.getZoom());
 
-        nodeSizeSlider = new JSlider(JSlider.HORIZONTAL, 5, 50, grid.getNodeSize());
+        Hashtable<Integer, JLabel> zoomLabels = new Hashtable<>();
+        zoomLabels.put(Grid.MIN_ZOOM, new JLabel("1/" + (1 << 1 - Grid.MIN_ZOOM)));
+        zoomLabels.put(1, new JLabel("1"));
+        for (int zoom = 10; zoom <= Grid.MAX_ZOOM; zoom += 10) {
+            zoomLabels.put(zoom, new JLabel(Integer.toString(zoom)));
+        }
 
-        nodeSizeSlider.setMajorTickSpacing(5);
-        nodeSizeSlider.setMinorTickSpacing(1);
-        nodeSizeSlider.setPaintTicks(true);
-        nodeSizeSlider.setPaintLabels(true);
+        zoomSlider.setLabelTable(zoomLabels);
+        zoomSlider.setMajorTickSpacing(5);
+        zoomSlider.setMinorTickSpacing(1);
+        zoomSlider.setPaintTicks(true);
+        zoomSlider.setPaintLabels(true);
+        zoomSlider.setToolTipText("Pixels per cell. Hold control and scroll over the grid to zoom around the mouse.");
 
-        nodeSizeSlider.addChangeListener(changeEvent -> {
-            grid.setNodeSize(nodeSizeSlider.getValue());
-            grid.repaint();
+        zoomSlider.addChangeListener(changeEvent -> grid.setZoom(zoomSlider.getValue()));
+        grid.setZoomListener(() -> zoomSlider.setValue(grid.getZoom()));
+
+        this.add(zoomSlider, createGbc(2, 1));
+
+        // Statistics of the last search
+        this.add(statisticsLabel, createGbc(3, 1));
+
+        // Playback speed, stepping through the search and the frame rate of the playback after an instant search
+        this.add(speedBox, createGbc(2, 2));
+
+        JButton stepButton = new JButton("Step");
+        stepButton.setVisible(false);
+        stepButton.addActionListener(actionEvent -> {
+            if (currentlyRunningFinder != null) {
+                currentlyRunningFinder.step();
+            }
         });
 
-        this.add(nodeSizeSlider, createGbc(2, 1));
+        JLabel playbackFpsLabel = new JLabel("Playback FPS:", JLabel.LEFT);
+        playbackFpsLabel.setVisible(false);
+        playbackFps.setVisible(false);
+
+        speedBox.addActionListener(actionEvent -> {
+            stepButton.setVisible(speedBox.getSelectedItem() == PlaybackSpeed.SINGLE_STEP);
+            playbackFpsLabel.setVisible(speedBox.getSelectedItem() == PlaybackSpeed.INSTANT);
+            playbackFps.setVisible(speedBox.getSelectedItem() == PlaybackSpeed.INSTANT);
+        });
+
+        JPanel playbackPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 2, 0));
+        playbackPanel.add(stepButton);
+        playbackPanel.add(playbackFpsLabel);
+        playbackPanel.add(playbackFps);
+        this.add(playbackPanel, createGbc(3, 2));
+
+        // Terrain cost painted while holding shift
+        this.add(new JLabel("Terrain Cost:", JLabel.LEFT), createGbc(0, 3));
+
+        JSpinner terrainBrush = new JSpinner(new SpinnerNumberModel(5, GridMap.MIN_COST, GridMap.MAX_COST, 1));
+        terrainBrush.setToolTipText("The cost painted by holding shift while dragging, right dragging clears it.");
+        terrainBrush.addChangeListener(changeEvent -> grid.setTerrainBrush((Integer) terrainBrush.getValue()));
+        grid.setTerrainBrush((Integer) terrainBrush.getValue());
+        this.add(terrainBrush, createGbc(1, 3));
     };
 
     /**
-     * Updates the value of the node size slider.
+     * Shows the statistics of a finished search. The times include the delay added to visualize the search, unless it
+     * was ran at {@link PlaybackSpeed#INSTANT}.
      *
-     * @param nodeSize The new node size.
+     * @param result The result of the search.
+     * @param cached Whether or not the result came from the cache.
      */
-    public void updateNodeSizeSlider(int nodeSize) {
-        this.nodeSizeSlider.setValue(nodeSize);
+    private void showStatistics(SearchResult result, boolean cached) {
+        SearchStatistics statistics = result.getStatistics();
+        statisticsLabel.setText(String.format("%sExpanded: %d  Generated: %d  Peak open: %d", cached ? "(Cached) " : "",
+                statistics.getNodesExpanded(), statistics.getNodesGenerated(), statistics.getPeakOpenSize()));
+        statisticsLabel.setToolTipText(statistics.toString() + ", cache hits=" + pathCache.getHits()
+                + ", cache misses=" + pathCache.getMisses());
     }
 
     /**
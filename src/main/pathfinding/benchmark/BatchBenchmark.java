@@ -0,0 +1,124 @@
+package main.pathfinding.benchmark;
+
+import main.pathfinding.BatchPathfinder;
+import main.pathfinding.GridMap;
+import main.pathfinding.PathQuery;
+import main.pathfinding.impl.Algorithm;
+import main.pathfinding.impl.Heuristics;
+
+import java.util.*;
+
+/**
+ * Headless benchmark of how the throughput of a {@link BatchPathfinder} scales with its amount of threads, searching the
+ * same random start and goal pairs on one map with every thread count.
+ * <p>
+ * Each thread count is warmed up with a few batches before the batches measured. Options are passed as
+ * {@code --name=value}, for example:
+ * <pre>
+ * java -cp PathFinding.jar main.pathfinding.benchmark.BatchBenchmark --threads=1,2,4,8 --size=512 --queries=20000
+ * </pre>
+ * Options: {@code threads} (comma separated, by default powers of two up to the amount of processors),
+ * {@code algorithm}, {@code heuristic}, {@code diagonal}, {@code size}, {@code pattern}, {@code density},
+ * {@code queries}, {@code seed}, {@code warmup} and {@code iterations}.
+ *
+ * @author Matthew Lillie
+ */
+public class BatchBenchmark {
+
+    private final List<Integer> threadCounts;
+    private final Algorithm algorithm;
+    private final Heuristics heuristic;
+    private final boolean diagonal;
+    private final int size;
+    private final GridPattern pattern;
+    private final float density;
+    private final int queryCount;
+    private final long seed;
+    private final int warmup;
+    private final int iterations;
+
+    private BatchBenchmark(Map<String, String> options) {
+        this.threadCounts = new ArrayList<>();
+        if (options.containsKey("threads")) {
+            for (String value : options.get("threads").split(",")) {
+                threadCounts.add(Integer.parseInt(value.trim()));
+            }
+        } else {
+            int processors = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; threads < processors; threads *= 2) {
+                threadCounts.add(threads);
+            }
+            threadCounts.add(processors);
+        }
+
+        this.algorithm = Algorithm.valueOf(options.getOrDefault("algorithm", "astar").toUpperCase(Locale.ROOT));
+        this.heuristic = Heuristics.valueOf(options.getOrDefault("heuristic", "octile").toUpperCase(Locale.ROOT));
+        this.diagonal = Boolean.parseBoolean(options.getOrDefault("diagonal", "true"));
+        this.size = Integer.parseInt(options.getOrDefault("size", "256"));
+        this.pattern = GridPattern.valueOf(options.getOrDefault("pattern", "random").toUpperCase(Locale.ROOT));
+        this.density = Float.parseFloat(options.getOrDefault("density", "0.25"));
+        this.queryCount = Integer.parseInt(options.getOrDefault("queries", "10000"));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.warmup = Integer.parseInt(options.getOrDefault("warmup", "2"));
+        this.iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        new BatchBenchmark(options).run();
+    }
+
+    /**
+     * Measures every thread count and prints the throughput and the speedup over the first thread count.
+     *
+     * @throws InterruptedException Exception may be thrown if the benchmark is interrupted while waiting for a batch.
+     */
+    private void run() throws InterruptedException {
+        Random random = new Random(seed);
+        GridMap map = pattern.create(size, density, random);
+        List<PathQuery> queries = new ArrayList<>(queryCount);
+
+        while (queries.size() < queryCount) {
+            int start = random.nextInt(map.getCellCount());
+            int goal = random.nextInt(map.getCellCount());
+
+            if (!map.isBlocked(start) && !map.isBlocked(goal)) {
+                queries.add(new PathQuery(start, goal));
+            }
+        }
+
+        System.out.printf("%s %s, %d processors, %d queries per batch%n", pattern, size + "x" + size,
+                Runtime.getRuntime().availableProcessors(), queryCount);
+        System.out.printf("%-8s %-12s %-8s%n", "threads", "queries/s", "speedup");
+
+        double baseline = 0;
+        for (int threads : threadCounts) {
+            double throughput;
+
+            try (BatchPathfinder batch = new BatchPathfinder(() -> algorithm.create(diagonal, heuristic), threads)) {
+                for (int i = 0; i < warmup; i++) {
+                    batch.findPaths(map, queries);
+                }
+
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    batch.findPaths(map, queries);
+                }
+                throughput = (double) queryCount * iterations / ((System.nanoTime() - start) / 1e9);
+            }
+
+            if (baseline == 0) {
+                baseline = throughput;
+            }
+            System.out.printf("%-8d %-12.0f %-8.2f%n", threads, throughput, throughput / baseline);
+        }
+    }
+
+}
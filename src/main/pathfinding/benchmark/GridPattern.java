@@ -0,0 +1,66 @@
+package main.pathfinding.benchmark;
+
+import main.pathfinding.GridMap;
+import main.pathfinding.Maze;
+
+import java.util.Random;
+
+/**
+ * The obstacle patterns that maps are generated with for benchmarking.
+ *
+ * @author Matthew Lillie
+ */
+public enum GridPattern {
+
+    /**
+     * No obstacles, the start and goal are in opposite corners.
+     */
+    EMPTY {
+        @Override
+        public GridMap create(int size, float density, Random random) {
+            return new GridMap(size, size);
+        }
+    },
+
+    /**
+     * Cells are blocked at random with the given density, the start and goal are in opposite corners.
+     */
+    RANDOM {
+        @Override
+        public GridMap create(int size, float density, Random random) {
+            GridMap map = new GridMap(size, size);
+
+            for (int cell = 0; cell < map.getCellCount(); cell++) {
+                if (random.nextFloat() < density) {
+                    map.setBlocked(cell, true);
+                }
+            }
+
+            map.setBlocked(map.getStart(), false);
+            map.setBlocked(map.getGoal(), false);
+            return map;
+        }
+    },
+
+    /**
+     * A maze created by {@link Maze#generateMaze(GridMap, long)}, seeded from the random generator.
+     */
+    MAZE {
+        @Override
+        public GridMap create(int size, float density, Random random) {
+            GridMap map = new GridMap(size, size);
+            Maze.generateMaze(map, random.nextLong());
+            return map;
+        }
+    };
+
+    /**
+     * Creates a new square map with this pattern.
+     *
+     * @param size    The width and height of the map.
+     * @param density The chance of a cell being blocked, only used by random patterns.
+     * @param random  The random generator used.
+     * @return The new map.
+     */
+    public abstract GridMap create(int size, float density, Random random);
+}
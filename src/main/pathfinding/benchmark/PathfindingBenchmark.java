@@ -0,0 +1,305 @@
+package main.pathfinding.benchmark;
+
+import main.pathfinding.GridMap;
+import main.pathfinding.Pathfinder;
+import main.pathfinding.SearchResult;
+import main.pathfinding.impl.Algorithm;
+import main.pathfinding.impl.BreadthFirstSearch;
+import main.pathfinding.impl.Heuristics;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Headless benchmark that runs every algorithm across heuristics, diagonal movement, grid sizes and obstacle patterns,
+ * reporting throughput, latency and allocation rate.
+ * <p>
+ * Each case is warmed up before being measured so that the JIT has compiled the search. Algorithms that keep state
+ * between searches would only measure reusing that state if the same query was repeated, so they are measured twice
+ * instead: the first search of a new instance, and the search after an edit next to the path by an instance that had
+ * already searched the map. Options are passed as {@code --name=value}, for example:
+ * <pre>
+ * java -cp PathFinding.jar main.pathfinding.benchmark.PathfindingBenchmark --algorithms=astar,dijkstra --sizes=64,1024
+ * </pre>
+ * Options: {@code algorithms}, {@code heuristics}, {@code diagonal}, {@code sizes}, {@code patterns} (comma separated),
+ * {@code density}, {@code seed}, {@code warmup}, {@code iterations}, {@code ida-max-size} and {@code csv} (a file to
+ * also write the results to).
+ *
+ * @author Matthew Lillie
+ */
+public class PathfindingBenchmark {
+
+    /**
+     * The header of the results table.
+     */
+    private static final String[] COLUMNS = {"algorithm", "heuristic", "diagonal", "size", "pattern", "run", "ops/s",
+            "mean ms", "p50 ms", "p99 ms", "alloc B/op", "expanded", "generated", "peak open", "h calls", "cost"};
+
+    /**
+     * What the timed searches of a case are.
+     */
+    private enum Run {
+
+        /**
+         * The same query searched again and again by one instance.
+         */
+        QUERY,
+
+        /**
+         * The first search of a new instance.
+         */
+        INITIAL,
+
+        /**
+         * A search after an edit next to the path, by a new instance that searched the map before the edit.
+         */
+        REPLAN
+    }
+
+    private final List<Algorithm> algorithms;
+    private final List<Heuristics> heuristics;
+    private final List<Boolean> diagonals;
+    private final List<Integer> sizes;
+    private final List<GridPattern> patterns;
+    private final float density;
+    private final long seed;
+    private final int warmup;
+    private final int iterations;
+    private final int idaMaxSize;
+    private final String csv;
+
+    private PathfindingBenchmark(Map<String, String> options) {
+        this.algorithms = parse(options.get("algorithms"), Algorithm.values(), Algorithm::valueOf);
+        this.heuristics = parse(options.get("heuristics"), Heuristics.values(), Heuristics::valueOf);
+        this.diagonals = parse(options.get("diagonal"), new Boolean[]{true, false}, Boolean::valueOf);
+        this.sizes = parse(options.get("sizes"), new Integer[]{64, 256, 1024, 4096}, Integer::valueOf);
+        this.patterns = parse(options.get("patterns"), GridPattern.values(), GridPattern::valueOf);
+        this.density = Float.parseFloat(options.getOrDefault("density", "0.25"));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        this.iterations = Integer.parseInt(options.getOrDefault("iterations", "10"));
+        this.idaMaxSize = Integer.parseInt(options.getOrDefault("ida-max-size", "64"));
+        this.csv = options.get("csv");
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        new PathfindingBenchmark(options).run();
+    }
+
+    /**
+     * Runs every benchmark case and prints the results.
+     *
+     * @throws IOException Exception may be thrown if the csv file could not be written.
+     */
+    private void run() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        printRow(COLUMNS);
+
+        for (GridPattern pattern : patterns) {
+            for (int size : sizes) {
+                GridMap map = createReachableMap(pattern, size);
+
+                if (map == null) {
+                    System.out.println("Skipping " + pattern + " " + size + ", no reachable map could be generated.");
+                    continue;
+                }
+
+                for (Algorithm algorithm : algorithms) {
+                    if (algorithm == Algorithm.IDA_STAR && size > idaMaxSize) {
+                        continue;
+                    }
+
+                    List<Heuristics> caseHeuristics = algorithm.usesHeuristic()
+                            ? heuristics : Collections.singletonList(null);
+
+                    List<Run> runs = algorithm.isIncremental()
+                            ? Arrays.asList(Run.INITIAL, Run.REPLAN) : Collections.singletonList(Run.QUERY);
+
+                    for (Heuristics heuristic : caseHeuristics) {
+                        for (boolean diagonal : diagonals) {
+                            for (Run run : runs) {
+                                String[] row = runCase(map, pattern, algorithm, heuristic, diagonal, run);
+                                rows.add(row);
+                                printRow(row);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (csv != null) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(csv))) {
+                writer.println(String.join(",", COLUMNS));
+                for (String[] row : rows) {
+                    writer.println(String.join(",", row));
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a map where the goal can be reached from the start, retrying random patterns a few times.
+     *
+     * @param pattern The pattern of the map.
+     * @param size    The size of the map.
+     * @return The map, or null if no reachable map could be created.
+     */
+    private GridMap createReachableMap(GridPattern pattern, int size) {
+        Random random = new Random(seed ^ ((long) size << 32) ^ pattern.ordinal());
+
+        for (int attempt = 0; attempt < 10; attempt++) {
+            GridMap map = pattern.create(size, density, random);
+
+            // Reachable without diagonals means reachable with them as well
+            if (new BreadthFirstSearch(false).findPath(map, map.getStart(), map.getGoal()).isFound()) {
+                return map;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Warms up and measures a single benchmark case.
+     *
+     * @return The row of results.
+     */
+    private String[] runCase(GridMap map, GridPattern pattern, Algorithm algorithm, Heuristics heuristic, boolean diagonal,
+                             Run run) {
+        Pathfinder pathfinder = algorithm.create(diagonal, heuristic);
+
+        long[] latencies = new long[iterations];
+        long allocated = 0;
+        long totalTime = 0;
+        SearchResult result = null;
+
+        // Negative iterations are the warmup
+        for (int i = -warmup; i < iterations; i++) {
+            GridMap searched = map;
+
+            if (run == Run.INITIAL) {
+                pathfinder = algorithm.create(diagonal, heuristic);
+            } else if (run == Run.REPLAN) {
+                pathfinder = algorithm.create(diagonal, heuristic);
+                searched = new GridMap(map);
+                editNearPath(searched, pathfinder.findPath(searched, map.getStart(), map.getGoal()).getPath());
+            }
+
+            long allocatedBefore = getAllocatedBytes();
+            long startTime = System.nanoTime();
+
+            result = pathfinder.findPath(searched, map.getStart(), map.getGoal());
+
+            long time = System.nanoTime() - startTime;
+            if (i >= 0) {
+                latencies[i] = time;
+                allocated += getAllocatedBytes() - allocatedBefore;
+                totalTime += time;
+            }
+        }
+
+        Arrays.sort(latencies);
+
+        return new String[]{
+                algorithm.name(),
+                heuristic == null ? "-" : heuristic.name(),
+                String.valueOf(diagonal),
+                String.valueOf(map.getWidth()),
+                pattern.name(),
+                run.name(),
+                format(iterations / (totalTime / 1e9)),
+                format(totalTime / 1e6 / iterations),
+                format(latencies[iterations / 2] / 1e6),
+                format(latencies[Math.min(iterations - 1, (int) Math.ceil(iterations * 0.99) - 1)] / 1e6),
+                String.valueOf(allocated / iterations),
+                String.valueOf(result.getStatistics().getNodesExpanded()),
+                String.valueOf(result.getStatistics().getNodesGenerated()),
+                String.valueOf(result.getStatistics().getPeakOpenSize()),
+                String.valueOf(result.getStatistics().getHeuristicCalls()),
+                result.isFound() ? format(result.getCost()) : "-"
+        };
+    }
+
+    /**
+     * Opens the blocked cell next to the path that is closest to its middle, or blocks the middle of the path if no cell
+     * next to it is blocked, so that a search after the edit has to change the path.
+     *
+     * @param map  The map to edit.
+     * @param path The path found on the map before the edit.
+     */
+    private static void editNearPath(GridMap map, int[] path) {
+        int middle = path.length / 2;
+
+        for (int offset = 0; offset <= middle; offset++) {
+            for (int index : new int[]{middle - offset, middle + offset}) {
+                if (index < 0 || index >= path.length) {
+                    continue;
+                }
+
+                int x = map.getX(path[index]), y = map.getY(path[index]);
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (map.inBounds(x + dx, y + dy) && map.isBlocked(x + dx, y + dy)) {
+                            map.setBlocked(x + dx, y + dy, false);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (path.length > 2) {
+            map.setBlocked(path[middle], true);
+        }
+    }
+
+    /**
+     * Gets the amount of bytes allocated by the current thread, or 0 if the JVM does not support measuring it.
+     *
+     * @return The amount of bytes allocated.
+     */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static void printRow(String[] row) {
+        System.out.printf("%-24s %-10s %-8s %6s %-6s %-8s %12s %10s %10s %10s %12s %10s %10s %10s %10s %10s%n", (Object[]) row);
+    }
+
+    /**
+     * Parses a comma separated option, using the defaults if the option was not given.
+     */
+    private static <T> List<T> parse(String option, T[] defaults, java.util.function.Function<String, T> parser) {
+        if (option == null) {
+            return Arrays.asList(defaults);
+        }
+
+        List<T> values = new ArrayList<>();
+        for (String value : option.split(",")) {
+            values.add(parser.apply(defaults[0] instanceof Enum ? value.trim().toUpperCase(Locale.ROOT) : value.trim()));
+        }
+        return values;
+    }
+
+}
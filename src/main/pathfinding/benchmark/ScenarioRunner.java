@@ -0,0 +1,287 @@
+package main.pathfinding.benchmark;
+
+import main.pathfinding.GridMap;
+import main.pathfinding.PathQuery;
+import main.pathfinding.Pathfinder;
+import main.pathfinding.SearchResult;
+import main.pathfinding.impl.Algorithm;
+import main.pathfinding.impl.Heuristics;
+import main.pathfinding.impl.LandmarkTable;
+import main.pathfinding.saving.MovingAiFormat;
+import main.pathfinding.saving.MovingAiScenario;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Headless runner for Moving AI scenario files, which searches every scenario with a single algorithm and reports the
+ * timing, the work done and how the path lengths compare to the optimal lengths of each bucket.
+ * <p>
+ * The optimal lengths of the benchmark sets are for 8 directional movement that may not cut corners, while the
+ * algorithms here may move diagonally past blocked corners. Paths found with diagonal movement can therefore be shorter
+ * than the listed optimum, which is counted separately from paths that are longer. Without diagonal movement the lengths
+ * are not compared at all. Options are passed as {@code --name=value}, for example:
+ * <pre>
+ * java -cp PathFinding.jar main.pathfinding.benchmark.ScenarioRunner --scen=maps/arena.map.scen --algorithm=astar
+ * </pre>
+ * Options: {@code scen} (required), {@code maps} (the directory of the map files, defaults to the directory of the
+ * scenario file), {@code algorithm}, {@code heuristic}, {@code diagonal}, {@code warmup} (the amount of scenarios run
+ * before measuring), {@code csv} (a file to also write the results to), and {@code landmarks} and {@code selection}
+ * (the amount of landmarks and how they are placed for the landmarks heuristic).
+ *
+ * @author Matthew Lillie
+ */
+public class ScenarioRunner {
+
+    /**
+     * The header of the results table.
+     */
+    private static final String[] COLUMNS = {"bucket", "scenarios", "solved", "optimal", "shorter", "longer",
+            "mean ms", "p50 ms", "max ms", "expanded", "generated", "peak open"};
+
+    /**
+     * The largest difference between two lengths that are considered the same.
+     */
+    private static final double LENGTH_TOLERANCE = 1e-3;
+
+    private final File scenarioFile;
+    private final File mapDirectory;
+    private final Algorithm algorithm;
+    private final Heuristics heuristic;
+    private final boolean diagonal;
+    private final int warmup;
+    private final String csv;
+    private final LandmarkTable.Configuration landmarks;
+
+    /**
+     * The maps loaded so far, by name.
+     */
+    private final Map<String, GridMap> maps = new HashMap<>();
+
+    private ScenarioRunner(Map<String, String> options) {
+        if (!options.containsKey("scen")) {
+            throw new IllegalArgumentException("Missing --scen=<scenario file>");
+        }
+
+        this.scenarioFile = new File(options.get("scen"));
+        this.mapDirectory = options.containsKey("maps")
+                ? new File(options.get("maps")) : scenarioFile.getAbsoluteFile().getParentFile();
+        this.algorithm = Algorithm.valueOf(options.getOrDefault("algorithm", "astar").toUpperCase(Locale.ROOT));
+        this.heuristic = Heuristics.valueOf(options.getOrDefault("heuristic", "octile").toUpperCase(Locale.ROOT));
+        this.diagonal = Boolean.parseBoolean(options.getOrDefault("diagonal", "true"));
+        this.warmup = Integer.parseInt(options.getOrDefault("warmup", "100"));
+        this.csv = options.get("csv");
+        this.landmarks = new LandmarkTable.Configuration(Integer.parseInt(options.getOrDefault("landmarks",
+                String.valueOf(LandmarkTable.DEFAULT_LANDMARKS))), LandmarkTable.Selection.valueOf(options.getOrDefault(
+                "selection", LandmarkTable.DEFAULT_SELECTION.name()).toUpperCase(Locale.ROOT)));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        new ScenarioRunner(options).run();
+    }
+
+    /**
+     * Runs every scenario and prints the results of each bucket.
+     *
+     * @throws IOException Exception may be thrown if a file could not be read or the csv file could not be written.
+     */
+    private void run() throws IOException {
+        List<MovingAiScenario> scenarios = MovingAiFormat.readScenarios(scenarioFile);
+        if (scenarios.isEmpty()) {
+            System.out.println("No scenarios in " + scenarioFile);
+            return;
+        }
+
+        Pathfinder pathfinder = algorithm.create(diagonal, heuristic, landmarks);
+
+        for (int i = 0; i < Math.min(warmup, scenarios.size()); i++) {
+            MovingAiScenario scenario = scenarios.get(i);
+            GridMap map = getMap(scenario);
+            PathQuery query = scenario.toQuery(map);
+            pathfinder.findPath(map, query.getStart(), query.getGoal());
+        }
+
+        // Buckets in ascending order, so the table goes from short to long paths
+        SortedMap<Integer, BucketStatistics> buckets = new TreeMap<>();
+        BucketStatistics total = new BucketStatistics();
+
+        for (MovingAiScenario scenario : scenarios) {
+            GridMap map = getMap(scenario);
+            PathQuery query = scenario.toQuery(map);
+
+            long startTime = System.nanoTime();
+            SearchResult result = pathfinder.findPath(map, query.getStart(), query.getGoal());
+            long time = System.nanoTime() - startTime;
+
+            BucketStatistics bucket = buckets.computeIfAbsent(scenario.getBucket(), b -> new BucketStatistics());
+            bucket.add(map, scenario, result, time);
+            total.add(map, scenario, result, time);
+        }
+
+        List<String[]> rows = new ArrayList<>();
+        printRow(COLUMNS);
+
+        for (Map.Entry<Integer, BucketStatistics> entry : buckets.entrySet()) {
+            String[] row = entry.getValue().toRow(String.valueOf(entry.getKey()));
+            rows.add(row);
+            printRow(row);
+        }
+
+        String[] totalRow = total.toRow("all");
+        rows.add(totalRow);
+        printRow(totalRow);
+
+        if (csv != null) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(csv))) {
+                writer.println(String.join(",", COLUMNS));
+                for (String[] row : rows) {
+                    writer.println(String.join(",", row));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the map of a scenario, loading it the first time it is used.
+     *
+     * @param scenario The scenario.
+     * @return The map.
+     * @throws IOException Exception may be thrown if the map could not be read or does not fit the scenario.
+     */
+    private GridMap getMap(MovingAiScenario scenario) throws IOException {
+        GridMap map = maps.get(scenario.getMapName());
+
+        if (map == null) {
+            File file = new File(mapDirectory, scenario.getMapName());
+
+            // Scenario files often name the map relative to another directory
+            if (!file.isFile()) {
+                file = new File(mapDirectory, new File(scenario.getMapName()).getName());
+            }
+
+            map = MovingAiFormat.readMap(file);
+            maps.put(scenario.getMapName(), map);
+        }
+
+        if (!scenario.fits(map)) {
+            throw new IOException("Scenario " + scenario.getStartX() + "," + scenario.getStartY() + " -> "
+                    + scenario.getGoalX() + "," + scenario.getGoalY() + " does not fit " + scenario.getMapName());
+        }
+
+        return map;
+    }
+
+    /**
+     * Gets the length of a path, with the diagonal moves counted in double precision so that long paths can be compared
+     * to the optimal lengths exactly.
+     *
+     * @param map  The map the path is on.
+     * @param path The path.
+     * @return The length of the path.
+     */
+    private static double getLength(GridMap map, int[] path) {
+        int straight = 0;
+        int diagonal = 0;
+
+        for (int i = 1; i < path.length; i++) {
+            if (map.isDiagonal(path[i - 1], path[i])) {
+                diagonal++;
+            } else {
+                straight++;
+            }
+        }
+
+        return straight + diagonal * Math.sqrt(2);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static void printRow(String[] row) {
+        System.out.printf("%-8s %10s %10s %10s %10s %10s %10s %10s %10s %12s %12s %10s%n", (Object[]) row);
+    }
+
+    /**
+     * The results of the scenarios of a single bucket.
+     */
+    private class BucketStatistics {
+
+        private int scenarios;
+        private int solved;
+        private int optimal;
+        private int shorter;
+        private int longer;
+
+        private long expanded;
+        private long generated;
+        private long peakOpen;
+
+        private long[] times = new long[16];
+
+        private void add(GridMap map, MovingAiScenario scenario, SearchResult result, long time) {
+            if (scenarios == times.length) {
+                times = Arrays.copyOf(times, scenarios * 2);
+            }
+            times[scenarios++] = time;
+
+            expanded += result.getStatistics().getNodesExpanded();
+            generated += result.getStatistics().getNodesGenerated();
+            peakOpen += result.getStatistics().getPeakOpenSize();
+
+            if (!result.isFound()) {
+                return;
+            }
+            solved++;
+
+            if (diagonal) {
+                double difference = getLength(map, result.getPath()) - scenario.getOptimalLength();
+
+                if (difference < -LENGTH_TOLERANCE) {
+                    shorter++;
+                } else if (difference > LENGTH_TOLERANCE) {
+                    longer++;
+                } else {
+                    optimal++;
+                }
+            }
+        }
+
+        private String[] toRow(String name) {
+            long[] sorted = Arrays.copyOf(times, scenarios);
+            Arrays.sort(sorted);
+
+            long totalTime = 0;
+            for (long time : sorted) {
+                totalTime += time;
+            }
+
+            return new String[]{
+                    name,
+                    String.valueOf(scenarios),
+                    String.valueOf(solved),
+                    diagonal ? String.valueOf(optimal) : "-",
+                    diagonal ? String.valueOf(shorter) : "-",
+                    diagonal ? String.valueOf(longer) : "-",
+                    format(totalTime / 1e6 / scenarios),
+                    format(sorted[scenarios / 2] / 1e6),
+                    format(sorted[scenarios - 1] / 1e6),
+                    String.valueOf(expanded / scenarios),
+                    String.valueOf(generated / scenarios),
+                    String.valueOf(peakOpen / scenarios)
+            };
+        }
+    }
+
+}
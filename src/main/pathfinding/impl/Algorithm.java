@@ -0,0 +1,184 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.Pathfinder;
+import main.pathfinding.impl.LandmarkTable.Configuration;
+
+/**
+ * The path finding algorithms that can be chosen, used by the settings panel and the headless tools.
+ *
+ * @author Matthew Lillie
+ */
+public enum Algorithm {
+    DEPTH_FIRST_SEARCH("Depth First Search", false) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new DepthFirstSearch(diagonalMovement);
+        }
+
+        @Override
+        public boolean usesTerrainCosts() {
+            return false;
+        }
+    },
+    BREADTH_FIRST_SEARCH("Breadth First Search", false) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new BreadthFirstSearch(diagonalMovement);
+        }
+
+        @Override
+        public boolean usesTerrainCosts() {
+            return false;
+        }
+    },
+    DIJKSTRA("Dijkstra's", false) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new Dijkstra(diagonalMovement);
+        }
+    },
+    ASTAR("Astar", true) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new Astar(diagonalMovement, heuristic, landmarks);
+        }
+    },
+    BIDIRECTIONAL_DIJKSTRA("Bidirectional Dijkstra's", false) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new BidirectionalDijkstra(diagonalMovement);
+        }
+    },
+    BIDIRECTIONAL_ASTAR("Bidirectional Astar", true) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new BidirectionalAstar(diagonalMovement, heuristic, landmarks);
+        }
+    },
+    BEAM_SEARCH("Beam Search", true) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new BeamSearch(diagonalMovement, heuristic, landmarks);
+        }
+
+        @Override
+        public boolean usesTerrainCosts() {
+            return false;
+        }
+    },
+    IDA_STAR("IDAStar", true) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new IDAStarSearch(diagonalMovement, heuristic, IDAStarSearch.DEFAULT_TABLE_SIZE, landmarks);
+        }
+    },
+    JUMP_POINT_SEARCH("Jump Point Search", false) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new JumpPointSearch(diagonalMovement);
+        }
+
+        @Override
+        public boolean usesTerrainCosts() {
+            return false;
+        }
+    },
+    JUMP_POINT_SEARCH_PLUS("Jump Point Search+", false) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new JumpPointSearchPlus(diagonalMovement);
+        }
+
+        @Override
+        public boolean usesTerrainCosts() {
+            return false;
+        }
+    },
+    HIERARCHICAL_ASTAR("Hierarchical Astar (HPA*)", false) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new HierarchicalAstar(diagonalMovement);
+        }
+
+        @Override
+        public boolean isIncremental() {
+            return true;
+        }
+    },
+    D_STAR_LITE("D* Lite", false) {
+        @Override
+        public Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks) {
+            return new DStarLite(diagonalMovement);
+        }
+
+        @Override
+        public boolean isIncremental() {
+            return true;
+        }
+    };
+
+    /**
+     * The name shown to the user.
+     */
+    private final String displayName;
+
+    /**
+     * Whether or not the algorithm makes use of a heuristic.
+     */
+    private final boolean usesHeuristic;
+
+    Algorithm(String displayName, boolean usesHeuristic) {
+        this.displayName = displayName;
+        this.usesHeuristic = usesHeuristic;
+    }
+
+    /**
+     * Creates a new instance of the algorithm using the default landmarks.
+     *
+     * @param diagonalMovement Whether or not we can move diagonally.
+     * @param heuristic        The heuristic used, ignored by algorithms that do not use one.
+     * @return The new algorithm.
+     */
+    public Pathfinder create(boolean diagonalMovement, Heuristics heuristic) {
+        return create(diagonalMovement, heuristic, Configuration.DEFAULT);
+    }
+
+    /**
+     * Creates a new instance of the algorithm.
+     *
+     * @param diagonalMovement Whether or not we can move diagonally.
+     * @param heuristic        The heuristic used, ignored by algorithms that do not use one.
+     * @param landmarks        The landmarks used by the {@link Heuristics#LANDMARKS} heuristic.
+     * @return The new algorithm.
+     */
+    public abstract Pathfinder create(boolean diagonalMovement, Heuristics heuristic, Configuration landmarks);
+
+    public boolean usesHeuristic() {
+        return usesHeuristic;
+    }
+
+    /**
+     * Checks if instances of the algorithm keep what they built from one search to the next, so that searching the same
+     * map again only repairs that state instead of searching from scratch.
+     *
+     * @return True if the algorithm keeps state between searches.
+     */
+    public boolean isIncremental() {
+        return false;
+    }
+
+    /**
+     * Checks if the algorithm takes the terrain costs of cells into account. Algorithms that treat every move as costing
+     * the same ignore terrain, so on weighted maps their paths may cost more than the cheapest one.
+     *
+     * @return True if the algorithm uses terrain costs.
+     */
+    public boolean usesTerrainCosts() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
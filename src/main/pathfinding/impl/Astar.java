@@ -1,17 +1,16 @@
 package main.pathfinding.impl;
 
-import main.pathfinding.Grid;
-import main.pathfinding.Node;
+import main.pathfinding.GridMap;
 import main.pathfinding.Pathfinder;
-
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
 
 /**
  * This class represents the A* path finding algorithm.
  * <p>
+ * On maps with terrain costs the g values and estimates are kept in fixed point and the open set is a
+ * {@link BucketQueue}, see {@link Dijkstra}.
+ * <p>
  * https://en.wikipedia.org/wiki/A*_search_algorithm
  *
  * @author Matthew Lillie
@@ -23,92 +22,166 @@ public class Astar extends Pathfinder {
      */
     private final Heuristics heuristic;
 
+    /**
+     * The landmarks used when the heuristic is {@link Heuristics#LANDMARKS}.
+     */
+    private final LandmarkTable.Configuration landmarks;
+
+    /**
+     * Constructs a new path A* finding algorithm.
+     *
+     * @param diagonalMovement Whether or not we can move diagonally.
+     * @param heuristic        The heuristic used for the algorithm.
+     */
+    public Astar(boolean diagonalMovement, Heuristics heuristic) {
+        this(diagonalMovement, heuristic, LandmarkTable.Configuration.DEFAULT);
+    }
+
     /**
      * Constructs a new path A* finding algorithm.
      *
-     * @param grid             The Grid being used for this algorithm.
      * @param diagonalMovement Whether or not we can move diagonally.
      * @param heuristic        The heuristic used for the algorithm.
+     * @param landmarks        The landmarks used by the {@link Heuristics#LANDMARKS} heuristic.
      */
-    public Astar(Grid grid, boolean diagonalMovement, Heuristics heuristic) {
-        super(grid, diagonalMovement);
+    public Astar(boolean diagonalMovement, Heuristics heuristic, LandmarkTable.Configuration landmarks) {
+        super(diagonalMovement);
         this.heuristic = heuristic;
+        this.landmarks = landmarks;
     }
 
     @Override
-    protected List<Node> doInBackground() throws Exception {
-        Map<Node, Float> gValues = new HashMap<>();
-        Map<Node, Float> fValues = new HashMap<>();
+    protected int[] search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+        if (map.isWeighted()) {
+            return searchFixed(map, start, goal, listener, statistics);
+        }
 
-        // Priority queue used to represent the open set (similar to a min heap)
-        PriorityQueue<Node> open = new PriorityQueue<>((node, node1) ->
-                Float.compare(fValues.getOrDefault(node, Float.MAX_VALUE), fValues.getOrDefault(node1, Float.MAX_VALUE))
-        );
+        SearchContext context = SearchContext.acquire(map);
+        int[] neighbors = new int[8];
+        heuristic.prepare(map, diagonalMovement, landmarks);
 
-        // Set the standard values for the starting node and add it the open set
-        gValues.put(grid.getStartNode(), 0f);
-        fValues.put(grid.getStartNode(), heuristic.calculate(grid.getStartNode(), grid.getGoalNode()) + 0f);
-        open.add(grid.getStartNode());
+        // Indexed min heap used to represent the open set, keyed by f values
+        IndexedPriorityQueue open = context.getOpen();
+
+        // Set the standard values for the starting cell and add it the open set
+        context.reach(start, 0f, -1);
+        open.addOrUpdate(start, heuristic.calculate(map, start, goal));
+        statistics.heuristicCalculated();
 
         while (!open.isEmpty()) {
 
-            Node current = open.poll();
+            int current = open.poll();
             // Found our goal, break and create the path
-            if (current == grid.getGoalNode()) {
-                return constructPath();
+            if (current == goal) {
+                return constructPath(context.getParents(), start, goal);
             }
 
             // "Close" the current
-            current.incrementTimesVisited();
+            context.close(current);
+            statistics.nodeExpanded();
+            listener.cellVisited(current);
 
             // Go through our current neighbors and run the algorithm on it
-            for (Node neighbor : getNeighbors(current)) {
+            int count = getNeighbors(map, current, neighbors);
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+
+                float tentativeG = context.getG(current) + getMovementCost(map, current, neighbor);
 
-                if (neighbor.getTimesVisited() > 0) {
+                if (tentativeG >= context.getG(neighbor)) {
                     // Done purely for visualization
-                    neighbor.incrementTimesVisited();
+                    listener.cellVisited(neighbor);
                     continue;
                 }
 
-                float tentativeG = gValues.getOrDefault(current, Float.MAX_VALUE) + getMovementCost(current, neighbor);
-
-                if (open.contains(neighbor) && tentativeG >= gValues.getOrDefault(neighbor, Float.MAX_VALUE)) {
-                    continue;
+                // Only happens when the heuristic is inconsistent, the cheaper path has to be expanded again
+                if (context.isClosed(neighbor)) {
+                    context.reopen(neighbor);
+                    statistics.nodeReopened();
                 }
 
-                if (tentativeG < gValues.getOrDefault(neighbor, Float.MAX_VALUE)) {
-                    open.remove(neighbor);
-                    gValues.put(neighbor, tentativeG);
-                    fValues.put(neighbor, heuristic.calculate(neighbor, grid.getGoalNode()) + tentativeG);
-                    neighbor.setParent(current);
-                    open.add(neighbor);
+                context.reach(neighbor, tentativeG, current);
+                open.addOrUpdate(neighbor, heuristic.calculate(map, neighbor, goal) + tentativeG);
+                statistics.heuristicCalculated();
+                statistics.nodeGenerated();
+                statistics.openSize(open.size());
+
+                // Done purely for visualization
+                listener.cellVisited(neighbor);
+            }
+
+            listener.stepFinished();
+        }
+
+        // No path found
+        return NO_PATH;
+    }
+
+    /**
+     * Runs the search with fixed point costs ordered by a {@link BucketQueue}.
+     */
+    private int[] searchFixed(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+        SearchContext context = SearchContext.acquire(map);
+        int[] neighbors = new int[8];
+        heuristic.prepare(map, diagonalMovement, landmarks);
+
+        BucketQueue open = context.getBuckets();
+
+        context.reachFixed(start, 0L, -1);
+        open.addOrUpdate(start, estimate(map, start, goal));
+        statistics.heuristicCalculated();
+
+        while (!open.isEmpty()) {
+
+            int current = open.poll();
+            if (current == goal) {
+                return constructPath(context.getParents(), start, goal);
+            }
+
+            context.close(current);
+            statistics.nodeExpanded();
+            listener.cellVisited(current);
+
+            int count = getNeighbors(map, current, neighbors);
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+
+                long tentativeG = context.getFixedG(current) + getFixedMovementCost(map, current, neighbor);
 
+                if (tentativeG >= context.getFixedG(neighbor)) {
                     // Done purely for visualization
-                    neighbor.incrementTimesVisited();
+                    listener.cellVisited(neighbor);
+                    continue;
                 }
-            }
 
-            Thread.sleep(15);
-            grid.repaint();
+                if (context.isClosed(neighbor)) {
+                    context.reopen(neighbor);
+                    statistics.nodeReopened();
+                }
 
+                context.reachFixed(neighbor, tentativeG, current);
+                open.addOrUpdate(neighbor, estimate(map, neighbor, goal) + tentativeG);
+                statistics.heuristicCalculated();
+                statistics.nodeGenerated();
+                statistics.openSize(open.size());
+
+                // Done purely for visualization
+                listener.cellVisited(neighbor);
+            }
+
+            listener.stepFinished();
         }
 
-        // No path found, return null
-        return null;
+        // No path found
+        return NO_PATH;
     }
 
     /**
-     * Calculates the cost of going from one node to the next
-     *
-     * @param one The first Node
-     * @param two The second Node
-     * @return If the movement is diagonal, it will return the cost of moving diagonally otherwise straight.
+     * Estimates the cost to the goal in fixed point, rounded down by a unit so that rounding errors of the float
+     * estimate never make it larger than the fixed point cost.
      */
-    private float getMovementCost(Node one, Node two) {
-        boolean diagonal = Math.abs(one.getX() - two.getX()) != 0 &&
-                Math.abs(one.getY() - two.getY()) != 0;
-
-        return diagonal ? Heuristics.DIAGONAL_COST : Heuristics.STRAIGHT_COST;
+    private long estimate(GridMap map, int cell, int goal) {
+        return Math.max(0L, (long) (heuristic.calculate(map, cell, goal) * Heuristics.FIXED_POINT_SCALE) - 1);
     }
 
 }
@@ -1,10 +1,9 @@
 package main.pathfinding.impl;
 
-import main.pathfinding.Grid;
-import main.pathfinding.Node;
+import main.pathfinding.GridMap;
 import main.pathfinding.Pathfinder;
-
-import java.util.*;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
 
 /**
  * Implementation of the BeamSearch algorithm
@@ -20,67 +19,97 @@ public class BeamSearch extends Pathfinder {
      */
     private final Heuristics heuristic;
 
+    /**
+     * The landmarks used when the heuristic is {@link Heuristics#LANDMARKS}.
+     */
+    private final LandmarkTable.Configuration landmarks;
+
+    /**
+     * Constructs a new Pathfinder
+     *
+     * @param diagonalMovement If the neighbors found are allowed to be diagonal
+     * @param heuristic        The heuristic used for the algorithm.
+     */
+    public BeamSearch(boolean diagonalMovement, Heuristics heuristic) {
+        this(diagonalMovement, heuristic, LandmarkTable.Configuration.DEFAULT);
+    }
+
     /**
      * Constructs a new Pathfinder
      *
-     * @param grid             The Grid used for the algorithm.
      * @param diagonalMovement If the neighbors found are allowed to be diagonal
      * @param heuristic        The heuristic used for the algorithm.
+     * @param landmarks        The landmarks used by the {@link Heuristics#LANDMARKS} heuristic.
      */
-    public BeamSearch(Grid grid, boolean diagonalMovement, Heuristics heuristic) {
-        super(grid, diagonalMovement);
+    public BeamSearch(boolean diagonalMovement, Heuristics heuristic, LandmarkTable.Configuration landmarks) {
+        super(diagonalMovement);
         this.heuristic = heuristic;
+        this.landmarks = landmarks;
     }
 
     @Override
-    protected List<Node> doInBackground() throws Exception {
-        Set<Node> beam = new HashSet<>();
-        PriorityQueue<Node> set = new PriorityQueue<>(Comparator.comparing(node ->
-                heuristic.calculate(node, grid.getGoalNode())));
-
+    protected int[] search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
         int beamWidth = diagonalMovement ? 8 : 4;
 
-        beam.add(grid.getStartNode());
+        // Cells are closed once they enter the beam, the candidates of the next beam are keyed by their heuristic
+        SearchContext context = SearchContext.acquire(map);
+        IndexedPriorityQueue set = context.getOpen();
+        int[] neighbors = new int[8];
+        heuristic.prepare(map, diagonalMovement, landmarks);
 
-        while (!beam.isEmpty()) {
+        int[] beam = new int[beamWidth];
+        int beamSize = 0;
 
-            for (Node node : beam) {
-                for (Node neighbor : getNeighbors(node)) {
-                    if (neighbor.getTimesVisited() == 0) {
-                        neighbor.setParent(node);
-                    }
+        beam[beamSize++] = start;
+        context.close(start);
+
+        while (beamSize > 0) {
+
+            for (int b = 0; b < beamSize; b++) {
+                int cell = beam[b];
+
+                if (cell == goal) {
+                    return constructPath(context.getParents(), start, goal);
+                }
 
-                    if (node == grid.getGoalNode()) {
-                        return constructPath();
+                statistics.nodeExpanded();
+
+                int count = getNeighbors(map, cell, neighbors);
+                for (int i = 0; i < count; i++) {
+                    int neighbor = neighbors[i];
+
+                    if (context.isClosed(neighbor)) {
+                        continue;
                     }
 
-                    set.add(neighbor);
+                    float h = heuristic.calculate(map, neighbor, goal);
+                    statistics.heuristicCalculated();
+                    context.reach(neighbor, h, cell);
+                    set.addOrUpdate(neighbor, h);
+                    statistics.nodeGenerated();
                 }
             }
 
-            beam.clear();
+            statistics.openSize(set.size());
 
-            // Only allow beamWidth items into the true open (beam) set
-            while (!set.isEmpty() && beamWidth > beam.size()) {
-                Node state = set.poll();
+            beamSize = 0;
 
-                if (state == null) {
-                    continue;
-                }
+            // Only allow beamWidth items into the true open (beam) set
+            while (!set.isEmpty() && beamWidth > beamSize) {
+                int state = set.poll();
 
-                if (state.getTimesVisited() == 0) {
-                    beam.add(state);
+                if (!context.isClosed(state)) {
+                    context.close(state);
+                    beam[beamSize++] = state;
                 }
 
-                state.incrementTimesVisited();
+                listener.cellVisited(state);
             }
 
-            // Clear and paint
             set.clear();
-            Thread.sleep(15);
-            grid.repaint();
+            listener.stepFinished();
         }
 
-        return null;
+        return NO_PATH;
     }
 }
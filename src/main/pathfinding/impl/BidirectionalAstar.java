@@ -0,0 +1,194 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.GridMap;
+import main.pathfinding.Pathfinder;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
+
+import java.util.Arrays;
+
+/**
+ * This class represents bidirectional A*, searching forwards from the start and backwards from the goal at the same time.
+ * <p>
+ * Every move can be made in both directions at the same cost, so the backward search uses the same neighbors and costs
+ * as the forward search. The side with the smaller open set is expanded next. Both sides use the average of the two
+ * heuristics, half the estimate to the goal minus half the estimate to the start for the forward side and its negative for
+ * the backward side, which keeps them consistent with each other. The cheapest path through any cell labelled by both
+ * searches is remembered, and the search stops once the smallest keys of both open sets add up to at least its cost.
+ * <p>
+ * https://en.wikipedia.org/wiki/Bidirectional_search
+ *
+ * @author Matthew Lillie
+ */
+public class BidirectionalAstar extends Pathfinder {
+
+    /**
+     * The heuristic being used for the algorithm, or null when searching without one.
+     */
+    private final Heuristics heuristic;
+
+    /**
+     * The landmarks used when the heuristic is {@link Heuristics#LANDMARKS}.
+     */
+    private final LandmarkTable.Configuration landmarks;
+
+    /**
+     * Constructs a new bidirectional A* path finding algorithm.
+     *
+     * @param diagonalMovement Whether or not we can move diagonally.
+     * @param heuristic        The heuristic used for the algorithm, or null to search without one.
+     */
+    public BidirectionalAstar(boolean diagonalMovement, Heuristics heuristic) {
+        this(diagonalMovement, heuristic, LandmarkTable.Configuration.DEFAULT);
+    }
+
+    /**
+     * Constructs a new bidirectional A* path finding algorithm.
+     *
+     * @param diagonalMovement Whether or not we can move diagonally.
+     * @param heuristic        The heuristic used for the algorithm, or null to search without one.
+     * @param landmarks        The landmarks used by the {@link Heuristics#LANDMARKS} heuristic.
+     */
+    public BidirectionalAstar(boolean diagonalMovement, Heuristics heuristic, LandmarkTable.Configuration landmarks) {
+        super(diagonalMovement);
+        this.heuristic = heuristic;
+        this.landmarks = landmarks;
+    }
+
+    @Override
+    protected int[] search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+        if (heuristic != null) {
+            heuristic.prepare(map, diagonalMovement, landmarks);
+        }
+
+        Frontier forward = new Frontier(map, 0, start, goal, statistics);
+        Frontier backward = new Frontier(map, 1, goal, start, statistics);
+        int[] neighbors = new int[8];
+
+        // The cost of the best path found so far and the cell where its two halves meet
+        float best = start == goal ? 0f : Float.MAX_VALUE;
+        int meeting = start == goal ? start : -1;
+
+        while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+            float forwardKey = forward.open.getKey(forward.open.peek());
+            float backwardKey = backward.open.getKey(backward.open.peek());
+
+            // The two potentials cancel out, so the keys bound the cost of any path through the open sets
+            if (forwardKey + backwardKey >= best) {
+                break;
+            }
+
+            Frontier frontier = forward.open.size() <= backward.open.size() ? forward : backward;
+            Frontier other = frontier == forward ? backward : forward;
+
+            int current = frontier.open.poll();
+            frontier.context.close(current);
+            statistics.nodeExpanded();
+            listener.cellVisited(current);
+
+            int count = getNeighbors(map, current, neighbors);
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+
+                float tentativeG = frontier.context.getG(current) + getMovementCost(map, current, neighbor);
+
+                if (tentativeG < frontier.context.getG(neighbor)) {
+                    // Only happens when the heuristic is inconsistent, the cheaper path has to be expanded again
+                    if (frontier.context.isClosed(neighbor)) {
+                        frontier.context.reopen(neighbor);
+                        statistics.nodeReopened();
+                    }
+
+                    frontier.context.reach(neighbor, tentativeG, current);
+                    frontier.open.addOrUpdate(neighbor, tentativeG + frontier.potential(map, neighbor, statistics));
+                    statistics.nodeGenerated();
+                    statistics.openSize(forward.open.size() + backward.open.size());
+                }
+
+                // The neighbor has been reached from both ends, check if it joins a cheaper path
+                if (other.context.isReached(neighbor)
+                        && frontier.context.getG(neighbor) + other.context.getG(neighbor) < best) {
+                    best = frontier.context.getG(neighbor) + other.context.getG(neighbor);
+                    meeting = neighbor;
+                }
+
+                // Done purely for visualization
+                listener.cellVisited(neighbor);
+            }
+
+            listener.stepFinished();
+        }
+
+        if (meeting == -1) {
+            return NO_PATH;
+        }
+
+        return joinPath(forward.context.getParents(), backward.context.getParents(), start, meeting, goal);
+    }
+
+    /**
+     * Joins the path from the start to the meeting cell with the path from the meeting cell to the goal.
+     *
+     * @param forwardParents  The parents found by the forward search.
+     * @param backwardParents The parents found by the backward search, which point towards the goal.
+     * @param start           The start cell.
+     * @param meeting         The cell where both searches met.
+     * @param goal            The goal cell.
+     * @return A path from the start cell to the goal cell.
+     */
+    private int[] joinPath(int[] forwardParents, int[] backwardParents, int start, int meeting, int goal) {
+        int[] firstHalf = constructPath(forwardParents, start, meeting);
+
+        int length = firstHalf.length;
+        for (int current = meeting; current != goal; current = backwardParents[current]) {
+            length++;
+        }
+
+        int[] path = Arrays.copyOf(firstHalf, length);
+        int index = firstHalf.length;
+        for (int current = meeting; current != goal; ) {
+            current = backwardParents[current];
+            path[index++] = current;
+        }
+
+        return path;
+    }
+
+    /**
+     * The state of a search from one end towards the other.
+     */
+    private class Frontier {
+
+        /**
+         * The cell this side of the search started from and the cell it is heading towards.
+         */
+        private final int source, target;
+
+        private final SearchContext context;
+        private final IndexedPriorityQueue open;
+
+        private Frontier(GridMap map, int index, int source, int target, SearchStatistics statistics) {
+            this.source = source;
+            this.target = target;
+            this.context = SearchContext.acquire(map, index);
+            this.open = context.getOpen();
+
+            context.reach(source, 0f, -1);
+            open.addOrUpdate(source, potential(map, source, statistics));
+        }
+
+        /**
+         * Calculates the average heuristic of a cell for this side, always zero when searching without a heuristic.
+         */
+        private float potential(GridMap map, int cell, SearchStatistics statistics) {
+            if (heuristic == null) {
+                return 0f;
+            }
+
+            statistics.heuristicCalculated();
+            statistics.heuristicCalculated();
+            return (heuristic.calculate(map, cell, target) - heuristic.calculate(map, cell, source)) / 2f;
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package main.pathfinding.impl;
+
+/**
+ * This class represents bidirectional Dijkstra's, searching outwards from the start and the goal at the same time.
+ * <p>
+ * The search stops once the smallest distances within both open sets add up to at least the cost of the best path found
+ * where the two searches meet.
+ *
+ * @author Matthew Lillie
+ */
+public class BidirectionalDijkstra extends BidirectionalAstar {
+
+    /**
+     * Constructs a new bidirectional Dijkstra's path finding algorithm.
+     *
+     * @param diagonalMovement Whether or not we can move diagonally.
+     */
+    public BidirectionalDijkstra(boolean diagonalMovement) {
+        super(diagonalMovement, null);
+    }
+
+}
@@ -1,12 +1,9 @@
 package main.pathfinding.impl;
 
-import main.pathfinding.Grid;
-import main.pathfinding.Node;
+import main.pathfinding.GridMap;
 import main.pathfinding.Pathfinder;
-
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
 
 /**
  * This class represents the Breadth First Search path finding algorithm.
@@ -17,38 +14,49 @@ import java.util.Queue;
  */
 public class BreadthFirstSearch extends Pathfinder {
 
-    public BreadthFirstSearch(Grid grid, boolean diagonalMovement) {
-        super(grid, diagonalMovement);
+    public BreadthFirstSearch(boolean diagonalMovement) {
+        super(diagonalMovement);
     }
 
     @Override
-    protected List<Node> doInBackground() throws Exception {
-        Queue<Node> open = new LinkedList<>();
-        open.add(grid.getStartNode());
+    protected int[] search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+        SearchContext context = SearchContext.acquire(map);
+        int[] neighbors = new int[8];
+
+        // Every cell is queued at most once, so a flat array is enough for the queue
+        int[] open = context.getCells();
+        int head = 0, tail = 0;
 
-        grid.getStartNode().incrementTimesVisited();
+        open[tail++] = start;
+        context.reach(start, 0f, -1);
+        listener.cellVisited(start);
 
-        while (!open.isEmpty()) {
-            Node current = open.poll();
+        while (head < tail) {
+            int current = open[head++];
 
-            if (current == grid.getGoalNode()) {
-                return constructPath();
+            if (current == goal) {
+                return constructPath(context.getParents(), start, goal);
             }
 
-            for (Node neighbor : getNeighbors(current)) {
-                if (neighbor.getTimesVisited() == 0) {
-                    neighbor.setParent(current);
-                    open.offer(neighbor);
-                }
+            statistics.nodeExpanded();
 
-                neighbor.incrementTimesVisited();
+            int count = getNeighbors(map, current, neighbors);
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+
+                if (!context.isReached(neighbor)) {
+                    context.reach(neighbor, 0f, current);
+                    open[tail++] = neighbor;
+                    statistics.nodeGenerated();
+                    statistics.openSize(tail - head);
+                }
 
+                listener.cellVisited(neighbor);
             }
 
-            Thread.sleep(15);
-            grid.repaint();
+            listener.stepFinished();
         }
 
-        return null;
+        return NO_PATH;
     }
 }
@@ -0,0 +1,244 @@
+package main.pathfinding.impl;
+
+import java.util.Arrays;
+
+/**
+ * A monotone bucket queue (Dial's algorithm) of cell ids ordered by a long key, for searches whose costs are small
+ * integers.
+ * <p>
+ * Each key has a bucket holding a doubly linked list of its cells, threaded through arrays indexed by cell id, so adding,
+ * updating and removing a cell take constant time. The buckets form a ring covering the keys from the smallest queued
+ * key onwards, which grows whenever the queued keys no longer fit. A bit per bucket tells which buckets hold cells, so
+ * polling skips 64 empty buckets at a time. The ring only stays small while keys stay close to the key last polled, as
+ * they do in Dijkstra and A* where they never grow by more than the largest step cost plus the heuristic.
+ *
+ * @author Matthew Lillie
+ */
+public class BucketQueue {
+
+    /**
+     * The amount of buckets the ring starts with.
+     */
+    private static final int INITIAL_BUCKETS = 1 << 10;
+
+    /**
+     * Marks the end of a list, and a cell that is not queued.
+     */
+    private static final int NONE = -1;
+    private static final int NOT_QUEUED = -2;
+
+    /**
+     * The next and previous cell within the bucket of each cell, and the key each cell was last queued with.
+     */
+    private final int[] next;
+    private final int[] previous;
+    private final long[] keys;
+
+    /**
+     * The first cell of each bucket, and a bit for each bucket telling if it holds any cells.
+     */
+    private int[] heads;
+    private long[] occupied;
+    private int mask;
+
+    /**
+     * No queued key is below the minimum or above the maximum, the bucket of the minimum is where polling starts looking.
+     */
+    private long minKey;
+    private long maxKey;
+
+    /**
+     * The amount of cells within the queue.
+     */
+    private int size;
+
+    /**
+     * Constructs a new queue that can hold cell ids from 0 up to the capacity.
+     *
+     * @param capacity The amount of cells on the map.
+     */
+    public BucketQueue(int capacity) {
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.keys = new long[capacity];
+        Arrays.fill(previous, NOT_QUEUED);
+
+        this.heads = new int[INITIAL_BUCKETS];
+        this.occupied = new long[INITIAL_BUCKETS >>> 6];
+        this.mask = INITIAL_BUCKETS - 1;
+        Arrays.fill(heads, NONE);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if a cell is queued.
+     *
+     * @param cell The cell id.
+     * @return True if the cell is queued.
+     */
+    public boolean contains(int cell) {
+        return previous[cell] != NOT_QUEUED;
+    }
+
+    /**
+     * Gets the key a cell was last queued with.
+     *
+     * @param cell The cell id.
+     * @return The key of the cell.
+     */
+    public long getKey(int cell) {
+        return keys[cell];
+    }
+
+    /**
+     * Adds a cell to the queue, or updates its key if it is already queued.
+     *
+     * @param cell The cell id.
+     * @param key  The new key of the cell.
+     */
+    public void addOrUpdate(int cell, long key) {
+        if (contains(cell)) {
+            unlink(cell);
+        } else {
+            size++;
+        }
+
+        if (size == 1) {
+            minKey = key;
+            maxKey = key;
+        } else {
+            minKey = Math.min(minKey, key);
+            maxKey = Math.max(maxKey, key);
+        }
+
+        while (maxKey - minKey > mask) {
+            grow();
+        }
+
+        keys[cell] = key;
+        link(cell);
+    }
+
+    /**
+     * Removes the cell with the smallest key.
+     *
+     * @return The cell id.
+     */
+    public int poll() {
+        int bucket = (int) minKey & mask;
+
+        // Skip whole words of empty buckets, wrapping around the end of the ring
+        long word = occupied[bucket >>> 6] & -1L << bucket;
+        while (word == 0) {
+            minKey += 64 - (bucket & 63);
+            bucket = (int) minKey & mask;
+            word = occupied[bucket >>> 6];
+        }
+        minKey += Long.numberOfTrailingZeros(word) - (bucket & 63);
+
+        int cell = heads[(int) minKey & mask];
+        unlink(cell);
+        previous[cell] = NOT_QUEUED;
+        size--;
+        return cell;
+    }
+
+    /**
+     * Removes a cell from the queue, doing nothing if it is not queued.
+     *
+     * @param cell The cell id.
+     */
+    public void remove(int cell) {
+        if (!contains(cell)) {
+            return;
+        }
+
+        unlink(cell);
+        previous[cell] = NOT_QUEUED;
+        size--;
+    }
+
+    /**
+     * Removes every cell from the queue.
+     */
+    public void clear() {
+        for (int word = 0; word < occupied.length && size > 0; word++) {
+            for (long bits = occupied[word]; bits != 0; bits &= bits - 1) {
+                int bucket = word << 6 | Long.numberOfTrailingZeros(bits);
+
+                for (int cell = heads[bucket]; cell != NONE; cell = next[cell]) {
+                    previous[cell] = NOT_QUEUED;
+                    size--;
+                }
+                heads[bucket] = NONE;
+            }
+            occupied[word] = 0;
+        }
+    }
+
+    private void link(int cell) {
+        int bucket = (int) keys[cell] & mask;
+        int head = heads[bucket];
+
+        next[cell] = head;
+        previous[cell] = NONE;
+        if (head != NONE) {
+            previous[head] = cell;
+        }
+
+        heads[bucket] = cell;
+        occupied[bucket >>> 6] |= 1L << bucket;
+    }
+
+    private void unlink(int cell) {
+        int before = previous[cell];
+        int after = next[cell];
+
+        if (before == NONE) {
+            int bucket = (int) keys[cell] & mask;
+            heads[bucket] = after;
+            if (after == NONE) {
+                occupied[bucket >>> 6] &= ~(1L << bucket);
+            }
+        } else {
+            next[before] = after;
+        }
+
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+
+    /**
+     * Doubles the amount of buckets, moving every queued cell into its bucket in the larger ring.
+     */
+    private void grow() {
+        int[] oldHeads = heads;
+        long[] oldOccupied = occupied;
+
+        heads = new int[oldHeads.length * 2];
+        occupied = new long[oldOccupied.length * 2];
+        mask = heads.length - 1;
+        Arrays.fill(heads, NONE);
+
+        for (int word = 0; word < oldOccupied.length; word++) {
+            for (long bits = oldOccupied[word]; bits != 0; bits &= bits - 1) {
+                int cell = oldHeads[word << 6 | Long.numberOfTrailingZeros(bits)];
+
+                while (cell != NONE) {
+                    int following = next[cell];
+                    link(cell);
+                    cell = following;
+                }
+            }
+        }
+    }
+
+}
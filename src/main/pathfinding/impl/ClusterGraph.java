@@ -0,0 +1,636 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.EditHistory;
+import main.pathfinding.GridMap;
+import main.pathfinding.Pathfinder;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
+
+import java.util.Arrays;
+
+/**
+ * The abstract graph used by {@link HierarchicalAstar}, which splits a map into square clusters and connects them
+ * through the entrances along their borders.
+ * <p>
+ * Every maximal run of open cell pairs along a border is an entrance, short entrances get a transition in their middle
+ * and long entrances one at each end. Since diagonal moves may cut corners, a diagonal crossing whose two corner cells
+ * are both blocked also gets its own transition, including crossings through the corner of four clusters. The cells of
+ * the transitions are the nodes of the graph, connected to the nodes of the neighboring cluster by the crossing move and
+ * to the other nodes of their own cluster by the shortest path within the cluster.
+ * <p>
+ * The graph remembers the {@link EditHistory} and version of the map it was built from. When the map has been edited
+ * since, only the clusters overlapping the edited areas are rebuilt, along with any neighbor whose shared border changed.
+ *
+ * @author Matthew Lillie
+ */
+public class ClusterGraph {
+
+    /**
+     * The width and height of the clusters unless told otherwise.
+     */
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+    /**
+     * Entrances at least this long get a transition at both ends instead of one in the middle.
+     */
+    private static final int LONG_ENTRANCE = 6;
+
+    /**
+     * The x and y offsets of each direction, in the same order as the successor masks of {@link GridMap}.
+     */
+    private static final int[] DIRECTION_X = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DIRECTION_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    private static final int[] NO_TRANSITIONS = new int[0];
+
+    /**
+     * The width and height of the clusters in cells.
+     */
+    private final int clusterSize;
+
+    /**
+     * Whether or not we can move diagonally.
+     */
+    private final boolean diagonalMovement;
+
+    /**
+     * The history and version of the map the graph was built from.
+     */
+    private EditHistory history;
+    private int version;
+
+    /**
+     * The size of the map and the amount of clusters along each axis.
+     */
+    private int width, height;
+    private int clustersX, clustersY;
+
+    /**
+     * The transitions across each border as pairs of cells, indexed by the cluster to the left of or above the border.
+     * The corners hold the diagonal crossings between the cluster and the clusters below and to its right.
+     */
+    private int[][] verticalBorders;
+    private int[][] horizontalBorders;
+    private int[][] cornerBorders;
+
+    private Cluster[] clusters;
+
+    /**
+     * The amount of clusters rebuilt by the last update.
+     */
+    private int rebuiltClusters;
+
+    /**
+     * Searches within a single cluster.
+     */
+    private final LocalSearch local;
+
+    /**
+     * Holds the transitions of a border while it is being scanned.
+     */
+    private final int[] scratch;
+
+    /**
+     * Throwaway statistics for the searches done while building the graph.
+     */
+    private final SearchStatistics buildStatistics = new SearchStatistics();
+
+    /**
+     * Constructs a new, empty graph.
+     *
+     * @param clusterSize      The width and height of the clusters in cells.
+     * @param diagonalMovement Whether or not we can move diagonally.
+     */
+    public ClusterGraph(int clusterSize, boolean diagonalMovement) {
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("Invalid cluster size: " + clusterSize);
+        }
+
+        this.clusterSize = clusterSize;
+        this.diagonalMovement = diagonalMovement;
+        this.local = new LocalSearch();
+        this.scratch = new int[clusterSize * 8];
+    }
+
+    /**
+     * Brings the graph up to date with a map, rebuilding only the clusters affected by edits made since the last update
+     * when the edits are known.
+     *
+     * @param map The map.
+     */
+    public void update(GridMap map) {
+        boolean sameMap = clusters != null && map.getHistory() == history
+                && map.getWidth() == width && map.getHeight() == height;
+
+        if (sameMap && map.getVersion() == version) {
+            rebuiltClusters = 0;
+            return;
+        }
+
+        int[] edits = sameMap ? history.getEditsBetween(version, map.getVersion()) : null;
+        if (edits == null) {
+            build(map);
+        } else {
+            repair(map, edits);
+        }
+
+        history = map.getHistory();
+        version = map.getVersion();
+    }
+
+    /**
+     * Builds every border and cluster from scratch.
+     */
+    private void build(GridMap map) {
+        width = map.getWidth();
+        height = map.getHeight();
+        clustersX = (width + clusterSize - 1) / clusterSize;
+        clustersY = (height + clusterSize - 1) / clusterSize;
+
+        int count = clustersX * clustersY;
+        verticalBorders = new int[count][];
+        horizontalBorders = new int[count][];
+        cornerBorders = new int[count][];
+        clusters = new Cluster[count];
+
+        for (int index = 0; index < count; index++) {
+            verticalBorders[index] = scanVertical(map, index % clustersX, index / clustersX);
+            horizontalBorders[index] = scanHorizontal(map, index % clustersX, index / clustersX);
+            cornerBorders[index] = scanCorner(map, index % clustersX, index / clustersX);
+        }
+
+        for (int index = 0; index < count; index++) {
+            clusters[index] = assemble(map, index);
+        }
+        rebuiltClusters = count;
+    }
+
+    /**
+     * Rebuilds the clusters overlapping the edited areas, and the neighbors whose shared borders changed.
+     *
+     * @param map   The map.
+     * @param edits The edited areas, as returned by {@link EditHistory#getEditsBetween(int, int)}.
+     */
+    private void repair(GridMap map, int[] edits) {
+        boolean[] edited = new boolean[clusters.length];
+        for (int i = 0; i < edits.length; i += 4) {
+            for (int y = edits[i + 1] / clusterSize; y <= edits[i + 3] / clusterSize; y++) {
+                for (int x = edits[i] / clusterSize; x <= edits[i + 2] / clusterSize; x++) {
+                    edited[y * clustersX + x] = true;
+                }
+            }
+        }
+
+        boolean[] rebuild = edited.clone();
+        for (int y = 0; y < clustersY; y++) {
+            for (int x = 0; x < clustersX; x++) {
+                int index = y * clustersX + x;
+                boolean right = x + 1 < clustersX;
+                boolean below = y + 1 < clustersY;
+
+                if (right && (edited[index] || edited[index + 1])) {
+                    int[] transitions = scanVertical(map, x, y);
+                    if (!Arrays.equals(transitions, verticalBorders[index])) {
+                        verticalBorders[index] = transitions;
+                        rebuild[index] = rebuild[index + 1] = true;
+                    }
+                }
+
+                if (below && (edited[index] || edited[index + clustersX])) {
+                    int[] transitions = scanHorizontal(map, x, y);
+                    if (!Arrays.equals(transitions, horizontalBorders[index])) {
+                        horizontalBorders[index] = transitions;
+                        rebuild[index] = rebuild[index + clustersX] = true;
+                    }
+                }
+
+                if (right && below && (edited[index] || edited[index + 1]
+                        || edited[index + clustersX] || edited[index + clustersX + 1])) {
+                    int[] transitions = scanCorner(map, x, y);
+                    if (!Arrays.equals(transitions, cornerBorders[index])) {
+                        cornerBorders[index] = transitions;
+                        rebuild[index] = rebuild[index + 1] = true;
+                        rebuild[index + clustersX] = rebuild[index + clustersX + 1] = true;
+                    }
+                }
+            }
+        }
+
+        rebuiltClusters = 0;
+        for (int index = 0; index < clusters.length; index++) {
+            if (rebuild[index]) {
+                clusters[index] = assemble(map, index);
+                rebuiltClusters++;
+            }
+        }
+    }
+
+    /**
+     * Finds the transitions across the border between a cluster and the cluster to its right.
+     */
+    private int[] scanVertical(GridMap map, int clusterX, int clusterY) {
+        int left = (clusterX + 1) * clusterSize - 1;
+        if (left + 1 >= width) {
+            return NO_TRANSITIONS;
+        }
+
+        int top = clusterY * clusterSize;
+        return scanBorder(map, left, top, left + 1, top, 0, 1, Math.min(clusterSize, height - top));
+    }
+
+    /**
+     * Finds the transitions across the border between a cluster and the cluster below it.
+     */
+    private int[] scanHorizontal(GridMap map, int clusterX, int clusterY) {
+        int top = (clusterY + 1) * clusterSize - 1;
+        if (top + 1 >= height) {
+            return NO_TRANSITIONS;
+        }
+
+        int left = clusterX * clusterSize;
+        return scanBorder(map, left, top, left, top + 1, 1, 0, Math.min(clusterSize, width - left));
+    }
+
+    /**
+     * Finds the transitions along a border, given the first cell on each side and the direction the border runs in.
+     */
+    private int[] scanBorder(GridMap map, int ax, int ay, int bx, int by, int stepX, int stepY, int length) {
+        int count = 0;
+        int runStart = -1;
+
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length && map.isWalkable(ax + i * stepX, ay + i * stepY)
+                    && map.isWalkable(bx + i * stepX, by + i * stepY);
+
+            if (open && runStart == -1) {
+                runStart = i;
+            } else if (!open && runStart != -1) {
+                int runEnd = i - 1;
+
+                if (runEnd - runStart + 1 < LONG_ENTRANCE) {
+                    int middle = (runStart + runEnd) / 2;
+                    count = addPair(count, map.cellOf(ax + middle * stepX, ay + middle * stepY),
+                            map.cellOf(bx + middle * stepX, by + middle * stepY));
+                } else {
+                    count = addPair(count, map.cellOf(ax + runStart * stepX, ay + runStart * stepY),
+                            map.cellOf(bx + runStart * stepX, by + runStart * stepY));
+                    count = addPair(count, map.cellOf(ax + runEnd * stepX, ay + runEnd * stepY),
+                            map.cellOf(bx + runEnd * stepX, by + runEnd * stepY));
+                }
+                runStart = -1;
+            }
+        }
+
+        if (diagonalMovement) {
+            // Diagonal crossings past two blocked corners are not part of any entrance
+            for (int i = 0; i + 1 < length; i++) {
+                boolean a0 = map.isWalkable(ax + i * stepX, ay + i * stepY);
+                boolean a1 = map.isWalkable(ax + (i + 1) * stepX, ay + (i + 1) * stepY);
+                boolean b0 = map.isWalkable(bx + i * stepX, by + i * stepY);
+                boolean b1 = map.isWalkable(bx + (i + 1) * stepX, by + (i + 1) * stepY);
+
+                if (a0 && b1 && !a1 && !b0) {
+                    count = addPair(count, map.cellOf(ax + i * stepX, ay + i * stepY),
+                            map.cellOf(bx + (i + 1) * stepX, by + (i + 1) * stepY));
+                }
+                if (a1 && b0 && !a0 && !b1) {
+                    count = addPair(count, map.cellOf(ax + (i + 1) * stepX, ay + (i + 1) * stepY),
+                            map.cellOf(bx + i * stepX, by + i * stepY));
+                }
+            }
+        }
+
+        return count == 0 ? NO_TRANSITIONS : Arrays.copyOf(scratch, count);
+    }
+
+    /**
+     * Finds the diagonal crossings through the corner shared by a cluster and the clusters below and to its right.
+     */
+    private int[] scanCorner(GridMap map, int clusterX, int clusterY) {
+        int left = (clusterX + 1) * clusterSize - 1;
+        int top = (clusterY + 1) * clusterSize - 1;
+
+        if (!diagonalMovement || left + 1 >= width || top + 1 >= height) {
+            return NO_TRANSITIONS;
+        }
+
+        boolean topLeft = map.isWalkable(left, top);
+        boolean topRight = map.isWalkable(left + 1, top);
+        boolean bottomLeft = map.isWalkable(left, top + 1);
+        boolean bottomRight = map.isWalkable(left + 1, top + 1);
+
+        int count = 0;
+        if (topLeft && bottomRight && !topRight && !bottomLeft) {
+            count = addPair(count, map.cellOf(left, top), map.cellOf(left + 1, top + 1));
+        }
+        if (topRight && bottomLeft && !topLeft && !bottomRight) {
+            count = addPair(count, map.cellOf(left + 1, top), map.cellOf(left, top + 1));
+        }
+
+        return count == 0 ? NO_TRANSITIONS : Arrays.copyOf(scratch, count);
+    }
+
+    private int addPair(int count, int one, int two) {
+        scratch[count++] = one;
+        scratch[count++] = two;
+        return count;
+    }
+
+    /**
+     * Collects the nodes of a cluster from the borders around it and calculates the distances between them.
+     *
+     * @param map   The map.
+     * @param index The index of the cluster.
+     * @return The cluster.
+     */
+    private Cluster assemble(GridMap map, int index) {
+        int x = index % clustersX;
+        int y = index / clustersX;
+        Cluster cluster = new Cluster(x * clusterSize, y * clusterSize,
+                Math.min(width, (x + 1) * clusterSize) - 1, Math.min(height, (y + 1) * clusterSize) - 1);
+
+        // Every border the cluster touches, other clusters' sides of them are skipped below
+        int[][] borders = new int[8][];
+        int count = 0;
+        for (int dy = -1; dy <= 0; dy++) {
+            for (int dx = -1; dx <= 0; dx++) {
+                if (x + dx >= 0 && y + dy >= 0) {
+                    int other = (y + dy) * clustersX + x + dx;
+                    if (dy == 0) {
+                        borders[count++] = verticalBorders[other];
+                    }
+                    if (dx == 0) {
+                        borders[count++] = horizontalBorders[other];
+                    }
+                    borders[count++] = cornerBorders[other];
+                }
+            }
+        }
+
+        // The crossings out of the cluster, sorted by the cell inside the cluster
+        int crossingCount = 0;
+        for (int i = 0; i < count; i++) {
+            crossingCount += borders[i].length / 2;
+        }
+
+        long[] crossings = new long[crossingCount];
+        crossingCount = 0;
+        for (int i = 0; i < count; i++) {
+            int[] transitions = borders[i];
+            for (int t = 0; t < transitions.length; t += 2) {
+                // Corners also hold the crossing between the two clusters diagonal to this one
+                if (clusterOf(transitions[t]) == index) {
+                    crossings[crossingCount++] = ((long) transitions[t] << 32) | transitions[t + 1];
+                } else if (clusterOf(transitions[t + 1]) == index) {
+                    crossings[crossingCount++] = ((long) transitions[t + 1] << 32) | transitions[t];
+                }
+            }
+        }
+        crossings = Arrays.copyOf(crossings, crossingCount);
+        Arrays.sort(crossings);
+
+        int nodeCount = 0;
+        int[] nodes = new int[crossings.length];
+        cluster.crossingOffsets = new int[crossings.length + 1];
+        cluster.crossingCells = new int[crossings.length];
+
+        for (int i = 0; i < crossings.length; i++) {
+            int inside = (int) (crossings[i] >>> 32);
+            if (nodeCount == 0 || nodes[nodeCount - 1] != inside) {
+                cluster.crossingOffsets[nodeCount] = i;
+                nodes[nodeCount++] = inside;
+            }
+            cluster.crossingCells[i] = (int) crossings[i];
+        }
+        cluster.crossingOffsets[nodeCount] = crossings.length;
+        cluster.crossingOffsets = Arrays.copyOf(cluster.crossingOffsets, nodeCount + 1);
+        cluster.nodes = Arrays.copyOf(nodes, nodeCount);
+
+        // The shortest path between every pair of nodes within the cluster
+        cluster.distances = new float[nodeCount * nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            local.run(map, cluster, cluster.nodes[i], -1, SearchListener.NONE, buildStatistics);
+            for (int j = 0; j < nodeCount; j++) {
+                cluster.distances[i * nodeCount + j] = local.getDistance(cluster.nodes[j]);
+            }
+        }
+
+        return cluster;
+    }
+
+    /**
+     * Gets the index of the cluster a cell belongs to.
+     *
+     * @param cell The cell id.
+     * @return The cluster index.
+     */
+    int clusterOf(int cell) {
+        return (cell / width / clusterSize) * clustersX + (cell % width) / clusterSize;
+    }
+
+    Cluster getCluster(int index) {
+        return clusters[index];
+    }
+
+    LocalSearch getLocalSearch() {
+        return local;
+    }
+
+    boolean isDiagonalMovement() {
+        return diagonalMovement;
+    }
+
+    /**
+     * Gets the amount of nodes in the graph.
+     *
+     * @return The amount of nodes.
+     */
+    public int getNodeCount() {
+        int count = 0;
+        for (Cluster cluster : clusters) {
+            count += cluster.nodes.length;
+        }
+        return count;
+    }
+
+    public int getClusterCount() {
+        return clusters == null ? 0 : clusters.length;
+    }
+
+    /**
+     * Gets the amount of clusters rebuilt by the last update, every cluster for a full build and 0 if nothing changed.
+     *
+     * @return The amount of clusters rebuilt.
+     */
+    public int getRebuiltClusters() {
+        return rebuiltClusters;
+    }
+
+    /**
+     * A single cluster of the graph.
+     */
+    static class Cluster {
+
+        /**
+         * The positions of the cells in the cluster.
+         */
+        final int minX, minY, maxX, maxY;
+
+        /**
+         * The cells of the nodes, sorted.
+         */
+        int[] nodes;
+
+        /**
+         * The distance between each pair of nodes within the cluster, {@link Float#MAX_VALUE} if there is no path.
+         */
+        float[] distances;
+
+        /**
+         * The cells outside of the cluster each node crosses into, the crossings of node i lie between offsets i and
+         * i + 1.
+         */
+        int[] crossingOffsets;
+        int[] crossingCells;
+
+        private Cluster(int minX, int minY, int maxX, int maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        /**
+         * Gets the index of a node.
+         *
+         * @param cell The cell.
+         * @return The index of the node, or a negative value if the cell is not a node.
+         */
+        int indexOf(int cell) {
+            return Arrays.binarySearch(nodes, cell);
+        }
+    }
+
+    /**
+     * Dijkstra's algorithm restricted to the cells of a single cluster.
+     */
+    class LocalSearch {
+
+        private final float[] gValues = new float[clusterSize * clusterSize];
+        private final int[] parents = new int[clusterSize * clusterSize];
+        private final int[] stamps = new int[clusterSize * clusterSize];
+        private final IndexedPriorityQueue open = new IndexedPriorityQueue(clusterSize * clusterSize);
+        private int generation;
+        private Cluster cluster;
+
+        /**
+         * Searches outwards from a cell until the target is reached, or the whole cluster if there is no target.
+         *
+         * @param map        The map.
+         * @param cluster    The cluster to stay within, which must contain the source.
+         * @param source     The cell to search from.
+         * @param target     The cell to stop at, or -1 to reach every cell.
+         * @param listener   The listener notified of the cells expanded.
+         * @param statistics The statistics to record the work done into.
+         */
+        void run(GridMap map, Cluster cluster, int source, int target, SearchListener listener,
+                 SearchStatistics statistics) {
+            this.cluster = cluster;
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+
+            open.clear();
+            reach(source, 0f, -1);
+            open.addOrUpdate(indexOf(source), 0f);
+
+            int directions = diagonalMovement ? GridMap.ALL_DIRECTIONS : GridMap.STRAIGHT_DIRECTIONS;
+
+            while (!open.isEmpty()) {
+                int current = cellOf(open.poll());
+                if (current == target) {
+                    return;
+                }
+
+                statistics.nodeExpanded();
+                listener.cellVisited(current);
+
+                int x = map.getX(current);
+                int y = map.getY(current);
+                float g = getDistance(current);
+
+                int mask = map.getSuccessors(current) & directions;
+                while (mask != 0) {
+                    int direction = Integer.numberOfTrailingZeros(mask);
+                    mask &= mask - 1;
+
+                    int nextX = x + DIRECTION_X[direction];
+                    int nextY = y + DIRECTION_Y[direction];
+                    if (nextX < cluster.minX || nextX > cluster.maxX || nextY < cluster.minY || nextY > cluster.maxY) {
+                        continue;
+                    }
+
+                    int neighbor = current + map.getDirectionOffset(direction);
+                    float tentativeG = g + Pathfinder.getMovementCost(map, current, neighbor);
+
+                    if (tentativeG < getDistance(neighbor)) {
+                        reach(neighbor, tentativeG, current);
+                        open.addOrUpdate(indexOf(neighbor), tentativeG);
+                        statistics.nodeGenerated();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the distance from the source of the last search to a cell of the cluster.
+         *
+         * @param cell The cell.
+         * @return The distance, or {@link Float#MAX_VALUE} if the cell was not reached.
+         */
+        float getDistance(int cell) {
+            int index = indexOf(cell);
+            return stamps[index] == generation ? gValues[index] : Float.MAX_VALUE;
+        }
+
+        /**
+         * Writes the path from the source of the last search to a reached cell into an array, without the source.
+         *
+         * @param target The reached cell.
+         * @param path   The array to write into.
+         * @param offset The index to write the first cell after the source at.
+         * @return The index after the last cell written.
+         */
+        int appendPath(int target, int[] path, int offset) {
+            int length = 0;
+            for (int cell = target; parents[indexOf(cell)] != -1; cell = parents[indexOf(cell)]) {
+                length++;
+            }
+
+            int cell = target;
+            for (int i = offset + length - 1; i >= offset; i--) {
+                path[i] = cell;
+                cell = parents[indexOf(cell)];
+            }
+
+            return offset + length;
+        }
+
+        private void reach(int cell, float g, int parent) {
+            int index = indexOf(cell);
+            stamps[index] = generation;
+            gValues[index] = g;
+            parents[index] = parent;
+        }
+
+        private int indexOf(int cell) {
+            return (cell / width - cluster.minY) * clusterSize + (cell % width - cluster.minX);
+        }
+
+        private int cellOf(int index) {
+            return (cluster.minY + index / clusterSize) * width + cluster.minX + index % clusterSize;
+        }
+    }
+
+}
@@ -0,0 +1,295 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.EditHistory;
+import main.pathfinding.GridMap;
+import main.pathfinding.Pathfinder;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
+
+import java.util.Arrays;
+
+/**
+ * Implementation of D* Lite, which searches backwards from the goal and keeps its search tree between searches so that
+ * replanning after the map is edited or the start moves only repairs the part of the tree that changed.
+ * <p>
+ * Every cell has a g value and a one step lookahead rhs value, and only cells where the two differ are queued. The
+ * edited areas since the last search are read from the {@link EditHistory} of the map and only the cells in and around
+ * them are updated, while a moved start just shifts the keys of the queue by the distance it moved. The tree is thrown
+ * away and built again when the goal changes, a different map is searched, the edits are no longer known or they cover
+ * a large part of the map. Queue keys only use the first of the usual two key components, so every cell tied with the
+ * start is expanded instead of ordering the ties by their second component.
+ * <p>
+ * The g and rhs values, the queue and the key modifier belong to the instance, which is why {@link PathCache} hands out
+ * one instance per settings: a replan after an edit continues from the tree the previous search left behind. Searches
+ * are synchronized, as a search repairs the tree in place and a second one at the same time would see it half updated.
+ * <p>
+ * http://idm-lab.org/bib/abstracts/papers/aaai02b.pdf
+ *
+ * @author Matthew Lillie
+ */
+public class DStarLite extends Pathfinder {
+
+    /**
+     * The value of cells that cannot reach the goal.
+     */
+    private static final float INFINITY = Float.MAX_VALUE;
+
+    /**
+     * Edits covering more than this fraction of the map rebuild the tree instead of repairing it.
+     */
+    private static final int REBUILD_FRACTION = 8;
+
+    /**
+     * The relative amount keys may be above the key of the start and still be expanded, covering rounding errors.
+     */
+    private static final float KEY_TOLERANCE = 1e-5f;
+
+    /**
+     * The heuristic being used for the algorithm.
+     */
+    private final Heuristics heuristic;
+
+    /**
+     * The history, version and size of the map the tree was built for, along with the goal and the last start.
+     */
+    private EditHistory history;
+    private int version;
+    private int width, height;
+    private int goal = -1;
+    private int lastStart;
+
+    /**
+     * The distance of each cell to the goal, and its one step lookahead.
+     */
+    private float[] gValues;
+    private float[] rhsValues;
+
+    /**
+     * The cells whose g and rhs values differ.
+     */
+    private IndexedPriorityQueue open;
+
+    /**
+     * How much the keys of the queue are behind, grows every time the start moves.
+     */
+    private float keyModifier;
+
+    /**
+     * Buffers for the neighbors of the cell being expanded and of the cell being updated.
+     */
+    private final int[] successors = new int[8];
+    private final int[] neighbors = new int[8];
+
+    /**
+     * Constructs a new Pathfinder
+     *
+     * @param diagonalMovement If the neighbors found are allowed to be diagonal
+     */
+    public DStarLite(boolean diagonalMovement) {
+        super(diagonalMovement);
+        this.heuristic = diagonalMovement ? Heuristics.OCTILE : Heuristics.MANHATTAN;
+    }
+
+    @Override
+    protected synchronized int[] search(GridMap map, int start, int goal, SearchListener listener,
+                                        SearchStatistics statistics) {
+        int[] edits = getEdits(map, goal);
+
+        if (edits == null) {
+            initialize(map, start, goal, statistics);
+        } else {
+            // Keys are relative to the start, moving it lowers every key by at most the distance moved
+            keyModifier += heuristic.calculate(map, lastStart, start);
+            statistics.heuristicCalculated();
+
+            for (int i = 0; i < edits.length; i += 4) {
+                // The edges of the cells around an edited cell changed as well
+                for (int y = Math.max(0, edits[i + 1] - 1); y <= Math.min(height - 1, edits[i + 3] + 1); y++) {
+                    for (int x = Math.max(0, edits[i] - 1); x <= Math.min(width - 1, edits[i + 2] + 1); x++) {
+                        updateCell(map, map.cellOf(x, y), start, statistics);
+                    }
+                }
+            }
+        }
+
+        history = map.getHistory();
+        version = map.getVersion();
+        lastStart = start;
+
+        computeShortestPath(map, start, listener, statistics);
+
+        return extractPath(map, start);
+    }
+
+    /**
+     * Gets the areas edited since the last search, if the tree can be repaired.
+     *
+     * @param map  The map about to be searched.
+     * @param goal The goal about to be searched for.
+     * @return The edited areas, or null if the tree has to be built again.
+     */
+    private int[] getEdits(GridMap map, int goal) {
+        if (goal != this.goal || map.getHistory() != history || map.getWidth() != width || map.getHeight() != height) {
+            return null;
+        }
+
+        int[] edits = history.getEditsBetween(version, map.getVersion());
+        if (edits == null) {
+            return null;
+        }
+
+        long area = 0;
+        for (int i = 0; i < edits.length; i += 4) {
+            area += (long) (edits[i + 2] - edits[i] + 3) * (edits[i + 3] - edits[i + 1] + 3);
+        }
+        return area > map.getCellCount() / REBUILD_FRACTION ? null : edits;
+    }
+
+    /**
+     * Throws away the tree, leaving only the goal queued.
+     */
+    private void initialize(GridMap map, int start, int goal, SearchStatistics statistics) {
+        if (gValues == null || gValues.length != map.getCellCount()) {
+            gValues = new float[map.getCellCount()];
+            rhsValues = new float[map.getCellCount()];
+            open = new IndexedPriorityQueue(map.getCellCount());
+        } else {
+            open.clear();
+        }
+
+        Arrays.fill(gValues, INFINITY);
+        Arrays.fill(rhsValues, INFINITY);
+
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.goal = goal;
+        this.keyModifier = 0f;
+
+        rhsValues[goal] = 0f;
+        open.addOrUpdate(goal, heuristic.calculate(map, start, goal));
+        statistics.heuristicCalculated();
+    }
+
+    /**
+     * Expands cells until the start is consistent and no queued cell could still change its value.
+     */
+    private void computeShortestPath(GridMap map, int start, SearchListener listener, SearchStatistics statistics) {
+        // Cells tied with the start are expanded as well, the second key component would order some of them first and
+        // the sums of diagonal costs along different paths round differently
+        while (!open.isEmpty()
+                && (open.getKey(open.peek()) <= calculateKey(map, start, start, statistics) * (1f + KEY_TOLERANCE)
+                || rhsValues[start] != gValues[start])) {
+            int current = open.peek();
+            float oldKey = open.getKey(current);
+            float newKey = calculateKey(map, current, start, statistics);
+
+            if (oldKey < newKey) {
+                // Queued before the start moved, the key is out of date
+                open.addOrUpdate(current, newKey);
+                continue;
+            }
+
+            open.poll();
+            statistics.nodeExpanded();
+            listener.cellVisited(current);
+
+            if (gValues[current] > rhsValues[current]) {
+                gValues[current] = rhsValues[current];
+            } else {
+                gValues[current] = INFINITY;
+                updateCell(map, current, start, statistics);
+            }
+
+            int count = getNeighbors(map, current, successors);
+            for (int i = 0; i < count; i++) {
+                updateCell(map, successors[i], start, statistics);
+                listener.cellVisited(successors[i]);
+            }
+
+            listener.stepFinished();
+        }
+    }
+
+    /**
+     * Recalculates the rhs value of a cell from its neighbors, queueing it if it is no longer consistent.
+     */
+    private void updateCell(GridMap map, int cell, int start, SearchStatistics statistics) {
+        if (cell != goal) {
+            float rhs = INFINITY;
+
+            if (!map.isBlocked(cell)) {
+                int count = getNeighbors(map, cell, neighbors);
+                for (int i = 0; i < count; i++) {
+                    float g = gValues[neighbors[i]];
+                    if (g != INFINITY) {
+                        rhs = Math.min(rhs, g + getMovementCost(map, cell, neighbors[i]));
+                    }
+                }
+            }
+            rhsValues[cell] = rhs;
+        }
+
+        open.remove(cell);
+        if (gValues[cell] != rhsValues[cell]) {
+            open.addOrUpdate(cell, calculateKey(map, cell, start, statistics));
+            statistics.nodeGenerated();
+            statistics.openSize(open.size());
+        }
+    }
+
+    private float calculateKey(GridMap map, int cell, int start, SearchStatistics statistics) {
+        float value = Math.min(gValues[cell], rhsValues[cell]);
+        if (value == INFINITY) {
+            return INFINITY;
+        }
+
+        statistics.heuristicCalculated();
+        return value + heuristic.calculate(map, start, cell) + keyModifier;
+    }
+
+    /**
+     * Follows the cheapest neighbors from the start down to the goal.
+     *
+     * @return The path, or {@link #NO_PATH} if the goal cannot be reached.
+     */
+    private int[] extractPath(GridMap map, int start) {
+        if (gValues[start] == INFINITY) {
+            return NO_PATH;
+        }
+
+        int[] path = new int[64];
+        int length = 0;
+        path[length++] = start;
+
+        int[] candidates = new int[8];
+        int current = start;
+
+        while (current != goal) {
+            int best = -1;
+            float bestCost = INFINITY;
+
+            int count = getNeighbors(map, current, candidates);
+            for (int i = 0; i < count; i++) {
+                float g = gValues[candidates[i]];
+                if (g != INFINITY && g + getMovementCost(map, current, candidates[i]) < bestCost) {
+                    bestCost = g + getMovementCost(map, current, candidates[i]);
+                    best = candidates[i];
+                }
+            }
+
+            // Cannot happen once the start is consistent, guards against looping forever on a broken tree
+            if (best == -1 || length > map.getCellCount()) {
+                return NO_PATH;
+            }
+
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = best;
+            current = best;
+        }
+
+        return Arrays.copyOf(path, length);
+    }
+
+}
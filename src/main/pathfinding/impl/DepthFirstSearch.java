@@ -1,11 +1,9 @@
 package main.pathfinding.impl;
 
-import main.pathfinding.Grid;
-import main.pathfinding.Node;
+import main.pathfinding.GridMap;
 import main.pathfinding.Pathfinder;
-
-import java.util.List;
-import java.util.Stack;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
 
 /**
  * This class represents the Depth First Search path finding algorithm.
@@ -16,39 +14,49 @@ import java.util.Stack;
  */
 public class DepthFirstSearch extends Pathfinder {
 
-    public DepthFirstSearch(Grid grid, boolean diagonalMovement) {
-                super(grid, diagonalMovement);
-            }
+    public DepthFirstSearch(boolean diagonalMovement) {
+        super(diagonalMovement);
+    }
 
-            @Override
-            protected List<Node> doInBackground() throws Exception {
-                Stack<Node> open = new Stack<>();
-                open.add(grid.getStartNode());
+    @Override
+    protected int[] search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+        SearchContext context = SearchContext.acquire(map);
+        int[] neighbors = new int[8];
 
-                grid.getStartNode().incrementTimesVisited();
+        // Every cell is pushed at most once, so a flat array is enough for the stack
+        int[] open = context.getCells();
+        int size = 0;
 
-        while (!open.isEmpty()) {
-            Node current = open.pop();
+        open[size++] = start;
+        context.reach(start, 0f, -1);
+        listener.cellVisited(start);
 
-            if (current == grid.getGoalNode()) {
-                return constructPath();
+        while (size > 0) {
+            int current = open[--size];
+
+            if (current == goal) {
+                return constructPath(context.getParents(), start, goal);
             }
 
-            for (Node neighbor : getNeighbors(current)) {
+            statistics.nodeExpanded();
 
-                if (neighbor.getTimesVisited() == 0) {
-                    neighbor.setParent(current);
-                    open.push(neighbor);
-                }
+            int count = getNeighbors(map, current, neighbors);
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
 
-                neighbor.incrementTimesVisited();
+                if (!context.isReached(neighbor)) {
+                    context.reach(neighbor, 0f, current);
+                    open[size++] = neighbor;
+                    statistics.nodeGenerated();
+                    statistics.openSize(size);
+                }
 
+                listener.cellVisited(neighbor);
             }
 
-            Thread.sleep(15);
-            grid.repaint();
+            listener.stepFinished();
         }
 
-        return null;
+        return NO_PATH;
     }
 }
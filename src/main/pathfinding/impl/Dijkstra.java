@@ -1,78 +1,122 @@
 package main.pathfinding.impl;
 
-import main.pathfinding.Grid;
-import main.pathfinding.Node;
+import main.pathfinding.GridMap;
 import main.pathfinding.Pathfinder;
-
-import java.util.*;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
 
 /**
  * This class represents the Dijkstra path finding algorithm.
  * <p>
+ * On maps with terrain costs every move costs a small integer in fixed point, so the open set is a {@link BucketQueue}
+ * instead of a heap, taking constant time per cell.
+ * <p>
  * https://en.wikipedia.org/wiki/Dijkstra%27s_algorithm
  *
  * @author Matthew Lillie
  */
 public class Dijkstra extends Pathfinder {
 
-    public Dijkstra(Grid grid, boolean diagonalMovement) {
-        super(grid, diagonalMovement);
+    public Dijkstra(boolean diagonalMovement) {
+        super(diagonalMovement);
     }
 
     @Override
-    protected List<Node> doInBackground() throws Exception {
-        Map<Node, Float> distances = new HashMap<>();
+    protected int[] search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+        if (map.isWeighted()) {
+            return searchFixed(map, start, goal, listener, statistics);
+        }
 
-        PriorityQueue<Node> open = new PriorityQueue<>(Comparator.comparing(distances::get));
+        SearchContext context = SearchContext.acquire(map);
+        IndexedPriorityQueue open = context.getOpen();
+        int[] neighbors = new int[8];
 
-        distances.put(grid.getStartNode(), 0f);
-        open.add(grid.getStartNode());
+        context.reach(start, 0f, -1);
+        open.addOrUpdate(start, 0f);
 
         while (!open.isEmpty()) {
-            Node current = open.poll();
+            int current = open.poll();
 
-            if (current == grid.getGoalNode()) {
-                return constructPath();
+            if (current == goal) {
+                return constructPath(context.getParents(), start, goal);
             }
 
-            current.incrementTimesVisited();
+            context.close(current);
+            statistics.nodeExpanded();
+            listener.cellVisited(current);
 
-            for (Node neighbor : getNeighbors(current)) {
+            int count = getNeighbors(map, current, neighbors);
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
 
-                if (neighbor.getTimesVisited() > 0) {
-                    neighbor.incrementTimesVisited();
+                if (context.isClosed(neighbor)) {
+                    listener.cellVisited(neighbor);
                     continue;
                 }
 
-                float tentativeCost = distances.getOrDefault(current, Float.MAX_VALUE) + getMovementCost(current, neighbor);
+                float tentativeCost = context.getG(current) + getMovementCost(map, current, neighbor);
 
-                if (tentativeCost < distances.getOrDefault(neighbor, Float.MAX_VALUE)) {
-                    open.remove(neighbor);
-                    distances.put(neighbor, tentativeCost);
-                    neighbor.setParent(current);
-                    open.add(neighbor);
-                    neighbor.incrementTimesVisited();
+                if (tentativeCost < context.getG(neighbor)) {
+                    context.reach(neighbor, tentativeCost, current);
+                    open.addOrUpdate(neighbor, tentativeCost);
+                    statistics.nodeGenerated();
+                    statistics.openSize(open.size());
+                    listener.cellVisited(neighbor);
                 }
             }
 
-            Thread.sleep(15);
-            grid.repaint();
+            listener.stepFinished();
         }
-        return null;
+
+        return NO_PATH;
     }
 
     /**
-     * Calculates the cost of going from one node to the next
-     *
-     * @param one The first node
-     * @param two The second node
-     * @return If the movement is diagonal, it will return the cost of moving diagonally otherwise straight.
+     * Runs the search with fixed point costs ordered by a {@link BucketQueue}.
      */
-    private float getMovementCost(Node one, Node two) {
-        boolean diagonal = Math.abs(one.getX() - two.getX()) != 0 &&
-                Math.abs(one.getY() - two.getY()) != 0;
+    private int[] searchFixed(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+        SearchContext context = SearchContext.acquire(map);
+        BucketQueue open = context.getBuckets();
+        int[] neighbors = new int[8];
+
+        context.reachFixed(start, 0L, -1);
+        open.addOrUpdate(start, 0L);
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+
+            if (current == goal) {
+                return constructPath(context.getParents(), start, goal);
+            }
+
+            context.close(current);
+            statistics.nodeExpanded();
+            listener.cellVisited(current);
+
+            int count = getNeighbors(map, current, neighbors);
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+
+                if (context.isClosed(neighbor)) {
+                    listener.cellVisited(neighbor);
+                    continue;
+                }
+
+                long tentativeCost = context.getFixedG(current) + getFixedMovementCost(map, current, neighbor);
+
+                if (tentativeCost < context.getFixedG(neighbor)) {
+                    context.reachFixed(neighbor, tentativeCost, current);
+                    open.addOrUpdate(neighbor, tentativeCost);
+                    statistics.nodeGenerated();
+                    statistics.openSize(open.size());
+                    listener.cellVisited(neighbor);
+                }
+            }
+
+            listener.stepFinished();
+        }
 
-        return diagonal ? Heuristics.DIAGONAL_COST : Heuristics.STRAIGHT_COST;
+        return NO_PATH;
     }
 
 }
@@ -1,6 +1,6 @@
 package main.pathfinding.impl;
 
-import main.pathfinding.Node;
+import main.pathfinding.GridMap;
 
 /**
  * The different possible heuristics used for multiple algorithms.
@@ -14,9 +14,9 @@ public enum Heuristics {
      */
     MANHATTAN {
         @Override
-        public float calculate(Node one, Node two) {
-            float dx = Math.abs(one.getX() - two.getX());
-            float dy = Math.abs(one.getY() - two.getY());
+        public float calculate(int x1, int y1, int x2, int y2) {
+            float dx = Math.abs(x1 - x2);
+            float dy = Math.abs(y1 - y2);
             return STRAIGHT_COST * (dx + dy);
         }
     },
@@ -26,9 +26,9 @@ public enum Heuristics {
      */
     OCTILE {
         @Override
-        public float calculate(Node one, Node two) {
-            float dx = Math.abs(one.getX() - two.getX());
-            float dy = Math.abs(one.getY() - two.getY());
+        public float calculate(int x1, int y1, int x2, int y2) {
+            float dx = Math.abs(x1 - x2);
+            float dy = Math.abs(y1 - y2);
             return STRAIGHT_COST * (dx + dy) + (DIAGONAL_COST - 2f * STRAIGHT_COST) * Math.min(dx, dy);
         }
     },
@@ -38,9 +38,9 @@ public enum Heuristics {
      */
     CHEBYSHEV {
         @Override
-        public float calculate(Node one, Node two) {
-            float dx = Math.abs(one.getX() - two.getX());
-            float dy = Math.abs(one.getY() - two.getY());
+        public float calculate(int x1, int y1, int x2, int y2) {
+            float dx = Math.abs(x1 - x2);
+            float dy = Math.abs(y1 - y2);
             return STRAIGHT_COST * (dx + dy) + (STRAIGHT_COST - 2f * STRAIGHT_COST) * Math.min(dx, dy);
         }
     },
@@ -50,17 +50,93 @@ public enum Heuristics {
      */
     EUCLIDEAN {
         @Override
-        public float calculate(Node one, Node two) {
-            float dx = Math.abs(one.getX() - two.getX());
-            float dy = Math.abs(one.getY() - two.getY());
+        public float calculate(int x1, int y1, int x2, int y2) {
+            float dx = Math.abs(x1 - x2);
+            float dy = Math.abs(y1 - y2);
             return (float) (STRAIGHT_COST * Math.sqrt(dx * dx + dy * dy));
         }
     },
 
+    /**
+     * Best used on maps with many walls such as mazes, estimates with the distances to a few landmarks precomputed by a
+     * {@link LandmarkTable} and never estimates less than the octile or manhattan distance.
+     */
+    LANDMARKS {
+        @Override
+        public float calculate(int x1, int y1, int x2, int y2) {
+            // Without a map only the position is known
+            return OCTILE.calculate(x1, y1, x2, y2);
+        }
+
+        @Override
+        public float calculate(GridMap map, int one, int two) {
+            return LandmarkTable.estimate(map, one, two);
+        }
+
+        @Override
+        public void prepare(GridMap map, boolean diagonalMovement, LandmarkTable.Configuration landmarks) {
+            LandmarkTable.prepare(map, diagonalMovement, landmarks);
+        }
+    },
+
     ;
 
-    public abstract float calculate(Node one, Node two);
+    /**
+     * Estimates the cost of moving between two positions.
+     *
+     * @param x1 The x position of the first position.
+     * @param y1 The y position of the first position.
+     * @param x2 The x position of the second position.
+     * @param y2 The y position of the second position.
+     * @return The estimated cost.
+     */
+    public abstract float calculate(int x1, int y1, int x2, int y2);
+
+    /**
+     * Estimates the cost of moving between two cells of a map.
+     *
+     * @param map The map the cells are on.
+     * @param one The first cell.
+     * @param two The second cell.
+     * @return The estimated cost.
+     */
+    public float calculate(GridMap map, int one, int two) {
+        return calculate(map.getX(one), map.getY(one), map.getX(two), map.getY(two));
+    }
+
+    /**
+     * Gets the heuristic ready to estimate on a map with the default landmarks.
+     *
+     * @param map              The map about to be searched.
+     * @param diagonalMovement Whether or not diagonal moves are allowed.
+     */
+    public void prepare(GridMap map, boolean diagonalMovement) {
+        prepare(map, diagonalMovement, LandmarkTable.Configuration.DEFAULT);
+    }
+
+    /**
+     * Gets the heuristic ready to estimate on a map, called by the algorithms before every search.
+     *
+     * @param map              The map about to be searched.
+     * @param diagonalMovement Whether or not diagonal moves are allowed.
+     * @param landmarks        The landmarks used by the {@link #LANDMARKS} heuristic, ignored by the others.
+     */
+    public void prepare(GridMap map, boolean diagonalMovement, LandmarkTable.Configuration landmarks) {
+    }
 
     public static final float STRAIGHT_COST = 1f;
     public static final float DIAGONAL_COST = 1.41421356237f; // sqrt(2)
+
+    /**
+     * The costs in fixed point for searches with integer keys, per unit of terrain cost of each of the two cells moved
+     * between. 99 / 70 is within 0.005% of sqrt(2) and always a little above it, so estimates scaled by
+     * {@link #FIXED_POINT_SCALE} stay admissible.
+     */
+    public static final int FIXED_STRAIGHT_COST = 70;
+    public static final int FIXED_DIAGONAL_COST = 99;
+
+    /**
+     * The fixed point cost of a straight move between two cells of the minimum terrain cost.
+     */
+    public static final int FIXED_POINT_SCALE = 2 * FIXED_STRAIGHT_COST;
 }
@@ -0,0 +1,220 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.GridMap;
+import main.pathfinding.Pathfinder;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
+
+import java.util.Arrays;
+
+/**
+ * Implementation of hierarchical path finding A* (HPA*), which searches a {@link ClusterGraph} of the map instead of its
+ * cells and then refines the abstract path one cluster at a time.
+ * <p>
+ * The start and goal are connected to the nodes of their clusters by searching within the cluster, the abstract path is
+ * found with A* and every step of it within a cluster is replaced by the shortest path inside that cluster. Queries with
+ * the start and goal in the same cluster first try to stay within the cluster. The paths found are near optimal rather
+ * than optimal, in exchange for only ever searching a few clusters worth of cells.
+ * <p>
+ * The graph is kept between searches and updated before each one, so after a few cells are edited only the clusters
+ * around them are rebuilt. {@link PathCache} hands out one instance per settings so that the graph built by the first
+ * search is reused by every later one. Searches are synchronized, since each one may rebuild clusters of the graph and
+ * connects its start and goal through the single local search the graph keeps.
+ * <p>
+ * https://webdocs.cs.ualberta.ca/~mmueller/ps/hpastar.pdf
+ *
+ * @author Matthew Lillie
+ */
+public class HierarchicalAstar extends Pathfinder {
+
+    /**
+     * The heuristic used for the abstract search.
+     */
+    private final Heuristics heuristic;
+
+    /**
+     * The abstract graph of the last map searched.
+     */
+    private final ClusterGraph graph;
+
+    /**
+     * Constructs a new Pathfinder using clusters of the default size.
+     *
+     * @param diagonalMovement If the neighbors found are allowed to be diagonal
+     */
+    public HierarchicalAstar(boolean diagonalMovement) {
+        this(diagonalMovement, ClusterGraph.DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * Constructs a new Pathfinder
+     *
+     * @param diagonalMovement If the neighbors found are allowed to be diagonal
+     * @param clusterSize      The width and height of the clusters in cells.
+     */
+    public HierarchicalAstar(boolean diagonalMovement, int clusterSize) {
+        super(diagonalMovement);
+        this.heuristic = diagonalMovement ? Heuristics.OCTILE : Heuristics.MANHATTAN;
+        this.graph = new ClusterGraph(clusterSize, diagonalMovement);
+    }
+
+    @Override
+    protected synchronized int[] search(GridMap map, int start, int goal, SearchListener listener,
+                                        SearchStatistics statistics) {
+        graph.update(map);
+
+        if (start == goal) {
+            return new int[]{start};
+        }
+
+        ClusterGraph.LocalSearch local = graph.getLocalSearch();
+        ClusterGraph.Cluster startCluster = graph.getCluster(graph.clusterOf(start));
+        ClusterGraph.Cluster goalCluster = graph.getCluster(graph.clusterOf(goal));
+
+        // Both in the same cluster, a path that stays inside is good enough if there is one
+        if (startCluster == goalCluster) {
+            local.run(map, startCluster, start, goal, listener, statistics);
+            if (local.getDistance(goal) != Float.MAX_VALUE) {
+                int[] path = new int[(startCluster.maxX - startCluster.minX + 1)
+                        * (startCluster.maxY - startCluster.minY + 1)];
+                path[0] = start;
+                return Arrays.copyOf(path, local.appendPath(goal, path, 1));
+            }
+        }
+
+        // Connect the start and goal to the nodes of their clusters
+        float[] startDistances = getDistances(map, startCluster, start, listener, statistics);
+        float[] goalDistances = getDistances(map, goalCluster, goal, listener, statistics);
+
+        SearchContext context = SearchContext.acquire(map);
+        IndexedPriorityQueue open = context.getOpen();
+
+        context.reach(start, 0f, -1);
+        open.addOrUpdate(start, heuristic.calculate(map, start, goal));
+        statistics.heuristicCalculated();
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+
+            if (current == goal) {
+                return refine(map, constructPath(context.getParents(), start, goal), listener, statistics);
+            }
+
+            context.close(current);
+            statistics.nodeExpanded();
+            listener.cellVisited(current);
+
+            float g = context.getG(current);
+
+            if (current == start) {
+                for (int i = 0; i < startCluster.nodes.length; i++) {
+                    relax(map, context, current, startCluster.nodes[i], g + startDistances[i], goal, statistics);
+                }
+            }
+
+            ClusterGraph.Cluster cluster = graph.getCluster(graph.clusterOf(current));
+            int index = cluster.indexOf(current);
+
+            if (index >= 0) {
+                int nodeCount = cluster.nodes.length;
+
+                // Other nodes of the same cluster
+                for (int i = 0; i < nodeCount; i++) {
+                    relax(map, context, current, cluster.nodes[i], g + cluster.distances[index * nodeCount + i], goal,
+                            statistics);
+                }
+
+                // Nodes of neighboring clusters
+                for (int i = cluster.crossingOffsets[index]; i < cluster.crossingOffsets[index + 1]; i++) {
+                    int neighbor = cluster.crossingCells[i];
+                    relax(map, context, current, neighbor, g + getMovementCost(map, current, neighbor), goal,
+                            statistics);
+                }
+
+                if (cluster == goalCluster) {
+                    relax(map, context, current, goal, g + goalDistances[index], goal, statistics);
+                }
+            }
+
+            listener.stepFinished();
+        }
+
+        return NO_PATH;
+    }
+
+    /**
+     * Gets the distances from a cell to every node of its cluster, staying within the cluster.
+     *
+     * @return The distance to each node, {@link Float#MAX_VALUE} if the node cannot be reached.
+     */
+    private float[] getDistances(GridMap map, ClusterGraph.Cluster cluster, int cell, SearchListener listener,
+                                 SearchStatistics statistics) {
+        ClusterGraph.LocalSearch local = graph.getLocalSearch();
+        local.run(map, cluster, cell, -1, listener, statistics);
+
+        float[] distances = new float[cluster.nodes.length];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = local.getDistance(cluster.nodes[i]);
+        }
+        return distances;
+    }
+
+    /**
+     * Updates a cell of the abstract search if it can be reached more cheaply through the current cell.
+     */
+    private void relax(GridMap map, SearchContext context, int current, int cell, float g, int goal,
+                       SearchStatistics statistics) {
+        // Nodes that cannot be reached have a distance of at least Float.MAX_VALUE, which is never cheaper
+        if (g >= context.getG(cell) || context.isClosed(cell)) {
+            return;
+        }
+
+        context.reach(cell, g, current);
+        context.getOpen().addOrUpdate(cell, g + heuristic.calculate(map, cell, goal));
+        statistics.heuristicCalculated();
+        statistics.nodeGenerated();
+        statistics.openSize(context.getOpen().size());
+    }
+
+    /**
+     * Turns an abstract path into a path of neighboring cells, by searching within the cluster of every step that does
+     * not cross into another cluster.
+     *
+     * @param map          The map.
+     * @param abstractPath The abstract path.
+     * @return The full path.
+     */
+    private int[] refine(GridMap map, int[] abstractPath, SearchListener listener, SearchStatistics statistics) {
+        ClusterGraph.LocalSearch local = graph.getLocalSearch();
+        int[] path = new int[64];
+        int length = 1;
+        path[0] = abstractPath[0];
+
+        for (int i = 1; i < abstractPath.length; i++) {
+            int from = abstractPath[i - 1];
+            int to = abstractPath[i];
+            int cluster = graph.clusterOf(from);
+
+            if (cluster != graph.clusterOf(to)) {
+                // Crossing into the next cluster
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, length * 2);
+                }
+                path[length++] = to;
+                continue;
+            }
+
+            ClusterGraph.Cluster fromCluster = graph.getCluster(cluster);
+            local.run(map, fromCluster, from, to, listener, statistics);
+
+            int maximum = (fromCluster.maxX - fromCluster.minX + 1) * (fromCluster.maxY - fromCluster.minY + 1);
+            if (length + maximum > path.length) {
+                path = Arrays.copyOf(path, Math.max(path.length * 2, length + maximum));
+            }
+            length = local.appendPath(to, path, length);
+        }
+
+        return Arrays.copyOf(path, length);
+    }
+
+}
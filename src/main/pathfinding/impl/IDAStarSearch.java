@@ -1,155 +1,370 @@
 package main.pathfinding.impl;
 
-import main.pathfinding.Grid;
-import main.pathfinding.Node;
+import main.pathfinding.GridMap;
 import main.pathfinding.Pathfinder;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 /**
- * Implementation of iterative deepening a star search. Requires a different way of following the path due to its recursive nature, and
- * is highly dependent on the heuristic used.
+ * Implementation of iterative deepening a star search, and is highly dependent on the heuristic used.
+ * <p>
+ * The depth first search of each iteration uses an explicit stack instead of recursion, so long corridors cannot
+ * overflow the thread stack. Cells on the current path are flagged in a {@link SearchContext}, which also caches the
+ * heuristic of every cell so it is only calculated once per search. A second context is started over for every
+ * iteration and records which cells were expanded and cut off. An optional transposition table, kept by the context
+ * as well, remembers the cheapest g value each cell has been reached with during the current iteration, so the same
+ * cell is not searched again through a more expensive path. Searches therefore allocate no per cell state of their
+ * own.
+ * <p>
+ * A cell cut off by the threshold that was also expanded during the same iteration was reached more cheaply elsewhere,
+ * so raising the threshold to its f value would not find anything new. Such cells are ignored when picking the next
+ * threshold, which skips pointless iterations and lets the search end as soon as no new cell can be reached instead of
+ * raising the threshold through every f value of the map when the goal is unreachable.
  * <p>
  * https://en.wikipedia.org/wiki/Iterative_deepening_A*
  */
 public class IDAStarSearch extends Pathfinder {
 
+    /**
+     * Returned by an iteration once the goal has been reached.
+     */
+    private static final float FOUND = -1f;
+
+    /**
+     * The amount of transposition table entries used unless told otherwise.
+     */
+    public static final int DEFAULT_TABLE_SIZE = 1 << 20;
+
     /**
      * The heuristic used for the algorithm.
      */
     private final Heuristics heuristic;
 
+    /**
+     * The landmarks used when the heuristic is {@link Heuristics#LANDMARKS}.
+     */
+    private final LandmarkTable.Configuration landmarks;
+
+    /**
+     * The most entries the transposition table may have, 0 if no table is used.
+     */
+    private final int tableSize;
+
+    /**
+     * Constructs a new Pathfinder using a transposition table of the default size.
+     *
+     * @param diagonalMovement If the neighbors found are allowed to be diagonal
+     * @param heuristic        The heuristic being used for the algorithm.
+     */
+    public IDAStarSearch(boolean diagonalMovement, Heuristics heuristic) {
+        this(diagonalMovement, heuristic, DEFAULT_TABLE_SIZE);
+    }
+
     /**
      * Constructs a new Pathfinder
      *
-     * @param grid             The Grid used for the algorithm.
      * @param diagonalMovement If the neighbors found are allowed to be diagonal
      * @param heuristic        The heuristic being used for the algorithm.
+     * @param tableSize        The most entries the transposition table may have, or 0 to search without one.
      */
-    public IDAStarSearch(Grid grid, boolean diagonalMovement, Heuristics heuristic) {
-        super(grid, diagonalMovement);
-        this.heuristic = heuristic;
+    public IDAStarSearch(boolean diagonalMovement, Heuristics heuristic, int tableSize) {
+        this(diagonalMovement, heuristic, tableSize, LandmarkTable.Configuration.DEFAULT);
     }
 
-    @Override
-    protected List<Node> doInBackground() throws Exception {
-        float threshold = heuristic.calculate(grid.getStartNode(), grid.getGoalNode());
+    /**
+     * Constructs a new Pathfinder
+     *
+     * @param diagonalMovement If the neighbors found are allowed to be diagonal
+     * @param heuristic        The heuristic being used for the algorithm.
+     * @param tableSize        The most entries the transposition table may have, or 0 to search without one.
+     * @param landmarks        The landmarks used by the {@link Heuristics#LANDMARKS} heuristic.
+     */
+    public IDAStarSearch(boolean diagonalMovement, Heuristics heuristic, int tableSize,
+                         LandmarkTable.Configuration landmarks) {
+        super(diagonalMovement);
 
-        List<Node> path = new ArrayList<>();
+        if (tableSize < 0) {
+            throw new IllegalArgumentException("Invalid transposition table size: " + tableSize);
+        }
 
-        path.add(grid.getStartNode());
+        this.heuristic = heuristic;
+        this.tableSize = tableSize;
+        this.landmarks = landmarks;
+    }
 
-        while (true) {
-            Object temp = search(grid.getStartNode(), 0f, threshold, path);
+    @Override
+    protected int[] search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+        heuristic.prepare(map, diagonalMovement, landmarks);
+        Search search = new Search(map, start, goal, listener, statistics);
+        float threshold = search.estimate(start);
 
-            if (temp == null) {
-                break;
-            }
+        while (true) {
+            float temp = search.iterate(threshold);
 
-            if (temp instanceof Node && temp == grid.getGoalNode()) {
-                return path;
+            if (temp == FOUND) {
+                return search.toPath();
             }
 
-            if ((float) temp == Float.MAX_VALUE) {
-                return null;
+            if (temp == Float.MAX_VALUE) {
+                return NO_PATH;
             }
 
-            threshold = (float) temp;
+            threshold = temp;
         }
-
-        return null;
     }
 
     /**
-     * Recursive helper function used for the algorithm for searching.
-     *
-     * @param current   The current node examined.
-     * @param g         The g value.
-     * @param threshold The maximum cut-off threshold.
-     * @param path      The path found.
-     * @return A float or a Node depending on the status of the algorithm
-     * @throws InterruptedException Algorithm may be interrupted.
+     * The state of a single IDA* search.
      */
-    private Object search(Node current, float g, float threshold, List<Node> path) throws InterruptedException {
-        float f = g + heuristic.calculate(current, grid.getGoalNode());
-
-        if (f > threshold) {
-            return f;
+    private class Search {
+
+        private final GridMap map;
+        private final int start, goal;
+        private final SearchListener listener;
+        private final SearchStatistics statistics;
+
+        /**
+         * Flags the cells on the current path as closed, and caches the heuristic of each cell as its g value.
+         */
+        private final SearchContext context;
+
+        /**
+         * Flags the cells expanded during the current iteration as closed, and holds the smallest f value each cell was
+         * cut off with as its g value. Acquired again for every iteration.
+         */
+        private SearchContext iterationContext;
+
+        /**
+         * The transposition table, or null if none is used.
+         */
+        private final TranspositionTable table;
+
+        /**
+         * The stack of the depth first search, one frame per cell on the current path.
+         */
+        private int[] cells = new int[64];
+        private float[] gValues = new float[64];
+
+        /**
+         * The sorted neighbors of each frame and their movement cost + h values, 8 slots per frame.
+         */
+        private int[] neighbors = new int[64 * 8];
+        private float[] keys = new float[64 * 8];
+
+        /**
+         * The amount of neighbors of each frame and the index of the next one to search.
+         */
+        private int[] counts = new int[64];
+        private int[] indices = new int[64];
+
+        /**
+         * The index of the top frame.
+         */
+        private int depth;
+
+        /**
+         * Holds the unsorted neighbors of a cell.
+         */
+        private final int[] scratch = new int[8];
+
+        /**
+         * The cells cut off during the current iteration, held in the scratch space of the context.
+         */
+        private final int[] cutOffCells;
+        private int cutOffCount;
+
+        private Search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+            this.map = map;
+            this.start = start;
+            this.goal = goal;
+            this.listener = listener;
+            this.statistics = statistics;
+            this.context = SearchContext.acquire(map);
+            this.table = tableSize == 0 ? null
+                    : context.getTranspositionTable(Math.min(tableSize, map.getCellCount()));
+            this.cutOffCells = context.getCells();
         }
 
-        if (current == grid.getGoalNode()) {
-            return current;
-        }
+        /**
+         * Runs a single depth first iteration, never following a cell whose f value exceeds the threshold.
+         *
+         * @param threshold The maximum cut-off threshold.
+         * @return {@link #FOUND} if the goal was reached, otherwise the next threshold worth trying, or
+         * {@link Float#MAX_VALUE} if no new cell can be reached.
+         */
+        private float iterate(float threshold) {
+            iterationContext = SearchContext.acquire(map, 1);
+            cutOffCount = 0;
+
+            if (table != null) {
+                table.nextIteration();
+            }
+
+            depth = 0;
+            cells[0] = start;
+            gValues[0] = 0f;
+            context.close(start);
 
-        current.incrementTimesVisited();
-        Thread.sleep(10);
-        grid.repaint();
+            // Frames are only pushed once their f value is known to be within the threshold
+            boolean entered = true;
 
-        float min = Float.MAX_VALUE;
+            while (depth >= 0) {
+                int current = cells[depth];
 
-        for (Node neighbor : getNewNeighbors(current)) {
+                if (entered) {
+                    if (current == goal) {
+                        return FOUND;
+                    }
 
-            if (!path.contains(neighbor)) {
-                path.add(neighbor);
+                    // Already searched this iteration through a path at least as cheap
+                    if (table != null && !table.update(current, gValues[depth])) {
+                        pop();
+                        entered = false;
+                        continue;
+                    }
 
-                Object temp = search(neighbor, g + getMovementCost(current, neighbor), threshold, path);
+                    iterationContext.close(current);
+                    statistics.nodeExpanded();
+                    listener.cellVisited(current);
+                    listener.stepFinished();
 
-                if (temp instanceof Node && temp == grid.getGoalNode()) {
-                    return temp;
+                    counts[depth] = getSortedNeighbors(current, depth * 8);
+                    indices[depth] = 0;
                 }
 
-                if (temp instanceof Float) {
-                    if ((float) temp < min) {
-                        min = (float) temp;
+                entered = false;
+                int offset = depth * 8;
+
+                while (indices[depth] < counts[depth]) {
+                    int index = offset + indices[depth]++;
+                    int neighbor = neighbors[index];
+
+                    // Already on the current path
+                    if (context.isClosed(neighbor)) {
+                        continue;
                     }
+
+                    listener.cellVisited(neighbor);
+
+                    float f = gValues[depth] + keys[index];
+                    if (f > threshold) {
+                        // The neighbors are sorted, so every remaining neighbor is over the threshold as well
+                        for (int i = index; i < offset + counts[depth]; i++) {
+                            if (!context.isClosed(neighbors[i])) {
+                                cutOff(neighbors[i], gValues[depth] + keys[i]);
+                            }
+                        }
+                        indices[depth] = counts[depth];
+                        break;
+                    }
+
+                    push(neighbor, gValues[depth] + getMovementCost(map, current, neighbor));
+                    entered = true;
+                    break;
+                }
+
+                if (!entered) {
+                    pop();
                 }
-                path.remove(path.size() - 1);
             }
 
-            neighbor.incrementTimesVisited();
-            Thread.sleep(10);
-            grid.repaint();
+            float min = Float.MAX_VALUE;
+            for (int i = 0; i < cutOffCount; i++) {
+                int cell = cutOffCells[i];
+
+                if (!iterationContext.isClosed(cell)) {
+                    min = Math.min(min, iterationContext.getG(cell));
+                }
+            }
+            return min;
         }
 
-        return min;
-    }
+        /**
+         * Records that a cell was not followed because its f value exceeded the threshold.
+         *
+         * @param cell The cell id.
+         * @param f    The f value of the cell.
+         */
+        private void cutOff(int cell, float f) {
+            if (!iterationContext.isReached(cell)) {
+                iterationContext.reach(cell, f, -1);
+                cutOffCells[cutOffCount++] = cell;
+            } else if (f < iterationContext.getG(cell)) {
+                iterationContext.reach(cell, f, -1);
+            }
+        }
 
-    /**
-     * Gets neighbors sorted by g + h values.
-     *
-     * @param current The current node examined
-     * @return The queue of sorted nodes.
-     */
-    private PriorityQueue<Node> getNewNeighbors(Node current) {
-        PriorityQueue<Node> queue = new PriorityQueue<>((node, t1) -> {
-            float g = getMovementCost(current, node);
-            float g1 = getMovementCost(current, t1);
+        /**
+         * Writes the neighbors of a cell sorted by their movement cost + h values into the neighbor buffer.
+         *
+         * @param current The current cell examined
+         * @param offset  The index to write the neighbors at.
+         * @return The amount of neighbors written.
+         */
+        private int getSortedNeighbors(int current, int offset) {
+            int count = getNeighbors(map, current, scratch);
+
+            // Insertion sort, there are at most 8 neighbors
+            for (int i = 0; i < count; i++) {
+                int neighbor = scratch[i];
+                float key = getMovementCost(map, current, neighbor) + estimate(neighbor);
+
+                int j = offset + i - 1;
+                while (j >= offset && keys[j] > key) {
+                    neighbors[j + 1] = neighbors[j];
+                    keys[j + 1] = keys[j];
+                    j--;
+                }
+                neighbors[j + 1] = neighbor;
+                keys[j + 1] = key;
+            }
+
+            return count;
+        }
 
-            float h = heuristic.calculate(node, grid.getGoalNode());
-            float h1 = heuristic.calculate(t1, grid.getGoalNode());
+        /**
+         * Gets the heuristic of a cell, calculating it only the first time the cell is seen.
+         *
+         * @param cell The cell id.
+         * @return The estimated cost from the cell to the goal.
+         */
+        private float estimate(int cell) {
+            if (context.isReached(cell)) {
+                return context.getG(cell);
+            }
 
-            return Float.compare(g + h, g1 + h1);
-        });
+            float h = heuristic.calculate(map, cell, goal);
+            statistics.heuristicCalculated();
+            context.reach(cell, h, -1);
+            return h;
+        }
 
-        queue.addAll(super.getNeighbors(current));
+        private void push(int cell, float g) {
+            if (++depth == cells.length) {
+                cells = Arrays.copyOf(cells, depth * 2);
+                gValues = Arrays.copyOf(gValues, depth * 2);
+                counts = Arrays.copyOf(counts, depth * 2);
+                indices = Arrays.copyOf(indices, depth * 2);
+                neighbors = Arrays.copyOf(neighbors, depth * 2 * 8);
+                keys = Arrays.copyOf(keys, depth * 2 * 8);
+            }
 
-        return queue;
-    }
+            cells[depth] = cell;
+            gValues[depth] = g;
+            context.close(cell);
+            statistics.nodeGenerated();
+            statistics.openSize(depth + 1);
+        }
 
-    /**
-     * Calculates the cost of going from one node to the next
-     *
-     * @param one The first node
-     * @param two The second node
-     * @return If the movement is diagonal, it will return the cost of moving diagonally otherwise straight.
-     */
-    private float getMovementCost(Node one, Node two) {
-        boolean diagonal = Math.abs(one.getX() - two.getX()) != 0 &&
-                Math.abs(one.getY() - two.getY()) != 0;
+        private void pop() {
+            context.reopen(cells[depth--]);
+        }
 
-        return diagonal ? Heuristics.DIAGONAL_COST : Heuristics.STRAIGHT_COST;
+        private int[] toPath() {
+            return Arrays.copyOf(cells, depth + 1);
+        }
     }
 
-}
\ No newline at end of file
+}
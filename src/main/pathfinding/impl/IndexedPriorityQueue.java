@@ -0,0 +1,211 @@
+package main.pathfinding.impl;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of cell ids ordered by a float key, supporting decrease key in O(log n).
+ * <p>
+ * The position of every cell within the heap is tracked in an array indexed by cell id, so checking if a cell is queued
+ * and updating its key never requires a linear scan or boxing.
+ *
+ * @author Matthew Lillie
+ */
+public class IndexedPriorityQueue {
+
+    /**
+     * The cells within the heap.
+     */
+    private final int[] heap;
+
+    /**
+     * The index of each cell within the heap, or -1 if the cell is not queued.
+     */
+    private final int[] positions;
+
+    /**
+     * The key of each cell, indexed by cell id.
+     */
+    private final float[] keys;
+
+    /**
+     * The amount of cells within the heap.
+     */
+    private int size;
+
+    /**
+     * Constructs a new queue that can hold cell ids from 0 up to the capacity.
+     *
+     * @param capacity The amount of cells on the map.
+     */
+    public IndexedPriorityQueue(int capacity) {
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new float[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if a cell is queued.
+     *
+     * @param cell The cell id.
+     * @return True if the cell is queued.
+     */
+    public boolean contains(int cell) {
+        return positions[cell] != -1;
+    }
+
+    /**
+     * Gets the key a cell was last queued with.
+     *
+     * @param cell The cell id.
+     * @return The key of the cell.
+     */
+    public float getKey(int cell) {
+        return keys[cell];
+    }
+
+    /**
+     * Adds a cell to the queue, or updates its key if it is already queued.
+     *
+     * @param cell The cell id.
+     * @param key  The new key of the cell.
+     */
+    public void addOrUpdate(int cell, float key) {
+        int position = positions[cell];
+
+        if (position == -1) {
+            keys[cell] = key;
+            heap[size] = cell;
+            positions[cell] = size;
+            siftUp(size++);
+        } else {
+            float oldKey = keys[cell];
+            keys[cell] = key;
+
+            if (key < oldKey) {
+                siftUp(position);
+            } else {
+                siftDown(position);
+            }
+        }
+    }
+
+    /**
+     * Gets the cell with the smallest key without removing it.
+     *
+     * @return The cell id.
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Removes the cell with the smallest key.
+     *
+     * @return The cell id.
+     */
+    public int poll() {
+        int cell = heap[0];
+        positions[cell] = -1;
+
+        if (--size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        return cell;
+    }
+
+    /**
+     * Removes a cell from the queue, doing nothing if it is not queued.
+     *
+     * @param cell The cell id.
+     */
+    public void remove(int cell) {
+        int position = positions[cell];
+        if (position == -1) {
+            return;
+        }
+
+        positions[cell] = -1;
+        if (position == --size) {
+            return;
+        }
+
+        // Move the last cell into the gap, then restore the heap in whichever direction it is out of order
+        int last = heap[size];
+        heap[position] = last;
+        positions[last] = position;
+        siftUp(position);
+        siftDown(positions[last]);
+    }
+
+    /**
+     * Removes every cell from the queue.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int index) {
+        int cell = heap[index];
+        float key = keys[cell];
+
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            int parent = heap[parentIndex];
+
+            if (keys[parent] <= key) {
+                break;
+            }
+
+            heap[index] = parent;
+            positions[parent] = index;
+            index = parentIndex;
+        }
+
+        heap[index] = cell;
+        positions[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        int cell = heap[index];
+        float key = keys[cell];
+        int half = size >>> 1;
+
+        while (index < half) {
+            int childIndex = 2 * index + 1;
+            int child = heap[childIndex];
+
+            int rightIndex = childIndex + 1;
+            if (rightIndex < size && keys[heap[rightIndex]] < keys[child]) {
+                childIndex = rightIndex;
+                child = heap[childIndex];
+            }
+
+            if (key <= keys[child]) {
+                break;
+            }
+
+            heap[index] = child;
+            positions[child] = index;
+            index = childIndex;
+        }
+
+        heap[index] = cell;
+        positions[cell] = index;
+    }
+
+}
@@ -0,0 +1,344 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.GridMap;
+import main.pathfinding.Pathfinder;
+import main.pathfinding.SearchListener;
+import main.pathfinding.SearchStatistics;
+
+/**
+ * This class represents the Jump Point Search path finding algorithm, an A* variant for uniform cost grids that prunes
+ * symmetric paths by jumping over cells in straight lines and only expanding cells with forced neighbors.
+ * <p>
+ * Diagonal moves are allowed past blocked corners, the same as the other algorithms, so the forced neighbor rules follow
+ * that movement model. When diagonal movement is off the 4 directional variant of the rules is used.
+ * <p>
+ * https://en.wikipedia.org/wiki/Jump_point_search
+ *
+ * @author Matthew Lillie
+ */
+public class JumpPointSearch extends Pathfinder {
+
+    /**
+     * The heuristic being used for the algorithm.
+     */
+    private final Heuristics heuristic;
+
+    /**
+     * Constructs a new Jump Point Search algorithm.
+     *
+     * @param diagonalMovement Whether or not we can move diagonally.
+     */
+    public JumpPointSearch(boolean diagonalMovement) {
+        super(diagonalMovement);
+        this.heuristic = diagonalMovement ? Heuristics.OCTILE : Heuristics.MANHATTAN;
+    }
+
+    @Override
+    protected int[] search(GridMap map, int start, int goal, SearchListener listener, SearchStatistics statistics) {
+        SearchContext context = SearchContext.acquire(map);
+        IndexedPriorityQueue open = context.getOpen();
+        int[] directions = new int[16];
+
+        prepare(map);
+
+        context.reach(start, 0f, -1);
+        open.addOrUpdate(start, heuristic.calculate(map, start, goal));
+        statistics.heuristicCalculated();
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+
+            if (current == goal) {
+                return expandPath(map, constructPath(context.getParents(), start, goal));
+            }
+
+            context.close(current);
+            statistics.nodeExpanded();
+            listener.cellVisited(current);
+
+            int x = map.getX(current);
+            int y = map.getY(current);
+
+            int count = getPrunedDirections(map, current, context.getParents()[current], directions);
+            for (int i = 0; i < count; i += 2) {
+                int jumpPoint = jump(map, x, y, directions[i], directions[i + 1], goal);
+
+                if (jumpPoint == -1 || context.isClosed(jumpPoint)) {
+                    continue;
+                }
+
+                float tentativeG = context.getG(current) + heuristic.calculate(map, current, jumpPoint);
+
+                if (tentativeG < context.getG(jumpPoint)) {
+                    context.reach(jumpPoint, tentativeG, current);
+                    open.addOrUpdate(jumpPoint, tentativeG + heuristic.calculate(map, jumpPoint, goal));
+                    statistics.heuristicCalculated();
+                    statistics.nodeGenerated();
+                    statistics.openSize(open.size());
+                    listener.cellVisited(jumpPoint);
+                }
+            }
+
+            listener.stepFinished();
+        }
+
+        return NO_PATH;
+    }
+
+    /**
+     * Called once before every search, allowing subclasses to prepare data derived from the map.
+     *
+     * @param map The map about to be searched.
+     */
+    protected void prepare(GridMap map) {
+    }
+
+    /**
+     * Finds the directions worth jumping in from a cell, based on the direction it was reached from.
+     *
+     * @param map        The map being searched.
+     * @param current    The current cell.
+     * @param parent     The cell the current cell was reached from, or -1 for the start.
+     * @param directions The array to write the directions into as x and y pairs.
+     * @return The amount of values written, twice the amount of directions.
+     */
+    private int getPrunedDirections(GridMap map, int current, int parent, int[] directions) {
+        int x = map.getX(current);
+        int y = map.getY(current);
+        int count = 0;
+
+        // The start has no parent so every direction is considered
+        if (parent == -1) {
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if ((dx == 0 && dy == 0) || (!diagonalMovement && dx != 0 && dy != 0)) {
+                        continue;
+                    }
+                    directions[count++] = dx;
+                    directions[count++] = dy;
+                }
+            }
+            return count;
+        }
+
+        int dx = Integer.signum(x - map.getX(parent));
+        int dy = Integer.signum(y - map.getY(parent));
+
+        if (!diagonalMovement) {
+            if (dx != 0) {
+                count = add(directions, count, 0, -1);
+                count = add(directions, count, 0, 1);
+                count = add(directions, count, dx, 0);
+            } else {
+                count = add(directions, count, -1, 0);
+                count = add(directions, count, 1, 0);
+                count = add(directions, count, 0, dy);
+            }
+        } else if (dx != 0 && dy != 0) {
+            count = add(directions, count, 0, dy);
+            count = add(directions, count, dx, 0);
+            count = add(directions, count, dx, dy);
+
+            // Forced neighbors
+            if (!map.isWalkable(x - dx, y)) {
+                count = add(directions, count, -dx, dy);
+            }
+            if (!map.isWalkable(x, y - dy)) {
+                count = add(directions, count, dx, -dy);
+            }
+        } else if (dx != 0) {
+            count = add(directions, count, dx, 0);
+
+            if (!map.isWalkable(x, y + 1)) {
+                count = add(directions, count, dx, 1);
+            }
+            if (!map.isWalkable(x, y - 1)) {
+                count = add(directions, count, dx, -1);
+            }
+        } else {
+            count = add(directions, count, 0, dy);
+
+            if (!map.isWalkable(x + 1, y)) {
+                count = add(directions, count, 1, dy);
+            }
+            if (!map.isWalkable(x - 1, y)) {
+                count = add(directions, count, -1, dy);
+            }
+        }
+
+        return count;
+    }
+
+    private static int add(int[] directions, int count, int dx, int dy) {
+        directions[count++] = dx;
+        directions[count++] = dy;
+        return count;
+    }
+
+    /**
+     * Jumps from a position in a direction until a jump point, the goal, or a blocked cell is found.
+     *
+     * @param map  The map being searched.
+     * @param x    The x position jumped from.
+     * @param y    The y position jumped from.
+     * @param dx   The x direction.
+     * @param dy   The y direction.
+     * @param goal The goal cell.
+     * @return The cell jumped to, or -1 if the jump ran into a blocked cell.
+     */
+    protected int jump(GridMap map, int x, int y, int dx, int dy, int goal) {
+        if (!diagonalMovement) {
+            return dx != 0 ? jumpHorizontal4(map, x, y, dx, goal) : jumpVertical4(map, x, y, dy, goal);
+        }
+
+        return dx != 0 && dy != 0 ? jumpDiagonal(map, x, y, dx, dy, goal) : jumpStraight(map, x, y, dx, dy, goal);
+    }
+
+    private int jumpStraight(GridMap map, int x, int y, int dx, int dy, int goal) {
+        while (true) {
+            x += dx;
+            y += dy;
+
+            if (!map.isWalkable(x, y)) {
+                return -1;
+            }
+
+            int cell = map.cellOf(x, y);
+            if (cell == goal || hasForcedNeighbor(map, x, y, dx, dy)) {
+                return cell;
+            }
+        }
+    }
+
+    private int jumpDiagonal(GridMap map, int x, int y, int dx, int dy, int goal) {
+        while (true) {
+            x += dx;
+            y += dy;
+
+            if (!map.isWalkable(x, y)) {
+                return -1;
+            }
+
+            int cell = map.cellOf(x, y);
+            if (cell == goal || hasForcedNeighbor(map, x, y, dx, dy)) {
+                return cell;
+            }
+
+            // Moving diagonally, must check for horizontal and vertical jump points
+            if (jumpStraight(map, x, y, dx, 0, goal) != -1 || jumpStraight(map, x, y, 0, dy, goal) != -1) {
+                return cell;
+            }
+        }
+    }
+
+    private int jumpHorizontal4(GridMap map, int x, int y, int dx, int goal) {
+        while (true) {
+            x += dx;
+
+            if (!map.isWalkable(x, y)) {
+                return -1;
+            }
+
+            int cell = map.cellOf(x, y);
+            if (cell == goal || hasForcedNeighbor4(map, x, y, dx, 0)) {
+                return cell;
+            }
+        }
+    }
+
+    private int jumpVertical4(GridMap map, int x, int y, int dy, int goal) {
+        while (true) {
+            y += dy;
+
+            if (!map.isWalkable(x, y)) {
+                return -1;
+            }
+
+            int cell = map.cellOf(x, y);
+            if (cell == goal || hasForcedNeighbor4(map, x, y, 0, dy)) {
+                return cell;
+            }
+
+            // Moving vertically, must check for horizontal jump points
+            if (jumpHorizontal4(map, x, y, 1, goal) != -1 || jumpHorizontal4(map, x, y, -1, goal) != -1) {
+                return cell;
+            }
+        }
+    }
+
+    /**
+     * Checks if a cell reached by moving in a direction has a forced neighbor when diagonal movement is allowed.
+     *
+     * @param map The map being searched.
+     * @param x   The x position of the cell.
+     * @param y   The y position of the cell.
+     * @param dx  The x direction moved in.
+     * @param dy  The y direction moved in.
+     * @return True if the cell has a forced neighbor.
+     */
+    static boolean hasForcedNeighbor(GridMap map, int x, int y, int dx, int dy) {
+        if (dx != 0 && dy != 0) {
+            return (map.isWalkable(x - dx, y + dy) && !map.isWalkable(x - dx, y))
+                    || (map.isWalkable(x + dx, y - dy) && !map.isWalkable(x, y - dy));
+        } else if (dx != 0) {
+            return (map.isWalkable(x + dx, y + 1) && !map.isWalkable(x, y + 1))
+                    || (map.isWalkable(x + dx, y - 1) && !map.isWalkable(x, y - 1));
+        }
+        return (map.isWalkable(x + 1, y + dy) && !map.isWalkable(x + 1, y))
+                || (map.isWalkable(x - 1, y + dy) && !map.isWalkable(x - 1, y));
+    }
+
+    /**
+     * Checks if a cell reached by moving in a direction has a forced neighbor when only straight movement is allowed.
+     *
+     * @param map The map being searched.
+     * @param x   The x position of the cell.
+     * @param y   The y position of the cell.
+     * @param dx  The x direction moved in.
+     * @param dy  The y direction moved in.
+     * @return True if the cell has a forced neighbor.
+     */
+    static boolean hasForcedNeighbor4(GridMap map, int x, int y, int dx, int dy) {
+        if (dx != 0) {
+            return (map.isWalkable(x, y - 1) && !map.isWalkable(x - dx, y - 1))
+                    || (map.isWalkable(x, y + 1) && !map.isWalkable(x - dx, y + 1));
+        }
+        return (map.isWalkable(x - 1, y) && !map.isWalkable(x - 1, y - dy))
+                || (map.isWalkable(x + 1, y) && !map.isWalkable(x + 1, y - dy));
+    }
+
+    /**
+     * Fills in the cells between consecutive jump points so that the path moves one cell at a time.
+     *
+     * @param map        The map that was searched.
+     * @param jumpPoints The jump points from the start to the goal.
+     * @return The full path.
+     */
+    private int[] expandPath(GridMap map, int[] jumpPoints) {
+        int length = 1;
+        for (int i = 1; i < jumpPoints.length; i++) {
+            length += Math.max(Math.abs(map.getX(jumpPoints[i]) - map.getX(jumpPoints[i - 1])),
+                    Math.abs(map.getY(jumpPoints[i]) - map.getY(jumpPoints[i - 1])));
+        }
+
+        int[] path = new int[length];
+        int index = 0;
+        path[index++] = jumpPoints[0];
+
+        for (int i = 1; i < jumpPoints.length; i++) {
+            int x = map.getX(jumpPoints[i - 1]);
+            int y = map.getY(jumpPoints[i - 1]);
+            int toX = map.getX(jumpPoints[i]);
+            int toY = map.getY(jumpPoints[i]);
+
+            while (x != toX || y != toY) {
+                x += Integer.signum(toX - x);
+                y += Integer.signum(toY - y);
+                path[index++] = map.cellOf(x, y);
+            }
+        }
+
+        return path;
+    }
+
+}
@@ -0,0 +1,234 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.GridMap;
+
+/**
+ * Jump Point Search with precomputed jump distances (JPS+).
+ * <p>
+ * For every cell and direction the distance to the next jump point is computed ahead of time, a positive distance leads
+ * to a jump point while zero or a negative distance is the amount of open cells before a blocked cell. Jumping then only
+ * requires a table lookup and a check for whether the goal lies along the way. The table is rebuilt whenever a different
+ * map, or a new version of the same map, is searched.
+ *
+ * @author Matthew Lillie
+ */
+public class JumpPointSearchPlus extends JumpPointSearch {
+
+    /**
+     * Maps an x and y direction to its index, {@code DIRECTION_INDEX[(dy + 1) * 3 + dx + 1]}, using the same clockwise
+     * order as the successor masks of the {@link GridMap}.
+     */
+    private static final int[] DIRECTION_INDEX = {7, 0, 1, 6, -1, 2, 5, 4, 3};
+
+    /**
+     * The jump distances of the most recently searched map.
+     */
+    private volatile JumpTable table;
+
+    /**
+     * Constructs a new Jump Point Search algorithm using precomputed jump distances.
+     *
+     * @param diagonalMovement Whether or not we can move diagonally.
+     */
+    public JumpPointSearchPlus(boolean diagonalMovement) {
+        super(diagonalMovement);
+    }
+
+    @Override
+    protected void prepare(GridMap map) {
+        getTable(map);
+    }
+
+    /**
+     * Gets the jump distances for a map, building them if the map has changed since they were last built.
+     *
+     * @param map The map being searched.
+     * @return The jump distances.
+     */
+    private JumpTable getTable(GridMap map) {
+        JumpTable current = table;
+
+        if (current == null || current.map != map || current.version != map.getVersion()) {
+            current = new JumpTable(map, diagonalMovement);
+            table = current;
+        }
+
+        return current;
+    }
+
+    @Override
+    protected int jump(GridMap map, int x, int y, int dx, int dy, int goal) {
+        int distance = getTable(map).distances[DIRECTION_INDEX[(dy + 1) * 3 + dx + 1]][map.cellOf(x, y)];
+        int reach = Math.abs(distance);
+
+        int goalDx = map.getX(goal) - x;
+        int goalDy = map.getY(goal) - y;
+
+        if (dx != 0 && dy != 0) {
+            // Stop where the diagonal crosses the row or column of the goal
+            if (Integer.signum(goalDx) == dx && Integer.signum(goalDy) == dy) {
+                int steps = Math.min(Math.abs(goalDx), Math.abs(goalDy));
+                if (steps <= reach) {
+                    return map.cellOf(x + steps * dx, y + steps * dy);
+                }
+            }
+        } else if (dx != 0) {
+            if (goalDy == 0 && Integer.signum(goalDx) == dx && Math.abs(goalDx) <= reach) {
+                return goal;
+            }
+        } else if (goalDx == 0 && Integer.signum(goalDy) == dy && Math.abs(goalDy) <= reach) {
+            return goal;
+        } else if (!diagonalMovement && Integer.signum(goalDy) == dy && Math.abs(goalDy) <= reach) {
+            // Moving vertically with only straight movement, stop at the row of the goal
+            return map.cellOf(x, y + goalDy);
+        }
+
+        return distance > 0 ? map.cellOf(x + distance * dx, y + distance * dy) : -1;
+    }
+
+    /**
+     * The precomputed jump distances of a single version of a map.
+     */
+    private static class JumpTable {
+
+        private final GridMap map;
+        private final int version;
+
+        /**
+         * The jump distance of every cell, indexed by direction and then cell id.
+         */
+        private final int[][] distances = new int[8][];
+
+        private JumpTable(GridMap map, boolean diagonalMovement) {
+            this.map = map;
+            this.version = map.getVersion();
+
+            // Straight directions first, the diagonal and 4 directional vertical jumps depend on them
+            if (diagonalMovement) {
+                buildStraight(1, 0, false);
+                buildStraight(-1, 0, false);
+                buildStraight(0, 1, false);
+                buildStraight(0, -1, false);
+                buildDiagonal(1, 1);
+                buildDiagonal(1, -1);
+                buildDiagonal(-1, 1);
+                buildDiagonal(-1, -1);
+            } else {
+                buildStraight(1, 0, true);
+                buildStraight(-1, 0, true);
+                buildVertical4(1);
+                buildVertical4(-1);
+            }
+        }
+
+        private int[] table(int dx, int dy) {
+            int index = DIRECTION_INDEX[(dy + 1) * 3 + dx + 1];
+            if (distances[index] == null) {
+                distances[index] = new int[map.getCellCount()];
+            }
+            return distances[index];
+        }
+
+        private void buildStraight(int dx, int dy, boolean straightOnly) {
+            int[] table = table(dx, dy);
+
+            iterate(dx, dy, (x, y) -> {
+                int nextX = x + dx;
+                int nextY = y + dy;
+                boolean jumpPoint = map.isWalkable(nextX, nextY) && (straightOnly
+                        ? hasForcedNeighbor4(map, nextX, nextY, dx, dy)
+                        : hasForcedNeighbor(map, nextX, nextY, dx, dy));
+
+                return distance(table, nextX, nextY, jumpPoint);
+            }, table);
+        }
+
+        private void buildDiagonal(int dx, int dy) {
+            int[] table = table(dx, dy);
+            int[] horizontal = table(dx, 0);
+            int[] vertical = table(0, dy);
+
+            iterate(dx, dy, (x, y) -> {
+                int nextX = x + dx;
+                int nextY = y + dy;
+                boolean jumpPoint = false;
+
+                if (map.isWalkable(nextX, nextY)) {
+                    int next = map.cellOf(nextX, nextY);
+                    jumpPoint = hasForcedNeighbor(map, nextX, nextY, dx, dy) || horizontal[next] > 0 || vertical[next] > 0;
+                }
+
+                return distance(table, nextX, nextY, jumpPoint);
+            }, table);
+        }
+
+        private void buildVertical4(int dy) {
+            int[] table = table(0, dy);
+            int[] east = table(1, 0);
+            int[] west = table(-1, 0);
+
+            iterate(0, dy, (x, y) -> {
+                int nextY = y + dy;
+                boolean jumpPoint = false;
+
+                if (map.isWalkable(x, nextY)) {
+                    int next = map.cellOf(x, nextY);
+                    jumpPoint = hasForcedNeighbor4(map, x, nextY, 0, dy) || east[next] > 0 || west[next] > 0;
+                }
+
+                return distance(table, x, nextY, jumpPoint);
+            }, table);
+        }
+
+        /**
+         * Calculates the distance of a cell from the distance of the next cell in the direction.
+         *
+         * @param table     The table being built.
+         * @param nextX     The x position of the next cell.
+         * @param nextY     The y position of the next cell.
+         * @param jumpPoint Whether or not the next cell is a jump point.
+         * @return The distance of the cell.
+         */
+        private int distance(int[] table, int nextX, int nextY, boolean jumpPoint) {
+            if (!map.isWalkable(nextX, nextY)) {
+                return 0;
+            }
+            if (jumpPoint) {
+                return 1;
+            }
+
+            int next = table[map.cellOf(nextX, nextY)];
+            return next > 0 ? next + 1 : next - 1;
+        }
+
+        /**
+         * Visits every cell so that the next cell in the direction is always visited first.
+         *
+         * @param dx       The x direction.
+         * @param dy       The y direction.
+         * @param function Calculates the distance of a cell.
+         * @param table    The table being built.
+         */
+        private void iterate(int dx, int dy, DistanceFunction function, int[] table) {
+            int width = map.getWidth();
+            int height = map.getHeight();
+
+            for (int i = 0; i < height; i++) {
+                int y = dy > 0 ? height - 1 - i : i;
+
+                for (int j = 0; j < width; j++) {
+                    int x = dx > 0 ? width - 1 - j : j;
+                    table[map.cellOf(x, y)] = function.distance(x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the jump distance of a single cell.
+     */
+    private interface DistanceFunction {
+        int distance(int x, int y);
+    }
+
+}
@@ -0,0 +1,523 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.EditHistory;
+import main.pathfinding.GridMap;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The exact distances from a few landmark cells to every cell of a map, for the {@link Heuristics#LANDMARKS} heuristic.
+ * <p>
+ * By the triangle inequality the distance between two cells is at least the difference of their distances to any
+ * landmark, which follows walls in a way no geometric estimate can. The distances are stored as 16 bit fixed point
+ * numbers with the landmarks of a cell next to each other, so a lookup reads both cells in one or two cache lines.
+ * Each landmark is scaled so its furthest cell uses the whole range, and is packed as soon as its Dijkstra finishes, so
+ * building a table needs only a couple of floats per cell besides the table itself. Stored distances are rounded down,
+ * the estimate subtracts one step of the fixed point scale to stay admissible.
+ * <p>
+ * Tables are built on first use for each version of a map, movement type and {@link Configuration}, and kept for the
+ * few maps searched most recently. Searches on different threads share the tables, each thread remembers which table
+ * it is using.
+ * <p>
+ * http://www.cs.princeton.edu/courses/archive/spr06/cos423/Handouts/GW05.pdf
+ *
+ * @author Matthew Lillie
+ */
+public class LandmarkTable {
+
+    /**
+     * How landmarks are placed on the map.
+     */
+    public enum Selection {
+
+        /**
+         * Each landmark is the cell furthest from the landmarks already chosen.
+         */
+        FARTHEST,
+
+        /**
+         * Landmarks are spread evenly around the edge of the map.
+         */
+        PLANAR,
+
+        /**
+         * Landmarks are random open cells, the same cells for the same map.
+         */
+        RANDOM
+    }
+
+    /**
+     * The amount of landmarks of a table and how they are placed.
+     */
+    public static final class Configuration {
+
+        /**
+         * The configuration used by searches that were not given one.
+         */
+        public static final Configuration DEFAULT = new Configuration(DEFAULT_LANDMARKS, DEFAULT_SELECTION);
+
+        private final int count;
+        private final Selection selection;
+
+        /**
+         * @param count     The amount of landmarks, at least 1.
+         * @param selection How the landmarks are placed.
+         */
+        public Configuration(int count, Selection selection) {
+            if (count < 1) {
+                throw new IllegalArgumentException("Invalid amount of landmarks: " + count);
+            }
+            if (selection == null) {
+                throw new IllegalArgumentException("Missing landmark selection");
+            }
+
+            this.count = count;
+            this.selection = selection;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public Selection getSelection() {
+            return selection;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Configuration)) {
+                return false;
+            }
+
+            Configuration other = (Configuration) o;
+            return count == other.count && selection == other.selection;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * count + selection.hashCode();
+        }
+    }
+
+    /**
+     * The amount of landmarks and how they are placed unless configured otherwise.
+     */
+    public static final int DEFAULT_LANDMARKS = 8;
+    public static final Selection DEFAULT_SELECTION = Selection.FARTHEST;
+
+    /**
+     * The stored distance of cells that cannot be reached from a landmark.
+     */
+    private static final char UNREACHABLE = Character.MAX_VALUE;
+
+    /**
+     * The largest amount of steps per cell of distance, small maps do not need more precision than this.
+     */
+    private static final float MAX_SCALE = 256f;
+
+    /**
+     * The amount of tables kept.
+     */
+    private static final int CACHE_SIZE = 4;
+
+    /**
+     * The tables kept, the most recently used first.
+     */
+    private static final LandmarkTable[] CACHE = new LandmarkTable[CACHE_SIZE];
+
+    /**
+     * The table each thread is searching with.
+     */
+    private static final ThreadLocal<LandmarkTable> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The version of the map the table was built for.
+     */
+    private final EditHistory history;
+    private final int version;
+    private final int width, height;
+    private final boolean diagonal;
+    private final Configuration configuration;
+
+    /**
+     * The landmark cells, and their distances to every cell indexed by {@code cell * landmarks.length + landmark}.
+     */
+    private final int[] landmarks;
+    private final char[] distances;
+
+    /**
+     * The distance of one fixed point step of each landmark.
+     */
+    private final float[] steps;
+
+    /**
+     * The geometric estimate used where it is better than the landmarks.
+     */
+    private final Heuristics fallback;
+
+    private LandmarkTable(GridMap map, boolean diagonal, Configuration configuration) {
+        this.history = map.getHistory();
+        this.version = map.getVersion();
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.diagonal = diagonal;
+        this.configuration = configuration;
+        this.fallback = diagonal ? Heuristics.OCTILE : Heuristics.MANHATTAN;
+
+        int cellCount = map.getCellCount();
+        int count = configuration.getCount();
+        Selection selection = configuration.getSelection();
+        if ((long) cellCount * count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many landmarks for the map size: " + count);
+        }
+
+        Builder builder = new Builder(map, diagonal);
+        char[] packed = new char[cellCount * count];
+        float[] packedSteps = new float[count];
+        int[] chosen = new int[count];
+        int found = 0;
+
+        if (selection == Selection.FARTHEST) {
+            float[] closest = new float[cellCount];
+            Arrays.fill(closest, Float.MAX_VALUE);
+
+            // Start from the cell furthest from the middle of the map, which is on the edge of its component
+            int next = builder.farthest(builder.run(closestOpen(map, (map.getWidth() - 1) / 2f,
+                    (map.getHeight() - 1) / 2f)), closest);
+
+            while (found < count && next != -1) {
+                float[] distance = builder.run(next);
+                chosen[found] = next;
+                packedSteps[found] = pack(distance, packed, found++, count);
+
+                for (int cell = 0; cell < cellCount; cell++) {
+                    closest[cell] = Math.min(closest[cell], distance[cell]);
+                }
+                next = builder.farthest(closest, closest);
+            }
+        } else {
+            int[] cells = selection == Selection.PLANAR ? selectPlanar(map, count) : selectRandom(map, count);
+            for (int cell : cells) {
+                if (cell != -1 && indexOf(chosen, found, cell) == -1) {
+                    chosen[found] = cell;
+                    packedSteps[found] = pack(builder.run(cell), packed, found++, count);
+                }
+            }
+        }
+
+        // Fewer landmarks than asked for when the map has fewer open cells, close the gaps left for them
+        if (found < count) {
+            char[] compact = new char[cellCount * found];
+            for (int cell = 0; cell < cellCount; cell++) {
+                System.arraycopy(packed, cell * count, compact, cell * found, found);
+            }
+            packed = compact;
+        }
+
+        this.landmarks = Arrays.copyOf(chosen, found);
+        this.steps = Arrays.copyOf(packedSteps, found);
+        this.distances = packed;
+    }
+
+    /**
+     * Packs the distances from a landmark into its slot of every cell, scaled to the furthest cell it can reach.
+     *
+     * @param distance  The distances from the landmark, {@link Float#MAX_VALUE} for cells that cannot be reached.
+     * @param distances The packed distances of every landmark.
+     * @param landmark  The index of the landmark.
+     * @param stride    The amount of slots per cell.
+     * @return The distance of one fixed point step.
+     */
+    private static float pack(float[] distance, char[] distances, int landmark, int stride) {
+        float maximum = 0f;
+        for (float d : distance) {
+            if (d != Float.MAX_VALUE) {
+                maximum = Math.max(maximum, d);
+            }
+        }
+        float scale = maximum == 0f ? MAX_SCALE : Math.min(MAX_SCALE, (UNREACHABLE - 1) / maximum);
+
+        for (int cell = 0; cell < distance.length; cell++) {
+            distances[cell * stride + landmark] = distance[cell] == Float.MAX_VALUE
+                    ? UNREACHABLE : (char) (distance[cell] * scale);
+        }
+
+        return 1f / scale;
+    }
+
+    /**
+     * Gets the table for the current version of a map with the default configuration, building it if it has not been
+     * built yet.
+     *
+     * @param map      The map.
+     * @param diagonal Whether or not diagonal moves are allowed.
+     * @return The table.
+     */
+    public static LandmarkTable get(GridMap map, boolean diagonal) {
+        return get(map, diagonal, Configuration.DEFAULT);
+    }
+
+    /**
+     * Gets the table for the current version of a map, building it if it has not been built yet.
+     *
+     * @param map           The map.
+     * @param diagonal      Whether or not diagonal moves are allowed.
+     * @param configuration The amount of landmarks and how they are placed.
+     * @return The table.
+     */
+    public static synchronized LandmarkTable get(GridMap map, boolean diagonal, Configuration configuration) {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            LandmarkTable table = CACHE[i];
+
+            if (table != null && table.isFor(map, diagonal, configuration)) {
+                System.arraycopy(CACHE, 0, CACHE, 1, i);
+                CACHE[0] = table;
+                return table;
+            }
+        }
+
+        LandmarkTable table = new LandmarkTable(map, diagonal, configuration);
+        System.arraycopy(CACHE, 0, CACHE, 1, CACHE_SIZE - 1);
+        CACHE[0] = table;
+        return table;
+    }
+
+    /**
+     * Makes the table of a map the one the current thread estimates with.
+     *
+     * @param map           The map about to be searched.
+     * @param diagonal      Whether or not diagonal moves are allowed.
+     * @param configuration The amount of landmarks and how they are placed.
+     */
+    static void prepare(GridMap map, boolean diagonal, Configuration configuration) {
+        LandmarkTable table = CURRENT.get();
+
+        if (table == null || !table.isFor(map, diagonal, configuration)) {
+            CURRENT.set(get(map, diagonal, configuration));
+        }
+    }
+
+    /**
+     * Estimates the distance between two cells with the table of the current thread. Searches that did not prepare a
+     * table use the default landmarks with diagonal moves, whose distances are never longer than the distances without
+     * them.
+     */
+    static float estimate(GridMap map, int one, int two) {
+        LandmarkTable table = CURRENT.get();
+
+        if (table == null || !table.isFor(map)) {
+            prepare(map, true, Configuration.DEFAULT);
+            table = CURRENT.get();
+        }
+
+        return table.calculate(map, one, two);
+    }
+
+    /**
+     * Estimates the distance between two cells.
+     *
+     * @param map The map the table was built for.
+     * @param one The first cell.
+     * @param two The second cell.
+     * @return The largest of the landmark estimates and the geometric estimate.
+     */
+    public float calculate(GridMap map, int one, int two) {
+        int count = landmarks.length;
+        int first = one * count;
+        int second = two * count;
+        float estimate = fallback.calculate(map, one, two);
+
+        for (int i = 0; i < count; i++) {
+            int a = distances[first + i];
+            int b = distances[second + i];
+
+            // A landmark in another component tells nothing
+            if (a != UNREACHABLE && b != UNREACHABLE) {
+                estimate = Math.max(estimate, (Math.abs(a - b) - 1) * steps[i]);
+            }
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Checks if the table was built for the current version of a map.
+     */
+    private boolean isFor(GridMap map) {
+        return map.getHistory() == history && map.getVersion() == version
+                && map.getWidth() == width && map.getHeight() == height;
+    }
+
+    /**
+     * Checks if the table was built for the current version of a map, a movement type and a configuration.
+     */
+    private boolean isFor(GridMap map, boolean diagonal, Configuration configuration) {
+        return isFor(map) && this.diagonal == diagonal && this.configuration.equals(configuration);
+    }
+
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Picks the open cells closest to points spread evenly around the edge of the map.
+     */
+    private static int[] selectPlanar(GridMap map, int count) {
+        int[] cells = new int[count];
+        float perimeter = 2f * (map.getWidth() + map.getHeight() - 2);
+
+        for (int i = 0; i < count; i++) {
+            // Walk clockwise around the edge from the top left corner
+            float position = perimeter * i / count;
+            float x, y;
+            if (position < map.getWidth() - 1) {
+                x = position;
+                y = 0;
+            } else if ((position -= map.getWidth() - 1) < map.getHeight() - 1) {
+                x = map.getWidth() - 1;
+                y = position;
+            } else if ((position -= map.getHeight() - 1) < map.getWidth() - 1) {
+                x = map.getWidth() - 1 - position;
+                y = map.getHeight() - 1;
+            } else {
+                x = 0;
+                y = map.getHeight() - 1 - (position - map.getWidth() + 1);
+            }
+
+            cells[i] = closestOpen(map, x, y);
+        }
+
+        return cells;
+    }
+
+    /**
+     * Gets the open cell closest to a position, or -1 if every cell is blocked.
+     */
+    private static int closestOpen(GridMap map, float x, float y) {
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+
+        for (int cell = 0; cell < map.getCellCount(); cell++) {
+            float dx = map.getX(cell) - x;
+            float dy = map.getY(cell) - y;
+
+            if (dx * dx + dy * dy < bestDistance && !map.isBlocked(cell)) {
+                bestDistance = dx * dx + dy * dy;
+                best = cell;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Picks random open cells, seeded by the size of the map so that the same map gets the same landmarks.
+     */
+    private static int[] selectRandom(GridMap map, int count) {
+        int[] cells = new int[count];
+        Arrays.fill(cells, -1);
+
+        if (closestOpen(map, 0, 0) == -1) {
+            return cells;
+        }
+
+        Random random = new Random(31L * map.getWidth() + map.getHeight());
+        for (int i = 0; i < count; i++) {
+            int cell;
+            do {
+                cell = random.nextInt(map.getCellCount());
+            } while (map.isBlocked(cell));
+            cells[i] = cell;
+        }
+
+        return cells;
+    }
+
+    private static int indexOf(int[] cells, int count, int cell) {
+        for (int i = 0; i < count; i++) {
+            if (cells[i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Runs Dijkstra from the landmarks, reusing the same queue and distances for every landmark.
+     */
+    private static class Builder {
+
+        private final GridMap map;
+        private final boolean diagonal;
+        private final IndexedPriorityQueue open;
+        private final int[] neighbors = new int[8];
+        private final float[] distance;
+
+        private Builder(GridMap map, boolean diagonal) {
+            this.map = map;
+            this.diagonal = diagonal;
+            this.open = new IndexedPriorityQueue(map.getCellCount());
+            this.distance = new float[map.getCellCount()];
+        }
+
+        /**
+         * Gets the distance from a cell to every cell.
+         *
+         * @param source The cell to start from, or -1 if there is none.
+         * @return The distances, {@link Float#MAX_VALUE} for cells that cannot be reached. Overwritten by the next run.
+         */
+        private float[] run(int source) {
+            Arrays.fill(distance, Float.MAX_VALUE);
+
+            if (source == -1) {
+                return distance;
+            }
+
+            distance[source] = 0f;
+            open.addOrUpdate(source, 0f);
+
+            while (!open.isEmpty()) {
+                int current = open.poll();
+                int count = map.getNeighbors(current, diagonal, neighbors);
+
+                for (int i = 0; i < count; i++) {
+                    int neighbor = neighbors[i];
+                    float tentative = distance[current] + (map.isDiagonal(current, neighbor)
+                            ? Heuristics.DIAGONAL_COST : Heuristics.STRAIGHT_COST);
+
+                    if (tentative < distance[neighbor]) {
+                        distance[neighbor] = tentative;
+                        open.addOrUpdate(neighbor, tentative);
+                    }
+                }
+            }
+
+            return distance;
+        }
+
+        /**
+         * Gets the reachable cell with the largest distance, skipping cells that are already landmarks.
+         *
+         * @param distance The distances of the cells.
+         * @param closest  The distance of each cell to its closest landmark, zero for landmarks.
+         * @return The cell, or -1 if every reachable cell is a landmark.
+         */
+        private int farthest(float[] distance, float[] closest) {
+            int best = -1;
+
+            for (int cell = 0; cell < distance.length; cell++) {
+                if (distance[cell] != Float.MAX_VALUE && closest[cell] > 0f
+                        && (best == -1 || distance[cell] > distance[best])) {
+                    best = cell;
+                }
+            }
+
+            return best;
+        }
+    }
+
+}
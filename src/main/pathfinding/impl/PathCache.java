@@ -0,0 +1,254 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.GridMap;
+import main.pathfinding.Pathfinder;
+import main.pathfinding.SearchResult;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded cache of search results, keyed by the version of the map, the start and goal cells and the algorithm
+ * settings used.
+ * <p>
+ * Entries are evicted least recently used first once either the amount of entries or the total amount of path cells held
+ * goes over its limit. The cache only holds results for a single map at a time, so it is cleared as soon as it is asked
+ * about a different map or a newer version of the same map. Editing the cells of a {@link main.pathfinding.Grid} or
+ * loading a new grid therefore invalidates every cached path without the cache having to be told.
+ *
+ * @author Matthew Lillie
+ */
+public class PathCache {
+
+    /**
+     * The limits of the cache.
+     */
+    private final int maxEntries;
+    private final long maxCells;
+
+    /**
+     * The cached results in least recently used order.
+     */
+    private final LinkedHashMap<Key, SearchResult> results = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The algorithms used to fill in misses, one per set of settings so that any data they derive from the map is reused.
+     */
+    private final Map<SearchSettings, Pathfinder> pathfinders = new HashMap<>();
+
+    /**
+     * The map and the version of it that the cached results belong to.
+     */
+    private GridMap map;
+    private int version;
+
+    /**
+     * The total amount of path cells within the cache.
+     */
+    private long cells;
+
+    private long hits, misses;
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxEntries The most results held at once.
+     * @param maxCells   The most path cells held at once, across every result.
+     */
+    public PathCache(int maxEntries, long maxCells) {
+        if (maxEntries <= 0 || maxCells <= 0) {
+            throw new IllegalArgumentException("Invalid cache limits: " + maxEntries + " entries, " + maxCells + " cells");
+        }
+
+        this.maxEntries = maxEntries;
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * Gets the cached result of a search, running the search and caching its result on a miss.
+     *
+     * @param map              The map to search.
+     * @param start            The start cell.
+     * @param goal             The goal cell.
+     * @param algorithm        The algorithm to search with.
+     * @param heuristic        The heuristic used, ignored by algorithms that do not use one.
+     * @param diagonalMovement Whether or not we can move diagonally.
+     * @return The result of the search.
+     */
+    public SearchResult findPath(GridMap map, int start, int goal, Algorithm algorithm, Heuristics heuristic,
+                                 boolean diagonalMovement) {
+        SearchResult result = get(map, start, goal, algorithm, heuristic, diagonalMovement);
+        if (result != null) {
+            return result;
+        }
+
+        int version = map.getVersion();
+        result = getPathfinder(algorithm, heuristic, diagonalMovement).findPath(map, start, goal);
+        put(map, version, start, goal, algorithm, heuristic, diagonalMovement, result);
+        return result;
+    }
+
+    /**
+     * Gets a cached result, counting the lookup as a hit or a miss.
+     *
+     * @return The cached result, or null if there is none for the current version of the map.
+     */
+    public synchronized SearchResult get(GridMap map, int start, int goal, Algorithm algorithm, Heuristics heuristic,
+                                         boolean diagonalMovement) {
+        validate(map);
+
+        SearchResult result = results.get(new Key(map.getVersion(), start, goal,
+                new SearchSettings(algorithm, heuristic, diagonalMovement)));
+
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    /**
+     * Caches the result of a search, ignoring it if the map has been edited since the search started.
+     *
+     * @param map     The map that was searched.
+     * @param version The version of the map when the search started.
+     */
+    public synchronized void put(GridMap map, int version, int start, int goal, Algorithm algorithm,
+                                 Heuristics heuristic, boolean diagonalMovement, SearchResult result) {
+        validate(map);
+
+        if (version != this.version) {
+            return;
+        }
+
+        SearchResult previous = results.put(new Key(version, start, goal,
+                new SearchSettings(algorithm, heuristic, diagonalMovement)), result);
+        if (previous != null) {
+            cells -= previous.getPath().length;
+        }
+        cells += result.getPath().length;
+
+        Iterator<SearchResult> iterator = results.values().iterator();
+        while ((results.size() > maxEntries || cells > maxCells) && iterator.hasNext()) {
+            cells -= iterator.next().getPath().length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes every cached result, keeping the hit and miss counts.
+     */
+    public synchronized void clear() {
+        results.clear();
+        cells = 0;
+    }
+
+    /**
+     * Clears the cache if it holds results for a different map or an older version of the map.
+     */
+    private void validate(GridMap map) {
+        if (map != this.map || map.getVersion() != version) {
+            clear();
+            if (map != this.map) {
+                pathfinders.clear();
+            }
+            this.map = map;
+            this.version = map.getVersion();
+        }
+    }
+
+    /**
+     * Gets the pathfinder used for a combination of settings. Pathfinders are kept until a different map is used, so
+     * algorithms holding data derived from the map only have to update it after edits.
+     *
+     * @param algorithm        The algorithm to search with.
+     * @param heuristic        The heuristic used, ignored by algorithms that do not use one.
+     * @param diagonalMovement Whether or not we can move diagonally.
+     * @return The pathfinder.
+     */
+    public synchronized Pathfinder getPathfinder(Algorithm algorithm, Heuristics heuristic, boolean diagonalMovement) {
+        return pathfinders.computeIfAbsent(new SearchSettings(algorithm, heuristic, diagonalMovement),
+                settings -> algorithm.create(diagonalMovement, heuristic));
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The algorithm settings a result was found with.
+     */
+    private static class SearchSettings {
+
+        private final Algorithm algorithm;
+        private final Heuristics heuristic;
+        private final boolean diagonalMovement;
+
+        private SearchSettings(Algorithm algorithm, Heuristics heuristic, boolean diagonalMovement) {
+            this.algorithm = algorithm;
+            // The heuristic makes no difference to algorithms that do not use one
+            this.heuristic = algorithm.usesHeuristic() ? heuristic : null;
+            this.diagonalMovement = diagonalMovement;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SearchSettings)) {
+                return false;
+            }
+            SearchSettings other = (SearchSettings) o;
+            return algorithm == other.algorithm && heuristic == other.heuristic
+                    && diagonalMovement == other.diagonalMovement;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(algorithm, heuristic, diagonalMovement);
+        }
+    }
+
+    /**
+     * Identifies a single cached result.
+     */
+    private static class Key {
+
+        private final int version;
+        private final int start, goal;
+        private final SearchSettings settings;
+
+        private Key(int version, int start, int goal, SearchSettings settings) {
+            this.version = version;
+            this.start = start;
+            this.goal = goal;
+            this.settings = settings;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && start == other.start && goal == other.goal
+                    && settings.equals(other.settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * version + start) + goal) + settings.hashCode();
+        }
+    }
+
+}
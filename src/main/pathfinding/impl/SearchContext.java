@@ -0,0 +1,258 @@
+package main.pathfinding.impl;
+
+import main.pathfinding.GridMap;
+
+import java.util.Arrays;
+
+/**
+ * The per cell state of a search (g value, parent and whether the cell is closed), reused between searches.
+ * <p>
+ * Instead of clearing every array before a search, each cell is stamped with the generation of the search that last
+ * wrote to it. Starting a new search only increments the generation, which makes every old value invalid in O(1). Each
+ * thread keeps its own contexts, growing them when a larger map is searched, so searches on the same thread never
+ * reallocate their state and searches on different threads never share it. A context much larger than the map searched
+ * is replaced by a smaller one, and threads that are not owned by the caller release their contexts once done with them
+ * so the memory is not kept alive by an idle thread pool.
+ *
+ * @author Matthew Lillie
+ */
+public class SearchContext {
+
+    /**
+     * The amount of contexts each thread keeps, enough for a search from both ends at once.
+     */
+    private static final int CONTEXTS_PER_THREAD = 2;
+
+    /**
+     * Contexts holding more than this many times the cells of the map searched are replaced by smaller ones.
+     */
+    private static final int TRIM_FACTOR = 4;
+
+    private static final ThreadLocal<SearchContext[]> CONTEXTS =
+            ThreadLocal.withInitial(() -> new SearchContext[CONTEXTS_PER_THREAD]);
+
+    /**
+     * The generation of the current search, cells stamped with any other generation hold no state.
+     */
+    private int generation;
+
+    /**
+     * The generation each cell was last reached and closed in, indexed by cell id.
+     */
+    private final int[] reachedStamps;
+    private final int[] closedStamps;
+
+    /**
+     * The g value and parent of each cell, only valid if the cell was reached in the current generation.
+     */
+    private final float[] gValues;
+    private final int[] parents;
+
+    /**
+     * Scratch space for a queue or stack of cells, holds no state between searches.
+     */
+    private final int[] cells;
+
+    /**
+     * The open set, emptied before every search.
+     */
+    private final IndexedPriorityQueue open;
+
+    /**
+     * The g values and open set of searches with fixed point costs, created the first time one is ran.
+     */
+    private long[] fixedGValues;
+    private BucketQueue buckets;
+
+    /**
+     * The transposition table of IDA* searches, created the first time one is ran.
+     */
+    private TranspositionTable table;
+
+    private SearchContext(int capacity) {
+        this.reachedStamps = new int[capacity];
+        this.closedStamps = new int[capacity];
+        this.gValues = new float[capacity];
+        this.parents = new int[capacity];
+        this.cells = new int[capacity];
+        this.open = new IndexedPriorityQueue(capacity);
+    }
+
+    /**
+     * Gets the first context of the current thread, ready for a new search of a map.
+     *
+     * @param map The map about to be searched.
+     * @return The context.
+     */
+    public static SearchContext acquire(GridMap map) {
+        return acquire(map, 0);
+    }
+
+    /**
+     * Gets a context of the current thread, ready for a new search of a map. A context must only be used by one search at
+     * a time, searches needing more than one use a different index for each.
+     *
+     * @param map   The map about to be searched.
+     * @param index The index of the context, less than {@link #CONTEXTS_PER_THREAD}.
+     * @return The context.
+     */
+    public static SearchContext acquire(GridMap map, int index) {
+        SearchContext[] contexts = CONTEXTS.get();
+        SearchContext context = contexts[index];
+
+        if (context == null || context.parents.length < map.getCellCount()
+                || context.parents.length / TRIM_FACTOR > map.getCellCount()) {
+            context = new SearchContext(map.getCellCount());
+            contexts[index] = context;
+        }
+
+        context.reset();
+        return context;
+    }
+
+    /**
+     * Drops the contexts of the current thread, the next search on the thread creates new ones.
+     */
+    public static void release() {
+        CONTEXTS.remove();
+    }
+
+    /**
+     * Invalidates the state of every cell.
+     */
+    private void reset() {
+        open.clear();
+        if (buckets != null) {
+            buckets.clear();
+        }
+
+        if (++generation == Integer.MAX_VALUE) {
+            // Only happens once every couple billion searches, the stamps have to be cleared for real
+            Arrays.fill(reachedStamps, 0);
+            Arrays.fill(closedStamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Checks if a cell has been given a g value and parent during this search.
+     *
+     * @param cell The cell id.
+     * @return True if the cell has been reached.
+     */
+    public boolean isReached(int cell) {
+        return reachedStamps[cell] == generation;
+    }
+
+    /**
+     * Gets the g value of a cell.
+     *
+     * @param cell The cell id.
+     * @return The g value, or {@link Float#MAX_VALUE} if the cell has not been reached.
+     */
+    public float getG(int cell) {
+        return reachedStamps[cell] == generation ? gValues[cell] : Float.MAX_VALUE;
+    }
+
+    /**
+     * Sets the g value and parent of a cell, marking it as reached.
+     *
+     * @param cell   The cell id.
+     * @param g      The g value.
+     * @param parent The parent cell, or -1 if there is none.
+     */
+    public void reach(int cell, float g, int parent) {
+        reachedStamps[cell] = generation;
+        gValues[cell] = g;
+        parents[cell] = parent;
+    }
+
+    /**
+     * Gets the fixed point g value of a cell, see {@link Heuristics#FIXED_POINT_SCALE}.
+     *
+     * @param cell The cell id.
+     * @return The g value, or {@link Long#MAX_VALUE} if the cell has not been reached.
+     */
+    public long getFixedG(int cell) {
+        return reachedStamps[cell] == generation ? fixedGValues[cell] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Sets the fixed point g value and parent of a cell, marking it as reached.
+     *
+     * @param cell   The cell id.
+     * @param g      The g value.
+     * @param parent The parent cell, or -1 if there is none.
+     */
+    public void reachFixed(int cell, long g, int parent) {
+        if (fixedGValues == null) {
+            fixedGValues = new long[parents.length];
+        }
+
+        reachedStamps[cell] = generation;
+        fixedGValues[cell] = g;
+        parents[cell] = parent;
+    }
+
+    public boolean isClosed(int cell) {
+        return closedStamps[cell] == generation;
+    }
+
+    public void close(int cell) {
+        closedStamps[cell] = generation;
+    }
+
+    public void reopen(int cell) {
+        closedStamps[cell] = 0;
+    }
+
+    /**
+     * Gets the parent of every cell, only valid for cells reached during this search.
+     *
+     * @return The parents indexed by cell id.
+     */
+    public int[] getParents() {
+        return parents;
+    }
+
+    /**
+     * Gets scratch space large enough to hold every cell of the map once.
+     *
+     * @return The scratch array.
+     */
+    public int[] getCells() {
+        return cells;
+    }
+
+    public IndexedPriorityQueue getOpen() {
+        return open;
+    }
+
+    /**
+     * Gets the open set of searches with fixed point costs.
+     *
+     * @return The bucket queue, empty.
+     */
+    public BucketQueue getBuckets() {
+        if (buckets == null) {
+            buckets = new BucketQueue(parents.length);
+        }
+        return buckets;
+    }
+
+    /**
+     * Gets the transposition table of IDA* searches, which keeps its entries from one search to the next.
+     *
+     * @param size The most entries the table may have during this search.
+     * @return The table.
+     */
+    TranspositionTable getTranspositionTable(int size) {
+        if (table == null) {
+            table = new TranspositionTable(size);
+        } else {
+            table.resize(size);
+        }
+        return table;
+    }
+
+}
@@ -0,0 +1,86 @@
+package main.pathfinding.impl;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size table remembering the cheapest g value cells have been reached with during the current iteration of an
+ * {@link IDAStarSearch}. Each cell hashes to a single slot, newer entries replace whatever was in their slot.
+ * <p>
+ * Slots are stamped with the iteration they were written in, and iterations keep counting from one search to the next,
+ * so the table a {@link SearchContext} keeps is reused by every search on its thread without ever being cleared.
+ *
+ * @author Matthew Lillie
+ */
+class TranspositionTable {
+
+    private int[] cells;
+    private float[] gValues;
+
+    /**
+     * The iteration each slot was written in, slots from older iterations are empty.
+     */
+    private int[] stamps;
+    private int mask;
+    private int iteration;
+
+    /**
+     * Constructs a new table.
+     *
+     * @param size The most entries the table may have, rounded down to a power of two.
+     */
+    TranspositionTable(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, 1));
+        this.cells = new int[capacity];
+        this.gValues = new float[capacity];
+        this.stamps = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Sets the most entries the table may have for the next search, only growing the table if it is too small.
+     *
+     * @param size The most entries, rounded down to a power of two.
+     */
+    void resize(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, 1));
+
+        if (capacity > stamps.length) {
+            cells = new int[capacity];
+            gValues = new float[capacity];
+            stamps = new int[capacity];
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Forgets every entry by starting a new iteration.
+     */
+    void nextIteration() {
+        if (++iteration == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            iteration = 1;
+        }
+    }
+
+    /**
+     * Records that a cell has been reached with a g value.
+     *
+     * @param cell The cell id.
+     * @param g    The g value the cell was reached with.
+     * @return False if the cell was already reached this iteration with a g value that is as cheap or cheaper.
+     */
+    boolean update(int cell, float g) {
+        int hash = cell * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        if (stamps[slot] == iteration && cells[slot] == cell && gValues[slot] <= g) {
+            return false;
+        }
+
+        stamps[slot] = iteration;
+        cells[slot] = cell;
+        gValues[slot] = g;
+        return true;
+    }
+
+}
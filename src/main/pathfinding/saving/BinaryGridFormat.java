@@ -0,0 +1,199 @@
+package main.pathfinding.saving;
+
+import main.pathfinding.GridMap;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes grids in a compact binary format.
+ * <p>
+ * A file starts with a 32 byte header of big endian ints: the magic number, the format version, the flags, the width,
+ * the height, the node size, the start cell and the goal cell. The blocked cells follow as longs, one bit per cell id in
+ * the same layout as {@link GridMap#getAllBlocked()}. If the {@link #FLAG_TERRAIN} flag is set the terrain costs follow,
+ * one byte per cell id as in {@link GridMap#getAllCosts()}. Everything after the header is deflated when the
+ * {@link #FLAG_COMPRESSED} flag is set. Uncompressed files are read through a memory mapped buffer, so even maps with
+ * millions of cells load in milliseconds.
+ *
+ * @author Matthew Lillie
+ */
+public class BinaryGridFormat {
+
+    /**
+     * The file extension used for binary grids.
+     */
+    public static final String EXTENSION = "grid";
+
+    /**
+     * The first four bytes of every file, "PFGR".
+     */
+    private static final int MAGIC = 0x50464752;
+
+    /**
+     * The version of the format written, files from newer versions or with versions below 1 are rejected.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Set if the cells are deflated.
+     */
+    public static final int FLAG_COMPRESSED = 1;
+
+    /**
+     * Set if the terrain costs follow the blocked cells, added in version 2.
+     */
+    public static final int FLAG_TERRAIN = 2;
+
+    /**
+     * Every flag defined so far, files with any other flag set are rejected.
+     */
+    private static final int KNOWN_FLAGS = FLAG_COMPRESSED | FLAG_TERRAIN;
+
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * Writes a grid to a file.
+     *
+     * @param file       The file to write.
+     * @param map        The map to save.
+     * @param nodeSize   The node size to save.
+     * @param compressed Whether or not the cells should be deflated.
+     * @throws IOException Exception may be thrown if the file could not be written.
+     */
+    public static void write(File file, GridMap map, int nodeSize, boolean compressed) throws IOException {
+        long[] blocked = map.getAllBlocked();
+        clearUnusedBits(blocked, map.getCellCount());
+        byte[] costs = map.getAllCosts();
+
+        ByteBuffer payload = ByteBuffer.allocate(blocked.length * Long.BYTES + (costs == null ? 0 : costs.length));
+        payload.asLongBuffer().put(blocked);
+        if (costs != null) {
+            payload.position(blocked.length * Long.BYTES);
+            payload.put(costs);
+        }
+
+        int flags = (compressed ? FLAG_COMPRESSED : 0) | (costs == null ? 0 : FLAG_TERRAIN);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(flags);
+            out.writeInt(map.getWidth());
+            out.writeInt(map.getHeight());
+            out.writeInt(nodeSize);
+            out.writeInt(map.getStart());
+            out.writeInt(map.getGoal());
+
+            if (compressed) {
+                DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+                deflater.write(payload.array());
+                deflater.finish();
+            } else {
+                out.write(payload.array());
+            }
+        }
+    }
+
+    /**
+     * Reads a grid from a file.
+     *
+     * @param file The file to read.
+     * @return The grid read.
+     * @throws IOException Exception may be thrown if the file could not be read or is not a valid grid.
+     */
+    public static SavedGrid read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a grid file: " + file);
+            }
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a grid file: " + file);
+            }
+
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported grid file version " + version + ": " + file);
+            }
+
+            int flags = buffer.getInt();
+            if ((flags & ~KNOWN_FLAGS) != 0 || (flags & FLAG_TERRAIN) != 0 && version < 2) {
+                throw new IOException("Invalid flags " + flags + " for grid file version " + version + ": " + file);
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int nodeSize = buffer.getInt();
+            int start = buffer.getInt();
+            int goal = buffer.getInt();
+
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 63) {
+                throw new IOException("Invalid grid size " + width + "x" + height + ": " + file);
+            }
+
+            int cellCount = width * height;
+            if (start < 0 || start >= cellCount || goal < 0 || goal >= cellCount) {
+                throw new IOException("Invalid start or goal: " + file);
+            }
+
+            long[] blocked = new long[GridMap.getWordCount(width, height)];
+            byte[] costs = (flags & FLAG_TERRAIN) != 0 ? new byte[cellCount] : null;
+            long payloadSize = (long) blocked.length * Long.BYTES + (costs == null ? 0 : cellCount);
+            if (payloadSize > Integer.MAX_VALUE) {
+                throw new IOException("Grid too large: " + file);
+            }
+
+            if ((flags & FLAG_COMPRESSED) != 0) {
+                byte[] compressed = new byte[buffer.remaining()];
+                buffer.get(compressed);
+
+                byte[] payload = new byte[(int) payloadSize];
+                try (DataInputStream in = new DataInputStream(
+                        new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+                    in.readFully(payload);
+                }
+                buffer = ByteBuffer.wrap(payload);
+            } else if (buffer.remaining() != payloadSize) {
+                throw new IOException("Truncated grid file: " + file);
+            }
+
+            buffer.asLongBuffer().get(blocked);
+            if (costs != null) {
+                buffer.position(buffer.position() + blocked.length * Long.BYTES);
+                buffer.get(costs);
+            }
+
+            clearUnusedBits(blocked, cellCount);
+
+            GridMap map = new GridMap(width, height, blocked);
+            map.setStart(start);
+            map.setGoal(goal);
+
+            if (costs != null) {
+                try {
+                    map.setAllCosts(costs);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid terrain costs: " + file, e);
+                }
+            }
+
+            return new SavedGrid(map, nodeSize);
+        }
+    }
+
+    /**
+     * Clears the bits past the last cell, so that the same map is always written the same way.
+     */
+    private static void clearUnusedBits(long[] blocked, int cellCount) {
+        if ((cellCount & 63) != 0) {
+            blocked[blocked.length - 1] &= (1L << cellCount) - 1;
+        }
+    }
+
+}
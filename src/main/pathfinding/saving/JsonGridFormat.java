@@ -0,0 +1,246 @@
+package main.pathfinding.saving;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import main.pathfinding.CellType;
+import main.pathfinding.GridMap;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reads and writes grids as JSON using Gson's streaming API.
+ * <p>
+ * A grid is an object with the fields gridWidth, gridHeight, nodeSize and gridValues, where gridValues holds one array
+ * per column of the grid with the {@link CellType#getSaveCode() save code} of each cell. Maps with terrain costs also
+ * have a terrainCosts field laid out the same way with the cost of each cell. Cells are written and read one at a time
+ * instead of going through a full array of characters and a string of the whole document, so the only memory used
+ * besides the map itself is a bit per cell while reading, and a byte per cell for the terrain costs.
+ *
+ * @author Matthew Lillie
+ */
+public class JsonGridFormat {
+
+    /**
+     * The file extension used for JSON grids.
+     */
+    public static final String EXTENSION = "json";
+
+    /**
+     * Writes a grid to a file.
+     *
+     * @param file     The file to write.
+     * @param map      The map to save.
+     * @param nodeSize The node size to save.
+     * @param compact  Whether or not to leave out all whitespace instead of putting every value on its own line.
+     * @throws IOException Exception may be thrown if the file could not be written.
+     */
+    public static void write(File file, GridMap map, int nodeSize, boolean compact) throws IOException {
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))) {
+            if (!compact) {
+                writer.setIndent("  ");
+            }
+
+            writer.beginObject();
+            writer.name("gridWidth").value(map.getWidth());
+            writer.name("gridHeight").value(map.getHeight());
+            writer.name("nodeSize").value(nodeSize);
+
+            writer.name("gridValues").beginArray();
+            for (int x = 0; x < map.getWidth(); x++) {
+                writer.beginArray();
+                for (int y = 0; y < map.getHeight(); y++) {
+                    writer.value(String.valueOf(map.getType(map.cellOf(x, y)).getSaveCode()));
+                }
+                writer.endArray();
+            }
+            writer.endArray();
+
+            if (map.isWeighted()) {
+                writer.name("terrainCosts").beginArray();
+                for (int x = 0; x < map.getWidth(); x++) {
+                    writer.beginArray();
+                    for (int y = 0; y < map.getHeight(); y++) {
+                        writer.value(map.getCost(map.cellOf(x, y)));
+                    }
+                    writer.endArray();
+                }
+                writer.endArray();
+            }
+
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Reads a grid from a file.
+     *
+     * @param file The file to read.
+     * @return The grid read, or null if the file was empty.
+     * @throws IOException Exception may be thrown if the file could not be read or is not a valid grid.
+     */
+    public static SavedGrid read(File file) throws IOException {
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))) {
+            try {
+                reader.peek();
+            } catch (EOFException e) {
+                // Nothing but whitespace
+                return null;
+            }
+
+            int width = -1;
+            int height = -1;
+            int nodeSize = 0;
+
+            // The values are read before the size is known, so the blocked cells are kept column by column
+            BitSet blocked = new BitSet();
+            int columns = 0;
+            int rows = -1;
+            int startX = -1, startY = -1;
+            int goalX = -1, goalY = -1;
+
+            // The terrain costs column by column, null if there are none
+            byte[] costs = null;
+            int costCount = 0;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "gridWidth":
+                        width = reader.nextInt();
+                        break;
+                    case "gridHeight":
+                        height = reader.nextInt();
+                        break;
+                    case "nodeSize":
+                        nodeSize = reader.nextInt();
+                        break;
+                    case "gridValues":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            int y = 0;
+
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                if (rows != -1 && y == rows) {
+                                    throw new IOException("Uneven grid columns: " + file);
+                                }
+
+                                char value = readSaveCode(reader);
+                                if (value == CellType.START.getSaveCode()) {
+                                    startX = columns;
+                                    startY = y;
+                                } else if (value == CellType.GOAL.getSaveCode()) {
+                                    goalX = columns;
+                                    goalY = y;
+                                } else if (value == CellType.BLOCKED.getSaveCode()) {
+                                    // The height is only known after the first column, which starts at 0 anyway
+                                    long index = (long) columns * Math.max(rows, 0) + y;
+                                    if (index > Integer.MAX_VALUE) {
+                                        throw new IOException("Grid too large: " + file);
+                                    }
+                                    blocked.set((int) index);
+                                }
+                                y++;
+                            }
+                            reader.endArray();
+
+                            if (rows == -1) {
+                                rows = y;
+                            } else if (y != rows) {
+                                throw new IOException("Uneven grid columns: " + file);
+                            }
+                            columns++;
+                        }
+                        reader.endArray();
+                        break;
+                    case "terrainCosts":
+                        costs = new byte[64];
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                int cost = reader.nextInt();
+                                if (cost < GridMap.MIN_COST || cost > GridMap.MAX_COST) {
+                                    throw new IOException("Invalid terrain cost " + cost + ": " + file);
+                                }
+
+                                if (costCount == costs.length) {
+                                    if (costCount == Integer.MAX_VALUE - 8) {
+                                        throw new IOException("Grid too large: " + file);
+                                    }
+                                    costs = Arrays.copyOf(costs, (int) Math.min(costCount * 2L, Integer.MAX_VALUE - 8));
+                                }
+                                costs[costCount++] = (byte) cost;
+                            }
+                            reader.endArray();
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            if (width != columns || height != rows) {
+                throw new IOException("Grid size " + width + "x" + height + " does not match its values: " + file);
+            }
+
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 63) {
+                throw new IOException("Invalid grid size " + width + "x" + height + ": " + file);
+            }
+
+            // Turn the columns into rows
+            long[] words = new long[GridMap.getWordCount(width, height)];
+            for (int i = blocked.nextSetBit(0); i >= 0; i = blocked.nextSetBit(i + 1)) {
+                int cell = (i % height) * width + i / height;
+                words[cell >>> 6] |= 1L << cell;
+            }
+
+            GridMap map = new GridMap(width, height, words);
+
+            if (startX != -1) {
+                map.setStart(map.cellOf(startX, startY));
+            }
+            if (goalX != -1) {
+                map.setGoal(map.cellOf(goalX, goalY));
+            }
+
+            if (costs != null) {
+                if (costCount != map.getCellCount()) {
+                    throw new IOException("Terrain costs do not match the grid size: " + file);
+                }
+
+                // Turn the columns into rows
+                byte[] rowCosts = new byte[costCount];
+                for (int i = 0; i < costCount; i++) {
+                    rowCosts[(i % height) * width + i / height] = costs[i];
+                }
+                map.setAllCosts(rowCosts);
+            }
+
+            return new SavedGrid(map, nodeSize);
+        }
+    }
+
+    /**
+     * Reads the save code of a single cell, treating null and empty values as normal cells.
+     */
+    private static char readSaveCode(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return CellType.NORMAL.getSaveCode();
+        }
+
+        String value = reader.nextString();
+        return value.isEmpty() ? CellType.NORMAL.getSaveCode() : value.charAt(0);
+    }
+
+}
@@ -1,85 +1,64 @@
 package main.pathfinding.saving;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import main.pathfinding.Grid;
-import main.pathfinding.Node;
-import main.pathfinding.Settings;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.filechooser.FileSystemView;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 
 /**
  * Helper class that allows for loading and saving of the grid and the nodes within.
+ * <p>
+ * Grids are saved in the binary format of {@link BinaryGridFormat} unless a JSON file is chosen, in which case they are
+ * streamed by {@link JsonGridFormat}, and both formats can be loaded.
  *
  * @author Matthew Lillie
  */
 public class LoadingSaving {
 
     /**
-     * The current path to the directory where the file will be saved to.
+     * The current path of the file that will be saved to.
      */
     private static String currentPathDirectory = null;
 
     /**
-     * Loads a Grid from a JSON file.
+     * Whether or not JSON files are saved without whitespace.
+     */
+    private static boolean compactJson = false;
+
+    /**
+     * Whether or not binary grids are saved deflated.
+     */
+    private static boolean compressedGrid = false;
+
+    /**
+     * Loads a Grid from a binary or JSON file.
      *
      * @param grid The Grid to update with the given file.
      * @throws IOException An exception may be thrown if invalid File.
      */
-    public static void loadGrid(Grid grid, Settings settings) throws IOException {
+    public static void loadGrid(Grid grid) throws IOException {
         String directory = getLoadDirectory();
 
         if (directory == null) {
             return;
         }
 
-        Gson gson = new Gson();
-
-        try(FileReader reader = new FileReader(directory)) {
-            GridObject gridObject = gson.fromJson(reader, GridObject.class);
+        File file = new File(directory);
+        SavedGrid savedGrid = getExtension(file).equals(BinaryGridFormat.EXTENSION)
+                ? BinaryGridFormat.read(file) : JsonGridFormat.read(file);
 
-            if (gridObject != null) {
-                Node[][] nodes = new Node[gridObject.getGridWidth()][gridObject.getGridHeight()];
-
-                grid.setNodeSize(gridObject.getNodeSize());
-                settings.updateNodeSizeSlider(gridObject.getNodeSize());
-
-                for (int x = 0; x < gridObject.getGridWidth(); x++) {
-                    for (int y = 0; y < gridObject.getGridHeight(); y++) {
-                        nodes[x][y] = new Node(x, y);
-
-                        Node gridNode = nodes[x][y];
-
-                        Character value = gridObject.getGridValues()[x][y];
-                        if (value == Node.NodeType.START.getSaveCode()) {
-                            gridNode.setType(Node.NodeType.START);
-                            grid.setStartNode(gridNode);
-                        } else if (value == Node.NodeType.GOAL.getSaveCode()) {
-                            gridNode.setType(Node.NodeType.GOAL);
-                            grid.setGoalNode(gridNode);
-                        } else if (value == Node.NodeType.BLOCKED.getSaveCode()) {
-                            gridNode.setType(Node.NodeType.BLOCKED);
-                        } else if (value == Node.NodeType.NORMAL.getSaveCode()) {
-                            gridNode.setType(Node.NodeType.NORMAL);
-                        }
-
-                    }
-                }
-
-                grid.setNodes(nodes);
-                grid.repaint();
-            }
+        if (savedGrid != null) {
+            grid.setMap(savedGrid.getMap());
+            grid.setZoom(savedGrid.getNodeSize());
+            grid.repaint();
         }
     }
 
     /**
-     * Saves the currently used grid in JSON format.
+     * Saves the currently used grid, in JSON format if a JSON file was chosen and in binary format otherwise.
      *
      * @param grid The Grid to be saved
      * @throws IOException Exception may be thrown if invalid File or directory.
@@ -95,49 +74,52 @@ public class LoadingSaving {
             }
         }
 
-        Character[][] gridValues = new Character[grid.getNodes().length][grid.getNodes()[0].length];
-
-        // Turn the nodes into a 2d character array
-        for (int x = 0; x < grid.getNodes().length; x++) {
-            for (int y = 0; y < grid.getNodes()[x].length; y++) {
-                Node node = grid.getNodes()[x][y];
-
-                gridValues[x][y] = node.getType().getSaveCode();
-            }
+        File file = new File(currentPathDirectory);
+        if (getExtension(file).equals(BinaryGridFormat.EXTENSION)) {
+            BinaryGridFormat.write(file, grid.getMap(), grid.getZoom(), compressedGrid);
+            return;
         }
 
-        // Create the JSon object
-        int nodeSize = grid.getNodeSize();
-        int width = gridValues.length;
-        int height = gridValues[0].length;
-
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        GridObject gridObject = new GridObject(width, height, nodeSize, gridValues);
-        String jsonGrid = gson.toJson(gridObject);
-
-        // Write the file and close the writer.
-        try(FileWriter fileWriter = new FileWriter(currentPathDirectory)) {
-            fileWriter.write(jsonGrid);
-        }
+        JsonGridFormat.write(file, grid.getMap(), grid.getZoom(), compactJson);
     }
 
     /**
-     * Attempts to get the directory of where to save the JSON file.
+     * Attempts to get the path of the file to save to, adding the extension of the chosen format if it is missing.
      *
-     * @return The directory to save the JSON file.
+     * @return The path of the file to save to.
      */
     private static String getSaveDirectory() {
         JFileChooser jfc = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
-        jfc.setDialogTitle("Choose a directory to save your file: ");
-        jfc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        jfc.setDialogTitle("Choose a file to save your grid to: ");
+        jfc.setFileSelectionMode(JFileChooser.FILES_ONLY);
+        jfc.setSelectedFile(new File("GridSave." + BinaryGridFormat.EXTENSION));
+
+        FileNameExtensionFilter binaryFilter = new FileNameExtensionFilter("GRID FILES", BinaryGridFormat.EXTENSION);
+        FileNameExtensionFilter compressedFilter = new FileNameExtensionFilter("COMPRESSED GRID FILES",
+                BinaryGridFormat.EXTENSION);
+        FileNameExtensionFilter compactFilter = new FileNameExtensionFilter("COMPACT JSON FILES",
+                JsonGridFormat.EXTENSION);
+        jfc.addChoosableFileFilter(binaryFilter);
+        jfc.addChoosableFileFilter(compressedFilter);
+        jfc.addChoosableFileFilter(new FileNameExtensionFilter("JSON FILES", JsonGridFormat.EXTENSION));
+        jfc.addChoosableFileFilter(compactFilter);
+        jfc.setFileFilter(binaryFilter);
 
         int returnValue = jfc.showSaveDialog(null);
 
-        System.out.println(returnValue);
-
         if (returnValue == JFileChooser.APPROVE_OPTION) {
-            if (jfc.getSelectedFile().isDirectory()) {
-                return jfc.getSelectedFile().getAbsolutePath() + File.separator + "GridSave.json";
+            File file = jfc.getSelectedFile();
+            if (!file.isDirectory()) {
+                compactJson = jfc.getFileFilter() == compactFilter;
+                compressedGrid = jfc.getFileFilter() == compressedFilter;
+
+                String extension = getExtension(file);
+                if (!extension.equals(BinaryGridFormat.EXTENSION) && !extension.equals(JsonGridFormat.EXTENSION)) {
+                    extension = jfc.getFileFilter() == binaryFilter || jfc.getFileFilter() == compressedFilter
+                            ? BinaryGridFormat.EXTENSION : JsonGridFormat.EXTENSION;
+                    return file.getAbsolutePath() + "." + extension;
+                }
+                return file.getAbsolutePath();
             }
         } else if (returnValue == JFileChooser.CANCEL_OPTION) {
             return null;
@@ -155,17 +137,19 @@ public class LoadingSaving {
      */
     private static String getLoadDirectory() {
         JFileChooser jfc = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
-        jfc.setDialogTitle("Choose a grid json file to load from: ");
+        jfc.setDialogTitle("Choose a grid file to load from: ");
         jfc.setFileSelectionMode(JFileChooser.FILES_ONLY);
 
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("JSON FILES", "json");
+        FileNameExtensionFilter filter = new FileNameExtensionFilter("GRID AND JSON FILES", BinaryGridFormat.EXTENSION,
+                JsonGridFormat.EXTENSION);
         jfc.setFileFilter(filter);
 
         int returnValue = jfc.showOpenDialog(null);
         if (returnValue == JFileChooser.APPROVE_OPTION) {
 
             if (jfc.getSelectedFile().isFile()) {
-                if (getExtension(jfc.getSelectedFile()).equals("json")) {
+                String extension = getExtension(jfc.getSelectedFile());
+                if (extension.equals(BinaryGridFormat.EXTENSION) || extension.equals(JsonGridFormat.EXTENSION)) {
                     return jfc.getSelectedFile().getAbsolutePath();
                 }
             }
@@ -0,0 +1,145 @@
+package main.pathfinding.saving;
+
+import main.pathfinding.GridMap;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the map and scenario files of the Moving AI grid pathfinding benchmark sets.
+ * <p>
+ * A map file starts with the type, height and width of the map followed by a line containing "map", and then one line
+ * of characters per row. Ground ('.' and 'G') and swamp ('S') are walkable, everything else (out of bounds, trees and
+ * water) is blocked. A scenario file starts with its version followed by one tab separated line per scenario, see
+ * {@link MovingAiScenario}.
+ * <p>
+ * https://movingai.com/benchmarks/formats.html
+ *
+ * @author Matthew Lillie
+ */
+public class MovingAiFormat {
+
+    /**
+     * The file extensions of maps and scenarios.
+     */
+    public static final String MAP_EXTENSION = "map";
+    public static final String SCENARIO_EXTENSION = "scen";
+
+    /**
+     * Reads a map, with the start in the top left and the goal in the bottom right.
+     *
+     * @param file The map file.
+     * @return The map read.
+     * @throws IOException Exception may be thrown if the file could not be read or is not a valid map.
+     */
+    public static GridMap readMap(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            int width = -1;
+            int height = -1;
+
+            // The header, the order of the lines before "map" does not matter
+            String line;
+            while (true) {
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("Missing map data: " + file);
+                }
+
+                String[] parts = line.trim().split("\\s+");
+                if (parts[0].equals("map")) {
+                    break;
+                } else if (parts[0].equals("width") && parts.length == 2) {
+                    width = parseInt(parts[1], file);
+                } else if (parts[0].equals("height") && parts.length == 2) {
+                    height = parseInt(parts[1], file);
+                } else if (!parts[0].equals("type")) {
+                    throw new IOException("Unexpected map header \"" + line + "\": " + file);
+                }
+            }
+
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 63) {
+                throw new IOException("Invalid map size " + width + "x" + height + ": " + file);
+            }
+
+            long[] blocked = new long[GridMap.getWordCount(width, height)];
+            for (int y = 0; y < height; y++) {
+                line = reader.readLine();
+                if (line == null || line.length() < width) {
+                    throw new IOException("Map row " + y + " is missing or too short: " + file);
+                }
+
+                for (int x = 0; x < width; x++) {
+                    if (!isWalkable(line.charAt(x))) {
+                        int cell = y * width + x;
+                        blocked[cell >>> 6] |= 1L << cell;
+                    }
+                }
+            }
+
+            return new GridMap(width, height, blocked);
+        }
+    }
+
+    /**
+     * Reads the scenarios of a scenario file.
+     *
+     * @param file The scenario file.
+     * @return The scenarios, in the order of the file.
+     * @throws IOException Exception may be thrown if the file could not be read or is not a valid scenario file.
+     */
+    public static List<MovingAiScenario> readScenarios(File file) throws IOException {
+        List<MovingAiScenario> scenarios = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty() || line.startsWith("version")) {
+                    continue;
+                }
+
+                // Map names may contain spaces, so only split on whitespace if the line has no tabs
+                String[] parts = line.indexOf('\t') != -1 ? line.trim().split("\t") : line.trim().split("\\s+");
+                if (parts.length != 9) {
+                    throw new IOException("Expected 9 values but got " + parts.length + " in \"" + line + "\": " + file);
+                }
+
+                float optimalLength;
+                try {
+                    optimalLength = Float.parseFloat(parts[8]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid optimal length \"" + parts[8] + "\": " + file);
+                }
+
+                scenarios.add(new MovingAiScenario(parseInt(parts[0], file), parts[1],
+                        parseInt(parts[2], file), parseInt(parts[3], file),
+                        parseInt(parts[4], file), parseInt(parts[5], file),
+                        parseInt(parts[6], file), parseInt(parts[7], file), optimalLength));
+            }
+        }
+
+        return scenarios;
+    }
+
+    /**
+     * Checks if a map character can be walked on.
+     *
+     * @param terrain The map character.
+     * @return True if the terrain is ground or swamp.
+     */
+    private static boolean isWalkable(char terrain) {
+        return terrain == '.' || terrain == 'G' || terrain == 'S';
+    }
+
+    private static int parseInt(String value, File file) throws IOException {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number \"" + value + "\": " + file);
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package main.pathfinding.saving;
+
+import main.pathfinding.GridMap;
+import main.pathfinding.PathQuery;
+
+/**
+ * A single query of a Moving AI scenario file: the bucket it belongs to, the map it runs on, the start and goal and the
+ * length of the shortest path between them.
+ *
+ * @author Matthew Lillie
+ */
+public class MovingAiScenario {
+
+    /**
+     * The bucket of the scenario, scenarios in the same bucket have similar path lengths.
+     */
+    private final int bucket;
+
+    /**
+     * The name of the map file, relative to the scenario file.
+     */
+    private final String mapName;
+
+    /**
+     * The size of the map the scenario was made for.
+     */
+    private final int mapWidth, mapHeight;
+
+    /**
+     * The positions of the start and goal.
+     */
+    private final int startX, startY, goalX, goalY;
+
+    /**
+     * The length of the shortest path, with diagonal moves costing the square root of 2.
+     */
+    private final float optimalLength;
+
+    public MovingAiScenario(int bucket, String mapName, int mapWidth, int mapHeight, int startX, int startY,
+                            int goalX, int goalY, float optimalLength) {
+        this.bucket = bucket;
+        this.mapName = mapName;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.startX = startX;
+        this.startY = startY;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.optimalLength = optimalLength;
+    }
+
+    /**
+     * Checks if the scenario can be run on a map, the map must have the same size and contain the start and goal.
+     *
+     * @param map The map.
+     * @return True if the scenario fits the map.
+     */
+    public boolean fits(GridMap map) {
+        return map.getWidth() == mapWidth && map.getHeight() == mapHeight
+                && map.inBounds(startX, startY) && map.inBounds(goalX, goalY);
+    }
+
+    /**
+     * Gets the start and goal of the scenario as cells of a map.
+     *
+     * @param map The map the scenario runs on, which it must {@link #fits(GridMap) fit}.
+     * @return The query.
+     */
+    public PathQuery toQuery(GridMap map) {
+        return new PathQuery(map.cellOf(startX, startY), map.cellOf(goalX, goalY));
+    }
+
+    public int getBucket() {
+        return bucket;
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    public int getMapWidth() {
+        return mapWidth;
+    }
+
+    public int getMapHeight() {
+        return mapHeight;
+    }
+
+    public int getStartX() {
+        return startX;
+    }
+
+    public int getStartY() {
+        return startY;
+    }
+
+    public int getGoalX() {
+        return goalX;
+    }
+
+    public int getGoalY() {
+        return goalY;
+    }
+
+    public float getOptimalLength() {
+        return optimalLength;
+    }
+}
@@ -0,0 +1,27 @@
+package main.pathfinding.saving;
+
+import main.pathfinding.GridMap;
+
+/**
+ * A grid read back from a file, along with the node size it was saved with.
+ *
+ * @author Matthew Lillie
+ */
+public class SavedGrid {
+
+    private final GridMap map;
+    private final int nodeSize;
+
+    public SavedGrid(GridMap map, int nodeSize) {
+        this.map = map;
+        this.nodeSize = nodeSize;
+    }
+
+    public GridMap getMap() {
+        return map;
+    }
+
+    public int getNodeSize() {
+        return nodeSize;
+    }
+}
@@ -0,0 +1,123 @@
+package main.pathfinding;
+
+import main.pathfinding.benchmark.GridPattern;
+import main.pathfinding.impl.Algorithm;
+import main.pathfinding.impl.Heuristics;
+
+/**
+ * Checks the searches the benchmark measures on the maps it measures them on. Every algorithm must return a path of
+ * open neighboring cells from the start to the goal that costs what the result reports, and the optimal algorithms must
+ * find paths as cheap as Dijkstra's, so the benchmark never times a search that returns a wrong answer.
+ *
+ * @author Matthew Lillie
+ */
+public class BenchmarkCheck extends SelfCheck {
+
+    /**
+     * Maps larger than this are not searched with IDA*, which can take exponential time on open maps.
+     */
+    private static final int IDA_STAR_CELLS = 400;
+
+    private BenchmarkCheck(long seed) {
+        super(seed);
+    }
+
+    public static void main(String[] args) {
+        run(args, BenchmarkCheck::new);
+    }
+
+    @Override
+    protected void run() {
+        for (GridPattern pattern : GridPattern.values()) {
+            for (int test = 0; test < 20; test++) {
+                GridMap map = pattern.create(5 + random.nextInt(40), random.nextFloat() * 0.4f, random);
+
+                for (boolean diagonal : new boolean[]{false, true}) {
+                    // The benchmark searches between the corners, the random pairs cover the rest of the map
+                    checkQuery(map, diagonal, map.getStart(), map.getGoal(), pattern);
+                    for (int query = 0; query < 5; query++) {
+                        int start = randomOpenCell(map);
+                        int goal = randomOpenCell(map);
+
+                        if (start != -1 && goal != -1) {
+                            checkQuery(map, diagonal, start, goal, pattern);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkQuery(GridMap map, boolean diagonal, int start, int goal, GridPattern pattern) {
+        SearchResult expected = Algorithm.DIJKSTRA.create(diagonal, null).findPath(map, start, goal);
+
+        for (Algorithm algorithm : Algorithm.values()) {
+            if (algorithm == Algorithm.IDA_STAR && map.getCellCount() > IDA_STAR_CELLS) {
+                continue;
+            }
+
+            for (Heuristics heuristic : algorithm.usesHeuristic() ? Heuristics.values() : new Heuristics[]{null}) {
+                String description = algorithm + (heuristic != null ? " with " + heuristic : "") + " on " + pattern;
+                SearchResult actual = algorithm.create(diagonal, heuristic).findPath(map, start, goal);
+
+                checkPath(map, diagonal, start, goal, actual, description);
+                if (isOptimal(algorithm, diagonal) && isAdmissible(heuristic, diagonal)) {
+                    compare(expected, actual, description);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that a path found walks between open neighbors from the start to the goal and costs what was reported.
+     */
+    private void checkPath(GridMap map, boolean diagonal, int start, int goal, SearchResult result, String description) {
+        if (!result.isFound()) {
+            return;
+        }
+
+        int[] path = result.getPath();
+        int[] neighbors = new int[8];
+        float cost = 0f;
+        check(path[0] == start && path[path.length - 1] == goal, description + " path does not join the start and goal");
+
+        for (int i = 1; i < path.length; i++) {
+            int count = map.getNeighbors(path[i - 1], diagonal, neighbors);
+            boolean neighbor = false;
+            for (int j = 0; j < count; j++) {
+                neighbor |= neighbors[j] == path[i];
+            }
+
+            check(neighbor, description + " moves from " + path[i - 1] + " to " + path[i]);
+            cost += Pathfinder.getMovementCost(map, path[i - 1], path[i]);
+        }
+
+        check(Math.abs(cost - result.getCost()) <= 1e-3f * Math.max(1f, cost),
+                description + " reported cost " + result.getCost() + " for a path costing " + cost);
+    }
+
+    private static boolean isOptimal(Algorithm algorithm, boolean diagonal) {
+        switch (algorithm) {
+            case DIJKSTRA:
+            case ASTAR:
+            case BIDIRECTIONAL_DIJKSTRA:
+            case BIDIRECTIONAL_ASTAR:
+            case IDA_STAR:
+            case JUMP_POINT_SEARCH:
+            case JUMP_POINT_SEARCH_PLUS:
+            case D_STAR_LITE:
+                return true;
+            case BREADTH_FIRST_SEARCH:
+                return !diagonal;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks if a heuristic never overestimates, the manhattan distance does with diagonal moves.
+     */
+    private static boolean isAdmissible(Heuristics heuristic, boolean diagonal) {
+        return heuristic != Heuristics.MANHATTAN || !diagonal;
+    }
+}
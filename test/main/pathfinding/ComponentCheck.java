@@ -0,0 +1,49 @@
+package main.pathfinding;
+
+/**
+ * Checks that the component index stays correct while its map is edited. The index kept up to date must answer like one
+ * built for a freshly built copy of the map, both for the first lookups after an edit, which take the lock, and for
+ * the later ones, which read the published labels without it.
+ *
+ * @author Matthew Lillie
+ */
+public class ComponentCheck extends SelfCheck {
+
+    /**
+     * Enough lookups per version of the map to go past the ones answered under the lock.
+     */
+    private static final int QUERIES = 150;
+
+    private ComponentCheck(long seed) {
+        super(seed);
+    }
+
+    public static void main(String[] args) {
+        run(args, ComponentCheck::new);
+    }
+
+    @Override
+    protected void run() {
+        for (int test = 0; test < 40; test++) {
+            boolean diagonal = test % 2 == 1;
+            GridMap map = randomMap(false);
+
+            for (int step = 0; step < 20; step++) {
+                edit(map, false, -1, -1);
+                ComponentIndex index = ComponentIndex.get(map, diagonal);
+                ComponentIndex fresh = new ComponentIndex(diagonal);
+                GridMap rebuilt = rebuild(map);
+
+                check(ComponentIndex.get(map, diagonal) == index, "Component index is not shared between searches");
+
+                for (int query = 0; query < QUERIES; query++) {
+                    int one = random.nextInt(map.getCellCount());
+                    int two = random.nextInt(map.getCellCount());
+
+                    check(index.isReachable(map, one, two) == fresh.isReachable(rebuilt, one, two),
+                            "Component index after edits differs between " + one + " and " + two);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package main.pathfinding;
+
+import main.pathfinding.impl.DStarLite;
+
+/**
+ * Checks that D* Lite replans correctly. One instance keeps its goal while the map is edited and the start moves between
+ * its queries, and must find paths as cheap as a fresh instance does on a freshly built copy of the map.
+ *
+ * @author Matthew Lillie
+ */
+public class DStarLiteCheck extends SelfCheck {
+
+    private DStarLiteCheck(long seed) {
+        super(seed);
+    }
+
+    public static void main(String[] args) {
+        run(args, DStarLiteCheck::new);
+    }
+
+    @Override
+    protected void run() {
+        for (int test = 0; test < 40; test++) {
+            boolean weighted = test % 2 == 1;
+            boolean diagonal = test % 4 >= 2;
+            GridMap map = randomMap(weighted);
+            Pathfinder dStarLite = new DStarLite(diagonal);
+
+            int start = randomOpenCell(map);
+            int goal = randomOpenCell(map);
+            if (start == -1 || goal == -1) {
+                continue;
+            }
+
+            for (int step = 0; step < 15; step++) {
+                edit(map, weighted, start, goal);
+
+                // The goal stays and the start moves, as it does for an agent following the path
+                if (random.nextInt(3) == 0) {
+                    int next = randomOpenCell(map);
+                    start = next == -1 || next == goal ? start : next;
+                }
+
+                compare(new DStarLite(diagonal).findPath(rebuild(map), start, goal),
+                        dStarLite.findPath(map, start, goal), "D* Lite after edits");
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package main.pathfinding;
+
+import main.pathfinding.impl.HierarchicalAstar;
+
+/**
+ * Checks that hierarchical A* repairs its abstract graph correctly. One instance searches a map that is edited between
+ * its queries, and must find paths as cheap as a fresh instance does on a freshly built copy of the map, which builds
+ * every cluster from scratch. Both use small clusters so that the edits cross cluster borders often.
+ *
+ * @author Matthew Lillie
+ */
+public class HierarchicalCheck extends SelfCheck {
+
+    private static final int CLUSTER_SIZE = 8;
+
+    private HierarchicalCheck(long seed) {
+        super(seed);
+    }
+
+    public static void main(String[] args) {
+        run(args, HierarchicalCheck::new);
+    }
+
+    @Override
+    protected void run() {
+        for (int test = 0; test < 40; test++) {
+            boolean weighted = test % 2 == 1;
+            boolean diagonal = test % 4 >= 2;
+            GridMap map = randomMap(weighted);
+            Pathfinder hierarchical = new HierarchicalAstar(diagonal, CLUSTER_SIZE);
+
+            for (int step = 0; step < 15; step++) {
+                edit(map, weighted, -1, -1);
+                GridMap rebuilt = rebuild(map);
+
+                for (int query = 0; query < 3; query++) {
+                    int start = randomOpenCell(map);
+                    int goal = randomOpenCell(map);
+                    if (start == -1 || goal == -1) {
+                        continue;
+                    }
+
+                    compare(new HierarchicalAstar(diagonal, CLUSTER_SIZE).findPath(rebuilt, start, goal),
+                            hierarchical.findPath(map, start, goal), "Hierarchical A* after edits");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package main.pathfinding;
+
+import java.util.Random;
+import java.util.function.LongFunction;
+
+/**
+ * Base of the self checks, which compare searches to each other on random maps and print the amount of checks that
+ * passed or fail with the first difference found. Each check is kept out of the application sources and run with:
+ * <pre>
+ *     java -cp out/production/PathFinding:out/test/PathFinding main.pathfinding.BenchmarkCheck [seed]
+ * </pre>
+ *
+ * @author Matthew Lillie
+ */
+public abstract class SelfCheck {
+
+    /**
+     * The largest difference between two path costs that are considered the same, relative to the cost.
+     */
+    private static final float COST_TOLERANCE = 1e-4f;
+
+    protected final Random random;
+    private int checks;
+
+    protected SelfCheck(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Runs a check with the seed given as the first argument, exiting with status 1 if it fails.
+     *
+     * @param args    The command line arguments.
+     * @param factory Creates the check from a seed.
+     */
+    protected static void run(String[] args, LongFunction<SelfCheck> factory) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1L;
+        SelfCheck check = factory.apply(seed);
+
+        try {
+            check.run();
+        } catch (AssertionError e) {
+            System.err.println("Failed with seed " + seed + ": " + e.getMessage());
+            System.exit(1);
+        }
+
+        System.out.println(check.checks + " checks passed");
+    }
+
+    /**
+     * Runs every check, throwing an {@link AssertionError} on the first one that fails.
+     */
+    protected abstract void run();
+
+    protected void compare(SearchResult expected, SearchResult actual, String description) {
+        check(expected.isFound() == actual.isFound(), description + (expected.isFound()
+                ? " found no path" : " found a path where there is none"));
+
+        if (expected.isFound()) {
+            float tolerance = COST_TOLERANCE * Math.max(1f, expected.getCost());
+            check(Math.abs(expected.getCost() - actual.getCost()) <= tolerance,
+                    description + " cost " + actual.getCost() + " instead of " + expected.getCost());
+        }
+    }
+
+    protected void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        checks++;
+    }
+
+    protected GridMap randomMap(boolean weighted) {
+        int width = 2 + random.nextInt(40);
+        int height = 2 + random.nextInt(40);
+        float density = random.nextFloat() * 0.45f;
+        GridMap map = new GridMap(width, height);
+
+        for (int cell = 0; cell < map.getCellCount(); cell++) {
+            if (random.nextFloat() < density) {
+                map.setBlocked(cell, true);
+            } else if (weighted && random.nextInt(3) == 0) {
+                map.setCost(cell, GridMap.MIN_COST + random.nextInt(20));
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Toggles a few cells and, on weighted maps, changes a few costs, keeping the start and goal open.
+     */
+    protected void edit(GridMap map, boolean weighted, int start, int goal) {
+        int edits = 1 + random.nextInt(6);
+
+        for (int i = 0; i < edits; i++) {
+            int cell = random.nextInt(map.getCellCount());
+
+            if (weighted && random.nextBoolean()) {
+                map.setCost(cell, GridMap.MIN_COST + random.nextInt(20));
+            } else if (cell != start && cell != goal) {
+                map.setBlocked(cell, !map.isBlocked(cell));
+            }
+        }
+    }
+
+    /**
+     * Builds a new map with the same cells, sharing nothing with the original.
+     */
+    protected static GridMap rebuild(GridMap map) {
+        GridMap rebuilt = new GridMap(map.getWidth(), map.getHeight(), map.getAllBlocked());
+        if (map.isWeighted()) {
+            rebuilt.setAllCosts(map.getAllCosts());
+        }
+        return rebuilt;
+    }
+
+    protected int randomOpenCell(GridMap map) {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            int cell = random.nextInt(map.getCellCount());
+
+            if (!map.isBlocked(cell)) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+}
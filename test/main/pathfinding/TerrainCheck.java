@@ -0,0 +1,128 @@
+package main.pathfinding;
+
+import main.pathfinding.impl.Algorithm;
+import main.pathfinding.impl.BucketQueue;
+import main.pathfinding.impl.Heuristics;
+
+/**
+ * Checks terrain costs and the bucket queue. Every algorithm that stays optimal with terrain costs must find paths as
+ * cheap as Dijkstra's on weighted maps, and the bucket queue must poll the smallest key first like a scan of every
+ * queued key does.
+ *
+ * @author Matthew Lillie
+ */
+public class TerrainCheck extends SelfCheck {
+
+    /**
+     * Maps larger than this are not searched with IDA*, which can take exponential time on open maps.
+     */
+    private static final int IDA_STAR_CELLS = 400;
+
+    private TerrainCheck(long seed) {
+        super(seed);
+    }
+
+    public static void main(String[] args) {
+        run(args, TerrainCheck::new);
+    }
+
+    @Override
+    protected void run() {
+        checkWeightedCosts();
+        checkBucketQueue();
+    }
+
+    /**
+     * Compares every algorithm that is optimal on weighted maps, with every admissible heuristic, to Dijkstra.
+     */
+    private void checkWeightedCosts() {
+        for (int test = 0; test < 40; test++) {
+            GridMap map = randomMap(true);
+
+            for (boolean diagonal : new boolean[]{false, true}) {
+                Pathfinder dijkstra = Algorithm.DIJKSTRA.create(diagonal, null);
+
+                for (int query = 0; query < 10; query++) {
+                    int start = randomOpenCell(map);
+                    int goal = randomOpenCell(map);
+                    if (start == -1 || goal == -1) {
+                        continue;
+                    }
+
+                    SearchResult expected = dijkstra.findPath(map, start, goal);
+
+                    for (Algorithm algorithm : Algorithm.values()) {
+                        if (!isOptimalWithCosts(algorithm)
+                                || algorithm == Algorithm.IDA_STAR && map.getCellCount() > IDA_STAR_CELLS) {
+                            continue;
+                        }
+
+                        for (Heuristics heuristic : algorithm.usesHeuristic()
+                                ? Heuristics.values() : new Heuristics[]{null}) {
+                            if (heuristic != Heuristics.MANHATTAN || !diagonal) {
+                                compare(expected, algorithm.create(diagonal, heuristic).findPath(map, start, goal),
+                                        algorithm + (heuristic != null ? " with " + heuristic : "")
+                                                + " on a weighted map");
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares the bucket queue to a scan for the smallest key, with keys that never go below the last key polled.
+     */
+    private void checkBucketQueue() {
+        int capacity = 512;
+        BucketQueue queue = new BucketQueue(capacity);
+        long[] keys = new long[capacity];
+        boolean[] queued = new boolean[capacity];
+        long last = 0;
+
+        for (int operation = 0; operation < 100000; operation++) {
+            if (random.nextInt(3) > 0 || queue.isEmpty()) {
+                // Mostly small steps with the odd jump far ahead, which grows the ring
+                int cell = random.nextInt(capacity);
+                long key = last + (random.nextInt(50) == 0 ? random.nextInt(100000) : random.nextInt(300));
+
+                if (!queued[cell] || key < keys[cell]) {
+                    queue.addOrUpdate(cell, key);
+                    keys[cell] = key;
+                    queued[cell] = true;
+                }
+            } else {
+                long min = Long.MAX_VALUE;
+                for (int cell = 0; cell < capacity; cell++) {
+                    if (queued[cell]) {
+                        min = Math.min(min, keys[cell]);
+                    }
+                }
+
+                int cell = queue.poll();
+                check(queued[cell] && keys[cell] == min, "Bucket queue polled key " + keys[cell] + " before " + min);
+                queued[cell] = false;
+                last = min;
+            }
+        }
+    }
+
+    /**
+     * Checks if an algorithm finds the cheapest path once cells have terrain costs, jump point searches and breadth first
+     * search only find the shortest.
+     */
+    private static boolean isOptimalWithCosts(Algorithm algorithm) {
+        switch (algorithm) {
+            case DIJKSTRA:
+            case ASTAR:
+            case BIDIRECTIONAL_DIJKSTRA:
+            case BIDIRECTIONAL_ASTAR:
+            case IDA_STAR:
+            case D_STAR_LITE:
+                return true;
+            default:
+                return false;
+        }
+    }
+}